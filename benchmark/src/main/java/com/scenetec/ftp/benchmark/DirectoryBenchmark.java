@@ -0,0 +1,46 @@
+package com.scenetec.ftp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 目录创建开销：上传一个单字节文件到三层深的新目录，与上传到已存在目录对比
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DirectoryBenchmark extends TemplateBenchmarkSupport {
+
+	private static final byte[] CONTENT = {0};
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * 每次调用创建新目录，包含逐级CWD/MKD
+	 */
+	@Benchmark
+	public boolean createDirectories() {
+		return template().uploadFile(CONTENT, "/dirs/" + sequence.incrementAndGet() + "/a/b/file.txt");
+	}
+
+	/**
+	 * 目录已存在，衡量切换目录的开销
+	 */
+	@Benchmark
+	public boolean existingDirectory() {
+		return template().uploadFile(CONTENT, "/dirs/existing/a/b/file.txt");
+	}
+}
@@ -0,0 +1,112 @@
+package com.scenetec.ftp.benchmark;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * 进程内FTP服务器，监听本地回环地址，根目录为临时目录
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class EmbeddedFtpServer implements Closeable {
+
+	private static final String USERNAME = "bench";
+	private static final String PASSWORD = "bench";
+	private static final int MAX_LOGINS = 256;
+
+	private final FtpServer server;
+	private final File root;
+	private final int port;
+
+	public EmbeddedFtpServer() throws IOException, FtpException {
+		this.root = Files.createTempDirectory("ftp-bench").toFile();
+		this.port = freePort();
+
+		ListenerFactory listenerFactory = new ListenerFactory();
+		listenerFactory.setServerAddress("127.0.0.1");
+		listenerFactory.setPort(port);
+
+		ConnectionConfigFactory connectionConfig = new ConnectionConfigFactory();
+		connectionConfig.setMaxLogins(MAX_LOGINS);
+		connectionConfig.setAnonymousLoginEnabled(false);
+
+		FtpServerFactory serverFactory = new FtpServerFactory();
+		serverFactory.addListener("default", listenerFactory.createListener());
+		serverFactory.setConnectionConfig(connectionConfig.createConnectionConfig());
+
+		BaseUser user = new BaseUser();
+		user.setName(USERNAME);
+		user.setPassword(PASSWORD);
+		user.setHomeDirectory(root.getAbsolutePath());
+		user.setAuthorities(Arrays.asList(new WritePermission(), new ConcurrentLoginPermission(MAX_LOGINS, MAX_LOGINS)));
+		serverFactory.getUserManager().save(user);
+
+		this.server = serverFactory.createServer();
+		this.server.start();
+	}
+
+	/**
+	 * 连接该服务器的客户端配置，其余参数保持默认值
+	 * @return 客户端配置
+	 */
+	public FtpClientProperties clientProperties() {
+		FtpClientProperties config = new FtpClientProperties();
+		config.setHost("127.0.0.1");
+		config.setPort(port);
+		config.setUsername(USERNAME);
+		config.setPassword(PASSWORD);
+		config.setPassiveMode(true);
+		return config;
+	}
+
+	/**
+	 * 服务器根目录
+	 * @return 根目录
+	 */
+	public File getRoot() {
+		return root;
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.stop();
+		Files.walkFileTree(root.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.scenetec.ftp.benchmark;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.FtpClientPool;
+import com.scenetec.ftp.core.FtpConcurrentPool;
+import com.scenetec.ftp.core.ValidationPolicy;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.ObjectPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程借出/归还连接的争用开销，线程数大于连接数
+ * concurrent为FtpConcurrentPool，legacy为基于阻塞队列的FtpClientPool
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class PoolBenchmark {
+
+	@Param({"concurrent", "legacy"})
+	public String pool;
+
+	@Param({"8"})
+	public int poolSize;
+
+	/**
+	 * 连接验证策略，只对concurrent生效
+	 */
+	@Param({"IDLE_TIME", "NONE"})
+	public ValidationPolicy validationPolicy;
+
+	private EmbeddedFtpServer server;
+	private ObjectPool<FTPClient> objectPool;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		server = new EmbeddedFtpServer();
+		FtpClientProperties config = server.clientProperties();
+		config.setMaxTotal(poolSize);
+		config.setMaxIdle(poolSize);
+		config.setMinIdle(poolSize);
+		config.setValidationPolicy(validationPolicy);
+		FtpClientFactory factory = new FtpClientFactory(config);
+		if ("concurrent".equals(pool)) {
+			FtpConcurrentPool concurrentPool = new FtpConcurrentPool(factory, config);
+			concurrentPool.warmUp(poolSize).join();
+			objectPool = concurrentPool;
+		} else {
+			objectPool = new FtpClientPool(poolSize, factory);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		objectPool.close();
+		server.close();
+	}
+
+	@Benchmark
+	public FTPClient borrowReturn() throws Exception {
+		FTPClient client = objectPool.borrowObject();
+		objectPool.returnObject(client);
+		return client;
+	}
+
+	/**
+	 * 借出后发送一条NOOP，模拟持有连接执行短命令
+	 */
+	@Benchmark
+	public int borrowNoopReturn() throws Exception {
+		FTPClient client = objectPool.borrowObject();
+		try {
+			return client.sendNoOp() ? 1 : 0;
+		} finally {
+			objectPool.returnObject(client);
+		}
+	}
+}
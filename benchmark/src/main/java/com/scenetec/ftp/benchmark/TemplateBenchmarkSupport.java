@@ -0,0 +1,98 @@
+package com.scenetec.ftp.benchmark;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.template.FtpBaseTemplate;
+import com.scenetec.ftp.template.FtpOnceTemplate;
+import com.scenetec.ftp.template.FtpPoolTemplate;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 模板基准测试的公共状态：启动嵌入式FTP服务器，并通过Spring容器创建两种模板
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+public abstract class TemplateBenchmarkSupport {
+
+	/**
+	 * 被测模板，pool为连接池模板，once为每次新建连接的模板
+	 */
+	@Param({"pool", "once"})
+	public String template;
+
+	protected EmbeddedFtpServer server;
+	protected FtpClientProperties config;
+	private AnnotationConfigApplicationContext context;
+	private FtpPoolTemplate poolTemplate;
+	private FtpOnceTemplate onceTemplate;
+
+	@Setup(Level.Trial)
+	public void startServer() throws Exception {
+		server = new EmbeddedFtpServer();
+		config = server.clientProperties();
+		configure(config);
+		// FtpOnceTemplate通过@Resource注入工厂，由容器完成装配
+		context = new AnnotationConfigApplicationContext();
+		context.registerBean(FtpClientProperties.class, () -> config);
+		context.register(FtpClientFactory.class, FtpPoolTemplate.class, FtpOnceTemplate.class);
+		context.refresh();
+		poolTemplate = context.getBean(FtpPoolTemplate.class);
+		onceTemplate = context.getBean(FtpOnceTemplate.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() throws IOException {
+		context.close();
+		server.close();
+	}
+
+	/**
+	 * 调整客户端配置，默认不修改
+	 * @param config 客户端配置
+	 */
+	protected void configure(FtpClientProperties config) {
+	}
+
+	protected FtpBaseTemplate template() {
+		return "pool".equals(template) ? poolTemplate : onceTemplate;
+	}
+
+	protected boolean download(String remotePath, OutputStream outputStream) {
+		return "pool".equals(template)
+				? poolTemplate.downloadFile(remotePath, outputStream)
+				: onceTemplate.downloadFile(remotePath, outputStream);
+	}
+
+	/**
+	 * 丢弃写入内容的输出流，只统计字节数
+	 */
+	protected static class DiscardOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+}
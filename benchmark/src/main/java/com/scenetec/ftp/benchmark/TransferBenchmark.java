@@ -0,0 +1,64 @@
+package com.scenetec.ftp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 小文件与大文件的上传、下载吞吐量，对比连接池模板与一次性连接模板
+ * 每次调用传输一个文件，结果乘以fileSize即为字节吞吐量
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferBenchmark extends TemplateBenchmarkSupport {
+
+	private static final String UPLOAD_PATH = "/transfer/upload.bin";
+	private static final String DOWNLOAD_PATH = "/transfer/download.bin";
+
+	/**
+	 * 文件大小(字节)，4KB小文件与8MB大文件
+	 */
+	@Param({"4096", "8388608"})
+	public int fileSize;
+
+	private byte[] content;
+
+	@Setup(Level.Trial)
+	public void prepareFile() {
+		content = new byte[fileSize];
+		new Random(fileSize).nextBytes(content);
+		if (!template().uploadFile(content, DOWNLOAD_PATH)) {
+			throw new IllegalStateException("准备下载文件失败");
+		}
+	}
+
+	@Benchmark
+	public boolean upload() {
+		return template().uploadFile(content, UPLOAD_PATH);
+	}
+
+	@Benchmark
+	public long download() {
+		DiscardOutputStream outputStream = new DiscardOutputStream();
+		if (!download(DOWNLOAD_PATH, outputStream)) {
+			throw new IllegalStateException("下载文件失败");
+		}
+		return outputStream.getCount();
+	}
+}
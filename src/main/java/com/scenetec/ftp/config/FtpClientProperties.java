@@ -1,11 +1,15 @@
 package com.scenetec.ftp.config;
 
+import com.scenetec.ftp.core.LoadBalancePolicy;
+import com.scenetec.ftp.core.ValidationPolicy;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.net.ftp.FTP;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * @author shendunyuan@scenetec.com
  * @date 2018/12/19
@@ -26,6 +30,12 @@ public class FtpClientProperties {
 	 */
 	private Integer port = 21;
 
+	/**
+	 * 多个服务器地址，格式host:port，省略端口时使用port
+	 * 配置后为每个服务器建立独立的连接池并负载均衡，不再使用host
+	 */
+	private List<String> hosts;
+
 	/**
 	 * 登录用户
 	 */
@@ -56,8 +66,30 @@ public class FtpClientProperties {
 	 */
 	private Integer bufferSize = 1024;
 
+	/**
+	 * 数据连接超时时间(秒)，传输中超过该时间没有数据时失败，为空时不超时
+	 */
+	private Integer dataTimeout;
+
+	/**
+	 * 本地文件传输是否使用零拷贝
+	 * 上传使用FileChannel.transferTo，下载经直接缓冲区写入文件，仅对二进制传输生效
+	 */
+	private boolean zeroCopy = false;
+
+	/**
+	 * 零拷贝上传时每次transferTo调用传输的最大字节数
+	 */
+	private Long transferChunkSize = 8L * 1024 * 1024;
+
+	/**
+	 * 零拷贝下载及压缩传输时每个连接使用的直接缓冲区大小
+	 */
+	private Integer directBufferSize = 256 * 1024;
+
 	/**
 	 * 设置keepAlive
+	 * 传输期间控制连接空闲超过该时间时发送NOOP，防止防火墙断开控制连接
 	 * 单位:秒  0禁用
 	 */
 	private Integer keepAliveTimeout = 0;
@@ -67,4 +99,258 @@ public class FtpClientProperties {
 	 */
 	private Integer transferFileType = FTP.BINARY_FILE_TYPE;
 
+	/**
+	 * 连接池最大连接数
+	 */
+	private Integer maxTotal = 8;
+
+	/**
+	 * 连接池最大空闲连接数
+	 */
+	private Integer maxIdle = 8;
+
+	/**
+	 * 连接池最小空闲连接数
+	 */
+	private Integer minIdle = 0;
+
+	/**
+	 * 后台预热连接池
+	 * false: 创建连接池时并行创建最小空闲连接并等待完成；true: Spring容器就绪后在后台预热
+	 */
+	private boolean asyncWarmUp = false;
+
+	/**
+	 * 预热时并行创建连接的线程数
+	 */
+	private Integer warmUpParallelism = 4;
+
+	/**
+	 * 借出连接最大等待时间
+	 * 单位:毫秒
+	 */
+	private Long maxWaitMillis = 30000L;
+
+	/**
+	 * 为在线(INTERACTIVE)请求保留的连接数，批量(BULK)请求最多同时借出maxTotal减去该数量的连接
+	 */
+	private Integer reservedConnections = 0;
+
+	/**
+	 * 连接验证策略
+	 */
+	private ValidationPolicy validationPolicy = ValidationPolicy.IDLE_TIME;
+
+	/**
+	 * 连接验证间隔，间隔内使用过的连接不再验证
+	 * 单位:毫秒
+	 */
+	private Long validationIntervalMillis = 30000L;
+
+	/**
+	 * 连接池后台维护间隔，维护包括保活、过期淘汰和补足最小空闲连接
+	 * 单位:毫秒
+	 */
+	private Long maintenanceIntervalMillis = 5000L;
+
+	/**
+	 * 空闲连接超过该时间未确认可用时发送NOOP保活，早于服务器的空闲超时发送
+	 * 单位:毫秒  0禁用
+	 */
+	private Long keepAliveIntervalMillis = 60000L;
+
+	/**
+	 * 连接最长存活时间，到期的空闲连接在后台替换，借出中的连接归还时销毁
+	 * 单位:毫秒  0禁用
+	 */
+	private Long maxLifetimeMillis = 1800000L;
+
+	/**
+	 * 连接最长空闲时间，超出最小空闲数的连接空闲超时后销毁
+	 * 单位:毫秒  0禁用
+	 */
+	private Long maxIdleTimeMillis = 600000L;
+
+	/**
+	 * 多服务器负载均衡策略
+	 */
+	private LoadBalancePolicy loadBalancePolicy = LoadBalancePolicy.LEAST_ACTIVE;
+
+	/**
+	 * 服务器连续连接或登录失败达到该次数后熔断，不再分配连接
+	 */
+	private Integer circuitFailureThreshold = 3;
+
+	/**
+	 * 后台探测间隔，探测熔断的服务器是否恢复，并刷新各服务器的命令时延
+	 * 单位:毫秒
+	 */
+	private Long probeIntervalMillis = 5000L;
+
+	/**
+	 * 多服务器连接池：所有服务器合计的最大借出连接数
+	 */
+	private Integer keyedMaxTotal = 64;
+
+	/**
+	 * 多服务器连接池：每个服务器的最大连接数
+	 */
+	private Integer maxTotalPerKey = 8;
+
+	/**
+	 * 多服务器连接池：最多保留连接池的服务器数，超出时淘汰最久未使用且没有借出连接的服务器
+	 */
+	private Integer maxKeys = 256;
+
+	/**
+	 * 多服务器连接池：服务器超过该时间未使用时关闭其连接池
+	 * 单位:毫秒
+	 */
+	private Long keyIdleTimeoutMillis = 300000L;
+
+	/**
+	 * 远程目录缓存最大目录数
+	 * 0禁用
+	 */
+	private Integer directoryCacheSize = 1024;
+
+	/**
+	 * 远程目录缓存有效期
+	 * 单位:秒
+	 */
+	private Long directoryCacheTtlSeconds = 300L;
+
+	/**
+	 * 下载文件缓存的内存总大小，小文件缓存在堆外内存，使用前以MDTM/SIZE确认远程文件未变化
+	 * 单位:字节  0禁用内存缓存
+	 */
+	private Long fileCacheMaxBytes = 0L;
+
+	/**
+	 * 缓存在内存中的单个文件最大大小，超过的文件只缓存在磁盘
+	 * 单位:字节
+	 */
+	private Long fileCacheMaxEntryBytes = 1024 * 1024L;
+
+	/**
+	 * 下载文件缓存的磁盘目录，存放超过内存单个文件上限的文件和从内存淘汰的文件
+	 * 为空时禁用磁盘缓存
+	 */
+	private String fileCacheDiskDir;
+
+	/**
+	 * 下载文件缓存的磁盘总大小
+	 * 单位:字节
+	 */
+	private Long fileCacheDiskMaxBytes = 1024 * 1024 * 1024L;
+
+	/**
+	 * 分段下载时每段大小
+	 * 单位:字节  文件小于该值时不分段
+	 */
+	private Long segmentSize = 16L * 1024 * 1024;
+
+	/**
+	 * 分段下载并行数
+	 * 每段占用一个池化连接
+	 */
+	private Integer downloadParallelism = 4;
+
+	/**
+	 * 批量传输并行数
+	 */
+	private Integer batchParallelism = 4;
+
+	/**
+	 * 批量传输时同一目录下每个连接负责的最大文件数
+	 */
+	private Integer batchChunkSize = 500;
+
+	/**
+	 * 异步传输线程数
+	 * 为空时与连接池最大连接数一致
+	 */
+	private Integer asyncPoolSize;
+
+	/**
+	 * 异步传输等待队列长度，队列已满时由调用线程执行
+	 */
+	private Integer asyncQueueCapacity = 1000;
+
+	/**
+	 * 异步传输是否使用虚拟线程(JDK 21及以上)
+	 * 同时运行的任务数仍为异步传输线程数，排队任务数超过队列长度时提交线程等待
+	 */
+	private boolean asyncVirtualThreads = false;
+
+	/**
+	 * 分段下载和批量传输是否使用虚拟线程(JDK 21及以上)
+	 * 开启后并行数只限制同时进行的任务数，不再对应平台线程数，不支持时退回平台线程池
+	 */
+	private boolean templateVirtualThreads = false;
+
+	/**
+	 * 响应式传输每个数据块大小
+	 * 单位:字节
+	 */
+	private Integer streamBufferSize = 64 * 1024;
+
+	/**
+	 * 断点续传日志记录间隔
+	 * 单位:字节
+	 */
+	private Long checkpointInterval = 4L * 1024 * 1024;
+
+	/**
+	 * 原子上传：先上传为临时文件，成功后改名为目标文件，下游不会读到未写完的文件
+	 */
+	private boolean atomicUpload = false;
+
+	/**
+	 * 原子上传临时文件的后缀
+	 */
+	private String atomicUploadSuffix = ".part";
+
+	/**
+	 * 临时文件超过该时间未修改视为遗留文件，清理时删除
+	 * 单位:毫秒
+	 */
+	private Long orphanTempTimeoutMillis = 3600000L;
+
+	/**
+	 * 服务器间复制时是否尝试FXP(一方PASV、另一方PORT，数据直接在两台服务器间传输)
+	 * 任一方不支持时改为经本机内存中转
+	 */
+	private boolean fxpEnabled = true;
+
+	/**
+	 * 服务器在FEAT中声明支持MODE Z时使用压缩传输模式，数据连接以zlib格式压缩
+	 * 适合带宽受限的链路，会增加两端的CPU开销
+	 */
+	private boolean modeZ = false;
+
+	/**
+	 * 传输完成后校验完整性：传输的同时计算校验值，与服务器HASH/XCRC/XMD5/XSHA256的结果比较，
+	 * 服务器不支持校验命令时只比较SIZE。仅对二进制传输生效
+	 */
+	private boolean verifyIntegrity = false;
+
+	/**
+	 * 所有传输合计的速率上限，开启限速时不使用零拷贝
+	 * 单位:字节/秒  0不限速
+	 */
+	private Long maxBytesPerSecond = 0L;
+
+	/**
+	 * 单个传输的速率上限
+	 * 单位:字节/秒  0不限速
+	 */
+	private Long maxBytesPerSecondPerTransfer = 0L;
+
+	/**
+	 * 有在线(INTERACTIVE)传输进行时，批量(BULK)传输合计的速率上限，应小于maxBytesPerSecond
+	 * 单位:字节/秒  0不限速
+	 */
+	private Long bulkBytesPerSecond = 0L;
+
 }
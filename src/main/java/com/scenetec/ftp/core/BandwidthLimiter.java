@@ -0,0 +1,130 @@
+package com.scenetec.ftp.core;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.io.Throttle;
+import com.scenetec.ftp.io.ThrottledInputStream;
+import com.scenetec.ftp.io.ThrottledOutputStream;
+import com.scenetec.ftp.io.TokenBucket;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 传输带宽限制
+ * 所有传输共享总速率；每个传输另有单独的速率上限；有在线(INTERACTIVE)传输进行时，
+ * 批量(BULK)传输合计不超过批量速率，剩余带宽留给在线传输，没有在线传输时批量传输可使用全部带宽。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class BandwidthLimiter {
+
+	private final TokenBucket global;
+	private final TokenBucket bulk;
+	private final long perTransferBytesPerSecond;
+	private final AtomicInteger activeInteractive = new AtomicInteger();
+
+	public BandwidthLimiter(FtpClientProperties config) {
+		this(config.getMaxBytesPerSecond(), config.getBulkBytesPerSecond(), config.getMaxBytesPerSecondPerTransfer());
+	}
+
+	/**
+	 * @param globalBytesPerSecond 所有传输合计的每秒字节数，小于等于0不限速
+	 * @param bulkBytesPerSecond 有在线传输时批量传输合计的每秒字节数，小于等于0不限速
+	 * @param perTransferBytesPerSecond 单个传输的每秒字节数，小于等于0不限速
+	 */
+	public BandwidthLimiter(long globalBytesPerSecond, long bulkBytesPerSecond, long perTransferBytesPerSecond) {
+		this.global = new TokenBucket(globalBytesPerSecond);
+		this.bulk = new TokenBucket(bulkBytesPerSecond);
+		this.perTransferBytesPerSecond = perTransferBytesPerSecond;
+	}
+
+	/**
+	 * 是否配置了任何限速
+	 * @return 配置了返回true
+	 */
+	public boolean isEnabled() {
+		return global.getBytesPerSecond() > 0 || bulk.getBytesPerSecond() > 0 || perTransferBytesPerSecond > 0;
+	}
+
+	public TokenBucket getGlobal() {
+		return global;
+	}
+
+	public TokenBucket getBulk() {
+		return bulk;
+	}
+
+	/**
+	 * 正在进行的在线传输数
+	 * @return 传输数
+	 */
+	public int getActiveInteractive() {
+		return activeInteractive.get();
+	}
+
+	/**
+	 * 开始一个传输，优先级取当前线程的优先级，传输结束时必须关闭
+	 * @return 传输配额
+	 */
+	public Permit open() {
+		return new Permit(TransferPriority.current());
+	}
+
+	/**
+	 * 一个传输的配额
+	 */
+	public final class Permit implements Throttle, AutoCloseable {
+
+		private final TransferPriority priority;
+		private final TokenBucket own;
+		private boolean closed;
+
+		private Permit(TransferPriority priority) {
+			this.priority = priority;
+			this.own = perTransferBytesPerSecond > 0 ? new TokenBucket(perTransferBytesPerSecond) : null;
+			if (priority == TransferPriority.INTERACTIVE) {
+				activeInteractive.incrementAndGet();
+			}
+		}
+
+		@Override
+		public void acquire(int bytes) throws InterruptedIOException {
+			if (own != null) {
+				own.acquire(bytes);
+			}
+			if (priority == TransferPriority.BULK && activeInteractive.get() > 0) {
+				bulk.acquire(bytes);
+			}
+			global.acquire(bytes);
+		}
+
+		/**
+		 * 限速读取，未配置限速时返回原流
+		 * @param in 输入流
+		 * @return 限速输入流
+		 */
+		public InputStream wrap(InputStream in) {
+			return isEnabled() ? new ThrottledInputStream(in, this) : in;
+		}
+
+		/**
+		 * 限速写入，未配置限速时返回原流
+		 * @param out 输出流
+		 * @return 限速输出流
+		 */
+		public OutputStream wrap(OutputStream out) {
+			return isEnabled() ? new ThrottledOutputStream(out, this) : out;
+		}
+
+		@Override
+		public void close() {
+			if (!closed && priority == TransferPriority.INTERACTIVE) {
+				activeInteractive.decrementAndGet();
+			}
+			closed = true;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.scenetec.ftp.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务器熔断器
+ * 连续失败达到阈值后断开，断开期间不再向该服务器分配连接，
+ * 由后台探测成功后重新闭合。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CircuitBreaker {
+
+	private final int failureThreshold;
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile boolean open;
+
+	public CircuitBreaker(int failureThreshold) {
+		this.failureThreshold = Math.max(failureThreshold, 1);
+	}
+
+	/**
+	 * 是否已断开
+	 * @return 断开返回true
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * 记录一次成功，清零失败计数并闭合
+	 */
+	public void recordSuccess() {
+		failures.set(0);
+		open = false;
+	}
+
+	/**
+	 * 记录一次失败
+	 * @return 本次失败导致断开时返回true
+	 */
+	public boolean recordFailure() {
+		if (failures.incrementAndGet() >= failureThreshold && !open) {
+			open = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 连续失败次数
+	 * @return 次数
+	 */
+	public int getFailures() {
+		return failures.get();
+	}
+}
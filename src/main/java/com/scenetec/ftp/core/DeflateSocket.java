@@ -0,0 +1,175 @@
+package com.scenetec.ftp.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * MODE Z数据连接，读写的数据经zlib解压/压缩
+ * 不暴露底层通道，零拷贝传输检测到通道为null时改为经缓冲区读写。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class DeflateSocket extends Socket {
+
+	/**
+	 * 压缩传输时的缓冲区大小
+	 */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Socket socket;
+	/**
+	 * 保护流的延迟创建，不使用synchronized以免虚拟线程被固定在载体线程上
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	private InputStream input;
+	private OutputStream output;
+
+	/**
+	 * @param socket 已建立的数据连接
+	 */
+	public DeflateSocket(Socket socket) {
+		this.socket = socket;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		lock.lock();
+		try {
+			if (input == null) {
+				Inflater inflater = new Inflater();
+				input = new InflaterInputStream(socket.getInputStream(), inflater, BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							inflater.end();
+						}
+					}
+				};
+			}
+			return input;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		lock.lock();
+		try {
+			if (output == null) {
+				Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+				output = new DeflaterOutputStream(socket.getOutputStream(), deflater, BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							deflater.end();
+						}
+					}
+				};
+			}
+			return output;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public SocketChannel getChannel() {
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return socket.isClosed();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return socket.isConnected();
+	}
+
+	@Override
+	public InetAddress getInetAddress() {
+		return socket.getInetAddress();
+	}
+
+	@Override
+	public InetAddress getLocalAddress() {
+		return socket.getLocalAddress();
+	}
+
+	@Override
+	public int getPort() {
+		return socket.getPort();
+	}
+
+	@Override
+	public int getLocalPort() {
+		return socket.getLocalPort();
+	}
+
+	@Override
+	public void setSoTimeout(int timeout) throws SocketException {
+		socket.setSoTimeout(timeout);
+	}
+
+	@Override
+	public int getSoTimeout() throws SocketException {
+		return socket.getSoTimeout();
+	}
+
+	@Override
+	public void setReceiveBufferSize(int size) throws SocketException {
+		socket.setReceiveBufferSize(size);
+	}
+
+	@Override
+	public void setSendBufferSize(int size) throws SocketException {
+		socket.setSendBufferSize(size);
+	}
+
+	@Override
+	public void setTcpNoDelay(boolean on) throws SocketException {
+		socket.setTcpNoDelay(on);
+	}
+
+	@Override
+	public void setKeepAlive(boolean on) throws SocketException {
+		socket.setKeepAlive(on);
+	}
+
+	@Override
+	public void shutdownInput() throws IOException {
+		socket.shutdownInput();
+	}
+
+	@Override
+	public void shutdownOutput() throws IOException {
+		socket.shutdownOutput();
+	}
+
+	@Override
+	public String toString() {
+		return "Deflate" + socket;
+	}
+}
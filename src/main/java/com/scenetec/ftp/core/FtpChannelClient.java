@@ -0,0 +1,491 @@
+package com.scenetec.ftp.core;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPReply;
+
+import javax.net.ServerSocketFactory;
+import javax.net.SocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支持零拷贝传输的FTP客户端
+ * 数据连接使用基于SocketChannel的socket。上传通过FileChannel.transferTo由内核完成拷贝（Linux上为sendfile）；
+ * 下载时socket到文件没有内核直接拷贝的路径（Java 8的transferFrom经8K临时缓冲区中转），
+ * 改为读入可配置大小的直接缓冲区后按位置写入文件，不经过堆内缓冲区。控制连接不受影响。
+ * 通道读写不受SO_TIMEOUT限制，传输时数据连接切换为非阻塞模式，以Selector等待并应用数据超时。
+ * 服务器支持MODE Z时可开启压缩传输，数据连接以zlib格式压缩，此时零拷贝传输改为经缓冲区读写。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class FtpChannelClient extends FTPClient {
+
+	private static final SocketFactory CHANNEL_SOCKET_FACTORY = new ChannelSocketFactory();
+	private static final ServerSocketFactory CHANNEL_SERVER_SOCKET_FACTORY = new ChannelServerSocketFactory();
+
+	/**
+	 * 批量改名时一次连续发送的最大组数，避免应答填满缓冲区
+	 */
+	private static final int PIPELINE_DEPTH = 64;
+
+	/**
+	 * 控制连接应答读取缓冲区大小
+	 */
+	private static final int CONTROL_BUFFER_SIZE = 1024;
+
+	/**
+	 * 每次transferTo调用传输的最大字节数
+	 */
+	private long chunkSize = 8L * 1024 * 1024;
+
+	/**
+	 * 下载及压缩传输时使用的直接缓冲区大小
+	 */
+	private int directBufferSize = 256 * 1024;
+
+	/**
+	 * 直接缓冲区，首次传输时创建，同一连接的传输依次复用
+	 */
+	private ByteBuffer directBuffer;
+
+	/**
+	 * 是否已进入MODE Z压缩传输模式
+	 */
+	private boolean deflateMode;
+
+	public void setChunkSize(long chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public void setDirectBufferSize(int directBufferSize) {
+		this.directBufferSize = directBufferSize;
+		this.directBuffer = null;
+	}
+
+	/**
+	 * 服务器在FEAT中声明支持MODE Z时切换为压缩传输模式
+	 * 之后的所有数据连接(含目录列表)均以zlib格式压缩。
+	 * @return 切换成功返回true，服务器不支持时返回false并保持流模式
+	 * @throws IOException 通信异常
+	 */
+	public boolean enterDeflateMode() throws IOException {
+		if (deflateMode) {
+			return true;
+		}
+		if (!hasFeature("MODE", "Z")) {
+			return false;
+		}
+		deflateMode = FTPReply.isPositiveCompletion(sendCommand("MODE", "Z"));
+		return deflateMode;
+	}
+
+	public boolean isDeflateMode() {
+		return deflateMode;
+	}
+
+	/**
+	 * 连接建立后替换控制连接的应答读取器
+	 * commons-net的CRLFLineReader在synchronized块内阻塞读取应答，虚拟线程会被固定在载体线程上。
+	 * 欢迎应答已读完，服务器在发送命令前不会再发送数据，此时替换不会丢失缓冲的内容。
+	 */
+	@Override
+	protected void _connectAction_() throws IOException {
+		super._connectAction_();
+		_controlInput_ = new ControlReader(new InputStreamReader(_input_, getControlEncoding()));
+	}
+
+	@Override
+	protected Socket _openDataConnection_(String command, String arg) throws IOException {
+		Socket socket = super._openDataConnection_(command, arg);
+		return socket != null && deflateMode ? new DeflateSocket(socket) : socket;
+	}
+
+	/**
+	 * 打开基于SocketChannel的数据连接
+	 * @param command FTP命令
+	 * @param arg 命令参数
+	 * @return 数据连接，服务器拒绝时返回null
+	 * @throws IOException 通信异常
+	 */
+	public Socket openChannelDataConnection(FTPCmd command, String arg) throws IOException {
+		SocketFactory socketFactory = _socketFactory_;
+		ServerSocketFactory serverSocketFactory = _serverSocketFactory_;
+		_socketFactory_ = CHANNEL_SOCKET_FACTORY;
+		_serverSocketFactory_ = CHANNEL_SERVER_SOCKET_FACTORY;
+		try {
+			return _openDataConnection_(command, arg);
+		} finally {
+			_socketFactory_ = socketFactory;
+			_serverSocketFactory_ = serverSocketFactory;
+			setRestartOffset(0);
+		}
+	}
+
+	/**
+	 * 将本地文件的一段上传到远程文件
+	 * @param remote 远程文件
+	 * @param source 本地文件通道
+	 * @param position 本地起始位置
+	 * @param count 字节数
+	 * @return 服务器确认后返回发送的字节数，无法建立数据连接或服务器返回失败时返回-1
+	 * @throws IOException 通信异常
+	 */
+	public long storeFrom(String remote, FileChannel source, long position, long count) throws IOException {
+		Socket socket = openChannelDataConnection(FTPCmd.STOR, remote);
+		if (socket == null) {
+			return -1;
+		}
+		long sent = 0;
+		try {
+			SocketChannel channel = socket.getChannel();
+			if (channel == null) {
+				sent = copy(source, position, count, socket.getOutputStream());
+			} else {
+				sent = transferTo(source, position, count, channel, socket.getSoTimeout());
+			}
+		} finally {
+			socket.close();
+		}
+		return completePendingCommand() ? sent : -1;
+	}
+
+	/**
+	 * 从远程文件的指定偏移下载到本地文件
+	 * @param remote 远程文件
+	 * @param target 本地文件通道
+	 * @param position 起始偏移，远程与本地相同
+	 * @param maxCount 最多下载的字节数，提前结束时服务器返回426
+	 * @return 接收的字节数，无法建立数据连接或完整下载时服务器返回失败时返回-1
+	 * @throws IOException 通信异常
+	 */
+	public long retrieveTo(String remote, FileChannel target, long position, long maxCount) throws IOException {
+		setRestartOffset(position);
+		Socket socket = openChannelDataConnection(FTPCmd.RETR, remote);
+		if (socket == null) {
+			return -1;
+		}
+		long received;
+		try {
+			SocketChannel channel = socket.getChannel();
+			if (channel == null) {
+				received = copy(socket.getInputStream(), target, position, maxCount);
+			} else {
+				received = transferFrom(channel, target, position, maxCount, socket.getSoTimeout());
+			}
+		} finally {
+			socket.close();
+		}
+		boolean eof = received < maxCount;
+		boolean completed = completePendingCommand();
+		return completed || !eof ? received : -1;
+	}
+
+	/**
+	 * 本地文件经sendfile发送到数据连接，发送缓冲区满时等待可写
+	 * @param timeout 数据超时(毫秒)，0表示不超时
+	 */
+	private long transferTo(FileChannel source, long position, long count, SocketChannel channel, int timeout) throws IOException {
+		channel.configureBlocking(false);
+		try (Selector selector = Selector.open()) {
+			channel.register(selector, SelectionKey.OP_WRITE);
+			long end = Math.min(position + count, source.size());
+			long sent = 0;
+			while (position + sent < end) {
+				long len = source.transferTo(position + sent, Math.min(chunkSize, end - position - sent), channel);
+				if (len > 0) {
+					sent += len;
+				} else {
+					await(selector, timeout);
+				}
+			}
+			return sent;
+		}
+	}
+
+	/**
+	 * 数据连接读入直接缓冲区后按位置写入本地文件，暂无数据时等待可读
+	 * @param timeout 数据超时(毫秒)，0表示不超时
+	 * @return 接收的字节数，小于maxCount表示数据连接已结束
+	 */
+	private long transferFrom(SocketChannel channel, FileChannel target, long position, long maxCount, int timeout) throws IOException {
+		channel.configureBlocking(false);
+		ByteBuffer buffer = directBuffer();
+		try (Selector selector = Selector.open()) {
+			channel.register(selector, SelectionKey.OP_READ);
+			long received = 0;
+			while (received < maxCount) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), maxCount - received));
+				int len = channel.read(buffer);
+				if (len < 0) {
+					break;
+				}
+				if (len == 0) {
+					await(selector, timeout);
+					continue;
+				}
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					received += target.write(buffer, position + received);
+				}
+			}
+			return received;
+		}
+	}
+
+	/**
+	 * 等待数据连接就绪
+	 * @param timeout 数据超时(毫秒)，0表示不超时
+	 * @throws SocketTimeoutException 超时未就绪
+	 * @throws InterruptedIOException 等待时线程被中断
+	 */
+	private static void await(Selector selector, int timeout) throws IOException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while (selector.select(timeout > 0 ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) : 0) == 0) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException("Interrupted while waiting for data connection");
+			}
+			if (timeout > 0 && System.nanoTime() - deadline >= 0) {
+				throw new SocketTimeoutException("Data connection timed out after " + timeout + " ms");
+			}
+		}
+		selector.selectedKeys().clear();
+	}
+
+	private ByteBuffer directBuffer() {
+		if (directBuffer == null) {
+			directBuffer = ByteBuffer.allocateDirect(directBufferSize);
+		}
+		return directBuffer;
+	}
+
+	/**
+	 * 数据连接没有通道(压缩传输)时经缓冲区上传，关闭输出流以结束压缩数据
+	 * 文件一侧以直接缓冲区读取，压缩流只接受数组，再经数组写出。
+	 */
+	private long copy(FileChannel source, long position, long count, OutputStream out) throws IOException {
+		ByteBuffer buffer = directBuffer();
+		byte[] array = new byte[Math.min(buffer.capacity(), DeflateSocket.BUFFER_SIZE)];
+		long sent = 0;
+		try {
+			while (sent < count) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), count - sent));
+				int len = source.read(buffer, position + sent);
+				if (len <= 0) {
+					break;
+				}
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					int n = Math.min(array.length, buffer.remaining());
+					buffer.get(array, 0, n);
+					out.write(array, 0, n);
+				}
+				sent += len;
+			}
+		} finally {
+			out.close();
+		}
+		return sent;
+	}
+
+	/**
+	 * 数据连接没有通道(压缩传输)时经缓冲区下载
+	 * 解压流只能读入数组，攒满直接缓冲区后按位置写入文件。数据超时由socket的SO_TIMEOUT控制。
+	 */
+	private long copy(InputStream in, FileChannel target, long position, long maxCount) throws IOException {
+		ByteBuffer buffer = directBuffer();
+		byte[] array = new byte[Math.min(buffer.capacity(), DeflateSocket.BUFFER_SIZE)];
+		long received = 0;
+		boolean eof = false;
+		while (!eof && received < maxCount) {
+			buffer.clear().limit((int) Math.min(buffer.capacity(), maxCount - received));
+			while (buffer.hasRemaining()) {
+				int len = in.read(array, 0, Math.min(array.length, buffer.remaining()));
+				if (len < 0) {
+					eof = true;
+					break;
+				}
+				buffer.put(array, 0, len);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				received += target.write(buffer, position + received);
+			}
+		}
+		return received;
+	}
+
+	/**
+	 * 批量改名，多组RNFR/RNTO连续发送后再依次读取应答，减少往返次数
+	 * 某组RNFR失败时服务器对其RNTO返回503，不影响其他组。
+	 * @param from 原文件名
+	 * @param to 新文件名，与原文件名一一对应
+	 * @return 每组是否改名成功
+	 * @throws IOException 通信异常
+	 */
+	public boolean[] renameAll(String[] from, String[] to) throws IOException {
+		boolean[] renamed = new boolean[from.length];
+		for (int start = 0; start < from.length; start += PIPELINE_DEPTH) {
+			int end = Math.min(start + PIPELINE_DEPTH, from.length);
+			for (int i = start; i < end; i++) {
+				writeCommand(FTPCmd.RNFR, from[i]);
+				writeCommand(FTPCmd.RNTO, to[i]);
+			}
+			_controlOutput_.flush();
+			for (int i = start; i < end; i++) {
+				boolean accepted = FTPReply.isPositiveIntermediate(getReply());
+				renamed[i] = FTPReply.isPositiveCompletion(getReply()) && accepted;
+			}
+		}
+		return renamed;
+	}
+
+	/**
+	 * 发送命令但不等待应答，应答由调用方通过{@link #getReply()}读取
+	 * 用于服务器间传输：被动方在收到数据连接前可能不返回应答。
+	 * @param command FTP命令
+	 * @param arg 命令参数
+	 * @throws IOException 通信异常
+	 */
+	public void sendCommandNoReply(FTPCmd command, String arg) throws IOException {
+		writeCommand(command, arg);
+		_controlOutput_.flush();
+	}
+
+	/**
+	 * 写入命令但不刷新，与sendCommand一样通知命令监听器，使连续发送的命令也计入延迟统计和日志
+	 */
+	private void writeCommand(FTPCmd command, String arg) throws IOException {
+		String line = command.getCommand() + " " + arg + "\r\n";
+		_controlOutput_.write(line);
+		fireCommandSent(command.getCommand(), line);
+	}
+
+	/**
+	 * 控制连接应答读取器，以CRLF分行，与CRLFLineReader行为一致但不加锁
+	 * 控制连接同一时刻只有一个线程使用。
+	 */
+	private static class ControlReader extends BufferedReader {
+
+		private final Reader reader;
+		private final char[] buffer = new char[CONTROL_BUFFER_SIZE];
+		private int position;
+		private int limit;
+
+		ControlReader(Reader reader) {
+			super(reader, 1);
+			this.reader = reader;
+		}
+
+		@Override
+		public String readLine() throws IOException {
+			StringBuilder line = new StringBuilder();
+			boolean previousCr = false;
+			while (true) {
+				if (position == limit) {
+					position = 0;
+					limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+					if (limit == 0) {
+						if (previousCr) {
+							line.append('\r');
+						}
+						return line.length() == 0 ? null : line.toString();
+					}
+				}
+				char ch = buffer[position++];
+				if (previousCr) {
+					if (ch == '\n') {
+						return line.toString();
+					}
+					line.append('\r');
+				}
+				previousCr = ch == '\r';
+				if (!previousCr) {
+					line.append(ch);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 创建基于SocketChannel的socket
+	 */
+	private static class ChannelSocketFactory extends SocketFactory {
+
+		@Override
+		public Socket createSocket() throws IOException {
+			return SocketChannel.open().socket();
+		}
+
+		@Override
+		public Socket createSocket(String host, int port) throws IOException {
+			return createSocket(InetAddress.getByName(host), port);
+		}
+
+		@Override
+		public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+			return createSocket(InetAddress.getByName(host), port, localHost, localPort);
+		}
+
+		@Override
+		public Socket createSocket(InetAddress host, int port) throws IOException {
+			Socket socket = createSocket();
+			socket.connect(new InetSocketAddress(host, port));
+			return socket;
+		}
+
+		@Override
+		public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+			Socket socket = createSocket();
+			socket.bind(new InetSocketAddress(localAddress, localPort));
+			socket.connect(new InetSocketAddress(address, port));
+			return socket;
+		}
+	}
+
+	/**
+	 * 创建基于ServerSocketChannel的socket，主动模式下接受的数据连接同样带有通道
+	 */
+	private static class ChannelServerSocketFactory extends ServerSocketFactory {
+
+		@Override
+		public ServerSocket createServerSocket() throws IOException {
+			return ServerSocketChannel.open().socket();
+		}
+
+		@Override
+		public ServerSocket createServerSocket(int port) throws IOException {
+			return createServerSocket(port, 50, null);
+		}
+
+		@Override
+		public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+			return createServerSocket(port, backlog, null);
+		}
+
+		@Override
+		public ServerSocket createServerSocket(int port, int backlog, InetAddress ifAddress) throws IOException {
+			ServerSocket serverSocket = createServerSocket();
+			serverSocket.bind(new InetSocketAddress(ifAddress, port), backlog);
+			return serverSocket;
+		}
+	}
+}
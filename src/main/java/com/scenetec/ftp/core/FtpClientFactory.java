@@ -1,14 +1,24 @@
 package com.scenetec.ftp.core;
 
 import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.metrics.CommandLatencyListener;
+import com.scenetec.ftp.metrics.CompositeFtpMetricsListener;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPReply;
 import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author shendunyuan@scenetec.com
  * @date 2018/12/19
@@ -19,44 +29,117 @@ public class FtpClientFactory extends BasePooledObjectFactory<FTPClient> {
 
 	private FtpClientProperties config;
 
+	/**
+	 * 指标监听器
+	 */
+	@Getter
+	private FtpMetricsListener metricsListener = FtpMetricsListener.NOOP;
+
 	public FtpClientFactory(FtpClientProperties config) {
 		this.config = config;
 	}
 
+	/**
+	 * 注入指标监听器
+	 * @param listeners 容器中的所有指标监听器
+	 */
+	@Autowired(required = false)
+	public void setMetricsListeners(List<FtpMetricsListener> listeners) {
+		this.metricsListener = CompositeFtpMetricsListener.of(listeners);
+	}
+
+	/**
+	 * 创建连接指定服务器的工厂，共享指标监听器，其余配置与本工厂相同
+	 * @param key 服务器地址、登录用户和连接选项
+	 * @return 连接工厂
+	 */
+	public FtpClientFactory forServer(FtpServerKey key) {
+		FtpClientProperties serverConfig = new FtpClientProperties();
+		BeanUtils.copyProperties(config, serverConfig);
+		serverConfig.setHosts(null);
+		serverConfig.setHost(key.getHost());
+		serverConfig.setUsername(key.getUsername());
+		serverConfig.setPassword(key.getPassword());
+		if (key.getPort() != null) {
+			serverConfig.setPort(key.getPort());
+		}
+		if (key.getPassiveMode() != null) {
+			serverConfig.setPassiveMode(key.getPassiveMode());
+		}
+		if (key.getEncoding() != null) {
+			serverConfig.setEncoding(key.getEncoding());
+		}
+		FtpClientFactory factory = new FtpClientFactory(serverConfig);
+		factory.metricsListener = metricsListener;
+		return factory;
+	}
+
+	/**
+	 * 连接配置中的服务器并登录
+	 * @return 已登录的ftp客户端
+	 * @throws IOException 连接被拒绝、登录失败或网络异常
+	 */
 	@Override
-	public FTPClient create() {
+	public FTPClient create() throws IOException {
+		return create(new FtpEndpoint(config.getHost(), config.getPort()));
+	}
+
+	/**
+	 * 连接指定服务器并登录，失败时断开连接并抛出异常，不会返回未登录的客户端
+	 * @param endpoint 服务器地址
+	 * @return 已登录的ftp客户端
+	 * @throws IOException 连接被拒绝、登录失败或网络异常
+	 */
+	public FTPClient create(FtpEndpoint endpoint) throws IOException {
 
-		FTPClient ftpClient = new FTPClient();
+		FtpChannelClient ftpClient = new FtpChannelClient();
+		ftpClient.setChunkSize(config.getTransferChunkSize());
+		ftpClient.setDirectBufferSize(config.getDirectBufferSize());
 		ftpClient.setControlEncoding(config.getEncoding());
 		if (null != config.getConnectTimeout()) {
-			ftpClient.setConnectTimeout(config.getConnectTimeout());
+			ftpClient.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(config.getConnectTimeout()));
+		}
+		if (null != config.getDataTimeout()) {
+			ftpClient.setDataTimeout((int) TimeUnit.SECONDS.toMillis(config.getDataTimeout()));
+		}
+		if (metricsListener != FtpMetricsListener.NOOP) {
+			ftpClient.addProtocolCommandListener(new CommandLatencyListener(metricsListener));
 		}
 
 		try {
-			ftpClient.connect(config.getHost(), config.getPort());
+			ftpClient.connect(endpoint.getHost(), endpoint.getPort());
 			int replyCode = ftpClient.getReplyCode();
 			if (!FTPReply.isPositiveCompletion(replyCode)) {
-				ftpClient.disconnect();
-				log.warn("FTPServer refused connection,replyCode:{}", replyCode);
-				return null;
+				throw new IOException("FTPServer " + endpoint + " refused connection, replyCode: " + replyCode);
 			}
 
 			if (!ftpClient.login(config.getUsername(), config.getPassword())) {
-				log.warn("FTPClient login failed... username is {}; password: {}", config.getUsername(), config.getPassword());
+				throw new IOException("FTPClient login to " + endpoint + " failed, username is " + config.getUsername());
 			}
 
 			ftpClient.setBufferSize(config.getBufferSize());
+			if (config.getKeepAliveTimeout() != null && config.getKeepAliveTimeout() > 0) {
+				ftpClient.setControlKeepAliveTimeout(config.getKeepAliveTimeout());
+			}
 			ftpClient.setFileType(config.getTransferFileType());
 			if (config.isPassiveMode()) {
 				ftpClient.enterLocalPassiveMode();
 			}
+			if (config.isModeZ() && !ftpClient.enterDeflateMode()) {
+				log.debug("FTPServer {} does not support MODE Z, using stream mode.", endpoint);
+			}
+			metricsListener.onConnectionCreated();
+			return ftpClient;
 
-		} catch (Exception ex) {
-			ex.printStackTrace();
-			log.error("Failed to create FTP connection");
+		} catch (IOException ex) {
+			log.warn("Failed to create FTP connection to {}: {}", endpoint, ex.getMessage());
+			try {
+				ftpClient.disconnect();
+			} catch (IOException e) {
+				log.debug("Failed to disconnect from {}", endpoint, e);
+			}
+			throw ex;
 		}
-
-		return ftpClient;
 	}
 
 	void destroyObject(FTPClient client) {
@@ -93,6 +176,9 @@ public class FtpClientFactory extends BasePooledObjectFactory<FTPClient> {
 	 * @param client ftp对象
 	 */
 	public void close(FTPClient client) {
+		if (client.isConnected()) {
+			metricsListener.onConnectionDestroyed();
+		}
 		try {
 			if (client.isConnected()) {
 				client.logout();
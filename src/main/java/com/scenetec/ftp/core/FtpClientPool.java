@@ -3,11 +3,17 @@ package com.scenetec.ftp.core;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.pool2.BaseObjectPool;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.ObjectUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -18,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 public class FtpClientPool extends BaseObjectPool<FTPClient> {
 
 	private static final int DEFAULT_POOL_SIZE = 5;
+	private final int poolSize;
 	private final BlockingQueue<FTPClient> pool;
 	private final FtpClientFactory factory;
 
@@ -32,6 +39,7 @@ public class FtpClientPool extends BaseObjectPool<FTPClient> {
 
 	public FtpClientPool(int poolSize, FtpClientFactory factory) {
 		this.factory = factory;
+		this.poolSize = poolSize;
 		this.pool = new ArrayBlockingQueue<>(poolSize * 2);
 		initPool(poolSize);
 	}
@@ -41,13 +49,24 @@ public class FtpClientPool extends BaseObjectPool<FTPClient> {
 	 * @param maxPoolSize
 	 */
 	private void initPool(int maxPoolSize) {
+		// 并行建立连接，启动耗时约为一次连接和登录的时间
+		ExecutorService executor = Executors.newFixedThreadPool(maxPoolSize, new CustomizableThreadFactory("ftp-warmup-"));
 		try {
+			List<Future<?>> futures = new ArrayList<>();
 			for (int i = 0; i < maxPoolSize; i++) {
-				addObject();
+				futures.add(executor.submit(() -> {
+					addObject();
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
 			}
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			throw new RuntimeException("Failed to initialize FTP thread pool.");
+		} finally {
+			executor.shutdown();
 		}
 	}
 
@@ -87,7 +106,7 @@ public class FtpClientPool extends BaseObjectPool<FTPClient> {
 			long timeout = 3L;
 			if (client != null) {
 				if (client.isConnected()) {
-					if (pool.size() < DEFAULT_POOL_SIZE) {
+					if (pool.size() < poolSize) {
 						// 添加回队列
 						if (!pool.offer(client, timeout, TimeUnit.SECONDS)) {
 							factory.destroyObject(client);
@@ -134,6 +153,11 @@ public class FtpClientPool extends BaseObjectPool<FTPClient> {
 		pool.offer(factory.create(), 3, TimeUnit.SECONDS);
 	}
 
+	@Override
+	public int getNumIdle() {
+		return pool.size();
+	}
+
 	@Override
 	public void close() {
 		try {
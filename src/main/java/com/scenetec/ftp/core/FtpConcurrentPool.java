@@ -0,0 +1,842 @@
+package com.scenetec.ftp.core;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.BaseObjectPool;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁FTP连接池
+ * 借出顺序：线程本地缓存 -> 共享空闲栈 -> 新建连接 -> 等待归还（超时失败）。
+ * 线程本地缓存保存本线程最近归还的连接，同一线程反复借还时不会与其他线程竞争，虚拟线程不使用线程本地缓存；
+ * 共享空闲栈为无锁的后进先出结构，优先借出最近使用过的连接。
+ * 等待者按{@link TransferPriority}、截止时间、到达顺序排队，归还的连接移交给最紧急的等待者；
+ * 可为在线请求保留若干连接，批量请求同时借出的连接数不超过maxTotal减去保留数。
+ * 连接验证按{@link ValidationPolicy}进行，使用中发生I/O异常的连接归还时直接销毁。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class FtpConcurrentPool extends BaseObjectPool<FTPClient> implements FtpObjectPool {
+
+	/**
+	 * 线程本地缓存的最大连接数
+	 */
+	private static final int THREAD_CACHE_SIZE = 16;
+	/**
+	 * 等待者重新检查空闲栈和容量的间隔
+	 */
+	private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final FtpClientFactory factory;
+	/**
+	 * 连接的服务器，为空时使用配置中的host/port
+	 */
+	private final FtpEndpoint endpoint;
+	private final int maxTotal;
+	private final int maxIdle;
+	private final int minIdle;
+	private final long maxWaitMillis;
+	private final ValidationPolicy validationPolicy;
+	private final long validationIntervalMillis;
+	private final long keepAliveIntervalMillis;
+	private final long maxLifetimeMillis;
+	private final long maxIdleTimeMillis;
+	/**
+	 * 批量请求最多同时借出的连接数
+	 */
+	private final int maxBulkActive;
+	/**
+	 * 批量请求的名额，借出时占用，归还或销毁连接时释放
+	 */
+	private final Semaphore bulkSlots;
+
+	private final ConcurrentHashMap<FTPClient, FtpPooledClient> allClients = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedDeque<FtpPooledClient> idleStack = new ConcurrentLinkedDeque<>();
+	private final ThreadLocal<List<WeakReference<FtpPooledClient>>> threadCache = ThreadLocal.withInitial(ArrayList::new);
+	private final PriorityBlockingQueue<Waiter> waitQueue = new PriorityBlockingQueue<>();
+	private final AtomicLong waiterSequence = new AtomicLong();
+
+	private final AtomicInteger totalCount = new AtomicInteger();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	private final LongAdder createdCount = new LongAdder();
+	private final LongAdder destroyedCount = new LongAdder();
+	private final LongAdder validationsPerformed = new LongAdder();
+	private final LongAdder validationsSkipped = new LongAdder();
+	private final LongAdder validationsFailed = new LongAdder();
+
+	/**
+	 * 后台维护线程
+	 */
+	private final ScheduledExecutorService evictor;
+	/**
+	 * 维护线程由本连接池创建，关闭时一并关闭
+	 */
+	private final boolean ownsEvictor;
+	/**
+	 * 本连接池的后台维护任务
+	 */
+	private volatile ScheduledFuture<?> maintenance;
+	/**
+	 * 是否已就绪
+	 */
+	private volatile boolean ready;
+	/**
+	 * 已请求预热，此后由后台维护补足最小空闲连接
+	 */
+	private volatile boolean maintainMinIdle;
+
+	public FtpConcurrentPool(FtpClientFactory factory, FtpClientProperties config) {
+		this(factory, config, null);
+	}
+
+	public FtpConcurrentPool(FtpClientFactory factory, FtpClientProperties config, FtpEndpoint endpoint) {
+		this(factory, config, endpoint, null);
+	}
+
+	/**
+	 * @param factory 连接工厂
+	 * @param config 连接池配置
+	 * @param endpoint 连接的服务器，为空时使用配置中的host/port
+	 * @param evictor 共享的后台维护线程，为空时自行创建；共享的线程不随连接池关闭
+	 */
+	public FtpConcurrentPool(FtpClientFactory factory, FtpClientProperties config, FtpEndpoint endpoint, ScheduledExecutorService evictor) {
+		this.factory = factory;
+		this.endpoint = endpoint;
+		this.maxTotal = config.getMaxTotal();
+		this.maxIdle = config.getMaxIdle();
+		this.minIdle = Math.min(config.getMinIdle(), maxTotal);
+		this.maxWaitMillis = config.getMaxWaitMillis();
+		this.validationPolicy = config.getValidationPolicy();
+		this.validationIntervalMillis = config.getValidationIntervalMillis();
+		this.keepAliveIntervalMillis = config.getKeepAliveIntervalMillis();
+		this.maxLifetimeMillis = config.getMaxLifetimeMillis();
+		this.maxIdleTimeMillis = config.getMaxIdleTimeMillis();
+		this.maxBulkActive = maxTotal - Math.max(0, Math.min(config.getReservedConnections(), maxTotal - 1));
+		this.bulkSlots = new Semaphore(maxBulkActive, true);
+		this.ownsEvictor = evictor == null;
+		this.evictor = ownsEvictor ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ftp-pool-evictor-")) : evictor;
+		long interval = config.getMaintenanceIntervalMillis();
+		if (interval > 0) {
+			maintenance = this.evictor.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 预热连接池，并行创建连接直到达到最小空闲数
+	 * 创建失败的连接只记录日志，不影响其他连接
+	 * @param parallelism 并行创建连接的线程数
+	 * @return 预热结果，连接数达到最小空闲数时为true
+	 */
+	@Override
+	public CompletableFuture<Boolean> warmUp(int parallelism) {
+		maintainMinIdle = true;
+		int missing = minIdle - totalCount.get();
+		if (missing <= 0) {
+			ready = true;
+			return CompletableFuture.completedFuture(true);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, missing)),
+				new CustomizableThreadFactory("ftp-warmup-"));
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[missing];
+		for (int i = 0; i < missing; i++) {
+			futures[i] = CompletableFuture.runAsync(this::warmUpOne, executor);
+		}
+		return CompletableFuture.allOf(futures).handle((result, ex) -> {
+			executor.shutdown();
+			int total = totalCount.get();
+			if (total >= minIdle) {
+				ready = true;
+			} else {
+				log.warn("FTP connection pool warm-up incomplete, {} of {} connections created.", total, minIdle);
+			}
+			return ready;
+		});
+	}
+
+	private void warmUpOne() {
+		try {
+			addObject();
+		} catch (Exception ex) {
+			log.warn("Failed to create FTP connection during warm-up: {}", ex.getMessage());
+		}
+	}
+
+	/**
+	 * 是否已就绪，预热后连接数达到过最小空闲数即为就绪
+	 * @return 就绪返回true
+	 */
+	@Override
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * 客户端从池中借出一个对象，优先级取当前线程的传输优先级
+	 * @return ftp客户端
+	 * @throws Exception 创建连接失败
+	 * @throws NoSuchElementException 等待超时
+	 * @throws IllegalStateException 连接池已关闭
+	 */
+	@Override
+	public FTPClient borrowObject() throws Exception, NoSuchElementException, IllegalStateException {
+		return borrowObject(TransferPriority.current(), maxWaitMillis);
+	}
+
+	/**
+	 * 按指定优先级和最长等待时间借出连接
+	 * 同一优先级的等待者中截止时间早的先得到归还的连接。
+	 * @param priority 优先级
+	 * @param maxWaitMillis 最长等待时间
+	 * @return ftp客户端
+	 * @throws Exception 创建连接失败
+	 * @throws NoSuchElementException 等待超时
+	 * @throws IllegalStateException 连接池已关闭
+	 */
+	@Override
+	public FTPClient borrowObject(TransferPriority priority, long maxWaitMillis) throws Exception {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			FTPClient client = doBorrow(priority, start + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+			success = true;
+			return client;
+		} finally {
+			factory.getMetricsListener().onBorrow(System.nanoTime() - start, success);
+		}
+	}
+
+	private FTPClient doBorrow(TransferPriority priority, long deadline) throws Exception {
+		assertOpen();
+		boolean bulk = priority == TransferPriority.BULK && maxBulkActive < maxTotal;
+		if (bulk) {
+			acquireBulkSlot(deadline);
+		}
+		boolean success = false;
+		try {
+			FTPClient client = borrowBefore(priority, deadline);
+			if (bulk) {
+				FtpPooledClient pooled = allClients.get(client);
+				if (pooled == null) {
+					bulkSlots.release();
+				} else {
+					pooled.markBulk();
+				}
+			}
+			success = true;
+			return client;
+		} finally {
+			if (bulk && !success) {
+				bulkSlots.release();
+			}
+		}
+	}
+
+	private FTPClient borrowBefore(TransferPriority priority, long deadline) throws Exception {
+		// 线程本地缓存，虚拟线程每个任务一个线程，不使用
+		if (!VirtualThreads.isCurrentThreadVirtual()) {
+			List<WeakReference<FtpPooledClient>> cache = threadCache.get();
+			for (int i = cache.size() - 1; i >= 0; i--) {
+				FtpPooledClient pooled = cache.remove(i).get();
+				if (pooled != null && acquire(pooled)) {
+					return activate(pooled);
+				}
+			}
+		}
+		Waiter waiter = new Waiter(priority, deadline, waiterSequence.incrementAndGet());
+		boolean queued = false;
+		waiters.incrementAndGet();
+		try {
+			while (true) {
+				// 共享空闲栈
+				FtpPooledClient pooled;
+				while ((pooled = idleStack.pollFirst()) != null) {
+					pooled.clearQueued();
+					if (acquire(pooled)) {
+						return activate(pooled);
+					}
+				}
+				// 未达到上限且没有更紧急的等待者时新建连接
+				Waiter head = waitQueue.peek();
+				if (head == null || head.compareTo(waiter) >= 0) {
+					FTPClient client = tryCreate();
+					if (client != null) {
+						return client;
+					}
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw new NoSuchElementException("Timeout waiting for idle FTP connection after "
+							+ TimeUnit.NANOSECONDS.toMillis(deadline - waiter.arrival) + "ms.");
+				}
+				if (!queued) {
+					// 入队后再检查一次空闲栈，避免错过入队前归还的连接
+					waitQueue.add(waiter);
+					queued = true;
+					continue;
+				}
+				// 等待其他线程归还
+				LockSupport.parkNanos(this, Math.min(remaining, WAIT_SLICE_NANOS));
+				pooled = waiter.take();
+				if (pooled != null) {
+					if (acquire(pooled)) {
+						return activate(pooled);
+					}
+					// 移交的连接已被后台维护取走，重新排队
+					waitQueue.add(waiter);
+				}
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				assertOpen();
+			}
+		} finally {
+			waiters.decrementAndGet();
+			if (queued) {
+				cancel(waiter);
+			}
+		}
+	}
+
+	/**
+	 * 占用一个批量请求的名额，名额用尽时等待
+	 * @throws InterruptedException 等待时被中断
+	 * @throws NoSuchElementException 等待超时
+	 */
+	private void acquireBulkSlot(long deadline) throws InterruptedException {
+		if (!bulkSlots.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+			throw new NoSuchElementException("Timeout waiting for FTP connection, " + maxBulkActive
+					+ " connections in use by bulk transfers and the rest are reserved.");
+		}
+	}
+
+	/**
+	 * 等待者离开队列，已移交但未取走的连接转交给其他等待者
+	 */
+	private void cancel(Waiter waiter) {
+		waitQueue.remove(waiter);
+		FtpPooledClient pooled = waiter.cancel();
+		if (pooled != null && pooled.getState() == FtpPooledClient.STATE_IDLE) {
+			redistribute(pooled);
+		}
+	}
+
+	/**
+	 * 返还对象到连接池中
+	 * @param client ftp客户端
+	 */
+	@Override
+	public void returnObject(FTPClient client) {
+		FtpPooledClient pooled = allClients.get(client);
+		if (pooled == null) {
+			log.warn("Returned FTP connection does not belong to this pool.");
+			factory.close(client);
+			return;
+		}
+		releaseBulkSlot(pooled);
+		if (isClosed() || pooled.isBroken() || !client.isConnected() || idleCount.get() >= maxIdle
+				|| isExpired(pooled, System.currentTimeMillis())) {
+			invalidateObject(client);
+			return;
+		}
+		pooled.touch();
+		release(pooled);
+	}
+
+	/**
+	 * 标记连接已损坏，归还时销毁而不是放回池中
+	 * @param client ftp客户端
+	 */
+	@Override
+	public void markBroken(FTPClient client) {
+		FtpPooledClient pooled = allClients.get(client);
+		if (pooled != null) {
+			pooled.markBroken();
+		}
+	}
+
+	/**
+	 * 将借出状态的连接放回空闲栈，有等待者时直接移交
+	 */
+	private void release(FtpPooledClient pooled) {
+		if (!pooled.compareAndSet(FtpPooledClient.STATE_IN_USE, FtpPooledClient.STATE_IDLE)) {
+			return;
+		}
+		idleCount.incrementAndGet();
+		if (handOff(pooled)) {
+			return;
+		}
+		if (!VirtualThreads.isCurrentThreadVirtual()) {
+			List<WeakReference<FtpPooledClient>> cache = threadCache.get();
+			if (cache.size() < THREAD_CACHE_SIZE) {
+				cache.add(new WeakReference<>(pooled));
+			}
+		}
+		if (pooled.markQueued()) {
+			idleStack.offerFirst(pooled);
+		}
+	}
+
+	/**
+	 * 后台维护占用的连接放回空闲状态，有等待者时直接移交
+	 * 仍在空闲栈中的连接保持原位置，不在栈中的放到栈底，不进入维护线程的缓存
+	 */
+	private void restore(FtpPooledClient pooled) {
+		if (!pooled.compareAndSet(FtpPooledClient.STATE_IN_USE, FtpPooledClient.STATE_IDLE)) {
+			return;
+		}
+		idleCount.incrementAndGet();
+		if (!handOff(pooled) && pooled.markQueued()) {
+			idleStack.offerLast(pooled);
+		}
+	}
+
+	/**
+	 * 空闲连接移交给等待者，没有等待者时放回空闲栈
+	 */
+	private void redistribute(FtpPooledClient pooled) {
+		if (!handOff(pooled) && pooled.markQueued()) {
+			idleStack.offerFirst(pooled);
+		}
+	}
+
+	/**
+	 * 将空闲连接移交给最紧急的等待者
+	 * @return 已移交或连接已被取走返回true，没有等待者返回false
+	 */
+	private boolean handOff(FtpPooledClient pooled) {
+		Waiter waiter;
+		while ((waiter = waitQueue.poll()) != null) {
+			if (pooled.getState() != FtpPooledClient.STATE_IDLE) {
+				// 连接已被其他线程取走，等待者放回队列
+				waitQueue.add(waiter);
+				return true;
+			}
+			if (waiter.offer(pooled)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 归还批量请求借出的连接时释放名额
+	 */
+	private void releaseBulkSlot(FtpPooledClient pooled) {
+		if (pooled.clearBulk()) {
+			bulkSlots.release();
+		}
+	}
+
+	/**
+	 * 移除无效的对象
+	 * @param client ftp客户端
+	 */
+	@Override
+	public void invalidateObject(FTPClient client) {
+		FtpPooledClient pooled = allClients.remove(client);
+		if (pooled != null) {
+			releaseBulkSlot(pooled);
+			int state = pooled.getState();
+			pooled.setState(FtpPooledClient.STATE_REMOVED);
+			if (state == FtpPooledClient.STATE_IDLE) {
+				idleCount.decrementAndGet();
+			}
+			totalCount.decrementAndGet();
+			destroyedCount.increment();
+			// 容量空出，唤醒最紧急的等待者新建连接
+			Waiter head = waitQueue.peek();
+			if (head != null) {
+				LockSupport.unpark(head.thread);
+			}
+		}
+		factory.destroyObject(client);
+	}
+
+	/**
+	 * 增加一个新的空闲连接
+	 * @throws Exception 创建失败
+	 */
+	@Override
+	public void addObject() throws Exception {
+		assertOpen();
+		FTPClient client = tryCreate();
+		if (client != null) {
+			returnObject(client);
+		}
+	}
+
+	@Override
+	public int getNumIdle() {
+		return idleCount.get();
+	}
+
+	@Override
+	public int getNumActive() {
+		return totalCount.get() - idleCount.get();
+	}
+
+	/**
+	 * 等待借出的线程数
+	 * @return 线程数
+	 */
+	public int getNumWaiters() {
+		return waiters.get();
+	}
+
+	/**
+	 * 批量请求借出中的连接数
+	 * @return 连接数
+	 */
+	public int getNumBulkActive() {
+		return maxBulkActive - bulkSlots.availablePermits();
+	}
+
+	/**
+	 * 已执行的验证次数
+	 * @return 次数
+	 */
+	public long getValidationsPerformed() {
+		return validationsPerformed.sum();
+	}
+
+	/**
+	 * 因验证间隔内使用过而跳过的验证次数
+	 * @return 次数
+	 */
+	public long getValidationsSkipped() {
+		return validationsSkipped.sum();
+	}
+
+	/**
+	 * 验证失败的次数
+	 * @return 次数
+	 */
+	public long getValidationsFailed() {
+		return validationsFailed.sum();
+	}
+
+	/**
+	 * 连接池状态快照
+	 * @return 状态
+	 */
+	@Override
+	public FtpPoolStats getStats() {
+		return FtpPoolStats.builder()
+				.active(getNumActive())
+				.idle(getNumIdle())
+				.waiting(getNumWaiters())
+				.created(createdCount.sum())
+				.destroyed(destroyedCount.sum())
+				.validationsPerformed(getValidationsPerformed())
+				.validationsSkipped(getValidationsSkipped())
+				.validationsFailed(getValidationsFailed())
+				.build();
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		if (maintenance != null) {
+			maintenance.cancel(false);
+		}
+		if (ownsEvictor) {
+			evictor.shutdownNow();
+		}
+		clear();
+	}
+
+	/**
+	 * 销毁所有空闲连接，借出中的连接不受影响
+	 */
+	@Override
+	public void clear() {
+		FtpPooledClient pooled;
+		while ((pooled = idleStack.pollFirst()) != null) {
+			if (acquire(pooled)) {
+				invalidateObject(pooled.getClient());
+			}
+		}
+	}
+
+	private boolean acquire(FtpPooledClient pooled) {
+		if (pooled.compareAndSet(FtpPooledClient.STATE_IDLE, FtpPooledClient.STATE_IN_USE)) {
+			idleCount.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 借出前按验证策略验证连接，无效时销毁并新建
+	 */
+	private FTPClient activate(FtpPooledClient pooled) throws Exception {
+		FTPClient client = pooled.getClient();
+		if (!needsValidation(pooled) || validate(pooled)) {
+			return client;
+		}
+		invalidateObject(client);
+		client = tryCreate();
+		if (client == null) {
+			throw new NoSuchElementException("Unable to replace invalid FTP connection.");
+		}
+		return client;
+	}
+
+	private boolean needsValidation(FtpPooledClient pooled) {
+		switch (validationPolicy) {
+			case ALWAYS:
+				return true;
+			case IDLE_TIME:
+				if (System.currentTimeMillis() - pooled.getLastActiveTime() > validationIntervalMillis) {
+					return true;
+				}
+				break;
+			default:
+				break;
+		}
+		validationsSkipped.increment();
+		return false;
+	}
+
+	private boolean validate(FtpPooledClient pooled) {
+		validationsPerformed.increment();
+		if (factory.validateObject(factory.wrap(pooled.getClient()))) {
+			pooled.markChecked();
+			return true;
+		}
+		validationsFailed.increment();
+		return false;
+	}
+
+	/**
+	 * 后台维护，只处理空闲连接，借出中的连接不受影响
+	 * 1. 超过最长存活时间的连接销毁并新建替换；
+	 * 2. 超出最小空闲数且空闲超时的连接销毁；
+	 * 3. 超过保活间隔（或BACKGROUND策略的验证间隔）未确认可用的连接发送NOOP，失败时替换；
+	 * 4. 预热后连接数低于最小空闲数时补足。
+	 * 先判断再占用，不需要处理的连接不占用也不归还，空闲栈顺序和线程缓存保持不变
+	 */
+	private void maintain() {
+		try {
+			long now = System.currentTimeMillis();
+			for (FtpPooledClient pooled : allClients.values()) {
+				if (isClosed()) {
+					break;
+				}
+				if (pooled.getState() != FtpPooledClient.STATE_IDLE || !needsMaintenance(pooled, now)
+						|| !acquire(pooled)) {
+					continue;
+				}
+				// 占用后重新判断，期间连接可能已被借出并归还
+				if (isExpired(pooled, now)) {
+					replace(pooled);
+				} else if (isIdleTimeout(pooled, now)) {
+					invalidateObject(pooled.getClient());
+				} else if (needsKeepAlive(pooled, now)) {
+					if (validate(pooled)) {
+						restore(pooled);
+					} else {
+						replace(pooled);
+					}
+				} else {
+					restore(pooled);
+				}
+			}
+			fillMinIdle();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("Failed to maintain FTP connection pool.");
+		}
+	}
+
+	/**
+	 * 连接是否已超过最长存活时间
+	 * 按连接错开最多2.5%的存活时间，避免同时创建的连接同时到期
+	 */
+	private boolean isExpired(FtpPooledClient pooled, long now) {
+		if (maxLifetimeMillis <= 0) {
+			return false;
+		}
+		long variance = System.identityHashCode(pooled) % (maxLifetimeMillis / 40 + 1);
+		return now - pooled.getCreateTime() > maxLifetimeMillis - variance;
+	}
+
+	private boolean needsMaintenance(FtpPooledClient pooled, long now) {
+		return isExpired(pooled, now) || isIdleTimeout(pooled, now) || needsKeepAlive(pooled, now);
+	}
+
+	/**
+	 * 超出最小空闲数且空闲超时
+	 */
+	private boolean isIdleTimeout(FtpPooledClient pooled, long now) {
+		return maxIdleTimeMillis > 0 && now - pooled.getLastUsedTime() > maxIdleTimeMillis
+				&& totalCount.get() > minIdle;
+	}
+
+	private boolean needsKeepAlive(FtpPooledClient pooled, long now) {
+		long idle = now - pooled.getLastActiveTime();
+		if (keepAliveIntervalMillis > 0 && idle > keepAliveIntervalMillis) {
+			return true;
+		}
+		return validationPolicy == ValidationPolicy.BACKGROUND && idle > validationIntervalMillis;
+	}
+
+	/**
+	 * 销毁空闲连接并新建一个替换，新建失败时由补足最小空闲连接重试
+	 */
+	private void replace(FtpPooledClient pooled) {
+		invalidateObject(pooled.getClient());
+		try {
+			addObject();
+		} catch (Exception ex) {
+			log.warn("Failed to replace FTP connection: {}", ex.getMessage());
+		}
+	}
+
+	/**
+	 * 补足最小空闲连接
+	 */
+	private void fillMinIdle() {
+		if (!maintainMinIdle) {
+			return;
+		}
+		while (!isClosed() && totalCount.get() < minIdle) {
+			try {
+				addObject();
+			} catch (Exception ex) {
+				log.warn("Failed to refill FTP connection pool: {}", ex.getMessage());
+				return;
+			}
+		}
+		if (totalCount.get() >= minIdle) {
+			ready = true;
+		}
+	}
+
+	/**
+	 * 在不超过最大连接数时新建连接
+	 * @return 新连接，已达上限时返回null
+	 */
+	private FTPClient tryCreate() throws Exception {
+		while (true) {
+			int count = totalCount.get();
+			if (count >= maxTotal) {
+				return null;
+			}
+			if (totalCount.compareAndSet(count, count + 1)) {
+				break;
+			}
+		}
+		FTPClient client;
+		try {
+			client = endpoint == null ? factory.create() : factory.create(endpoint);
+		} catch (Exception ex) {
+			totalCount.decrementAndGet();
+			throw ex;
+		}
+		if (client == null || !client.isConnected()) {
+			totalCount.decrementAndGet();
+			if (client != null) {
+				factory.close(client);
+			}
+			throw new IllegalStateException("Failed to create FTP connection.");
+		}
+		allClients.put(client, new FtpPooledClient(client));
+		createdCount.increment();
+		return client;
+	}
+
+	/**
+	 * 等待归还连接的借出请求，按优先级、截止时间、到达顺序排序
+	 */
+	private static final class Waiter implements Comparable<Waiter> {
+
+		private static final Object CANCELLED = new Object();
+
+		private final Thread thread = Thread.currentThread();
+		private final TransferPriority priority;
+		private final long deadline;
+		private final long sequence;
+		private final long arrival = System.nanoTime();
+		/**
+		 * 为null时等待中，移交后为连接，离开后为CANCELLED
+		 */
+		private final AtomicReference<Object> slot = new AtomicReference<>();
+
+		Waiter(TransferPriority priority, long deadline, long sequence) {
+			this.priority = priority;
+			this.deadline = deadline;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * 移交连接并唤醒等待者
+		 * @return 等待者已离开时返回false
+		 */
+		boolean offer(FtpPooledClient pooled) {
+			if (slot.compareAndSet(null, pooled)) {
+				LockSupport.unpark(thread);
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * 取走移交的连接
+		 * @return 连接，没有时返回null
+		 */
+		FtpPooledClient take() {
+			Object value = slot.get();
+			if (value instanceof FtpPooledClient && slot.compareAndSet(value, null)) {
+				return (FtpPooledClient) value;
+			}
+			return null;
+		}
+
+		/**
+		 * 离开等待
+		 * @return 离开前已移交但未取走的连接
+		 */
+		FtpPooledClient cancel() {
+			Object value = slot.getAndSet(CANCELLED);
+			return value instanceof FtpPooledClient ? (FtpPooledClient) value : null;
+		}
+
+		@Override
+		public int compareTo(Waiter other) {
+			if (priority != other.priority) {
+				return priority.compareTo(other.priority);
+			}
+			if (deadline != other.deadline) {
+				return deadline - other.deadline < 0 ? -1 : 1;
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
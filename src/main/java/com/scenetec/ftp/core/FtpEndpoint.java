@@ -0,0 +1,47 @@
+package com.scenetec.ftp.core;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * FTP服务器地址
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@EqualsAndHashCode
+public final class FtpEndpoint {
+
+	private final String host;
+	private final int port;
+
+	public FtpEndpoint(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * 解析host:port格式的地址
+	 * @param address 地址，可省略端口
+	 * @param defaultPort 省略端口时使用的端口
+	 * @return 服务器地址
+	 */
+	public static FtpEndpoint parse(String address, int defaultPort) {
+		String value = StringUtils.trimToEmpty(address);
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("FTP address is empty.");
+		}
+		int index = value.lastIndexOf(':');
+		if (index < 0) {
+			return new FtpEndpoint(value, defaultPort);
+		}
+		return new FtpEndpoint(value.substring(0, index), Integer.parseInt(value.substring(index + 1)));
+	}
+
+	@Override
+	public String toString() {
+		return host + ":" + port;
+	}
+}
@@ -0,0 +1,398 @@
+package com.scenetec.ftp.core;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.KeyedObjectPool;
+import org.springframework.beans.BeanUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 多服务器连接池，以服务器地址、登录用户和连接选项为键
+ * 每个键一个{@link FtpConcurrentPool}，借出时先获取该键的许可（每个服务器的连接上限），
+ * 再获取全局公平许可（所有服务器合计的借出上限，按请求先后分配，避免繁忙的服务器占满全局容量）。
+ * 键数超过上限时淘汰最久未使用且没有借出连接的键，长时间未使用的键由后台线程关闭。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class FtpKeyedPool implements KeyedObjectPool<FtpServerKey, FTPClient> {
+
+	private final FtpClientFactory factory;
+	/**
+	 * 每个键的连接池配置
+	 */
+	private final FtpClientProperties keyConfig;
+	private final int maxTotalPerKey;
+	private final int maxKeys;
+	private final long maxWaitMillis;
+	private final long keyIdleTimeoutMillis;
+
+	/**
+	 * 全局借出许可，公平模式
+	 */
+	private final Semaphore globalPermits;
+	private final ConcurrentHashMap<FtpServerKey, KeyEntry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * 后台维护线程，同时供各键的连接池使用
+	 */
+	private final ScheduledExecutorService evictor;
+	private volatile Consumer<FtpServerKey> evictionListener = key -> { };
+	private volatile boolean closed;
+
+	public FtpKeyedPool(FtpClientFactory factory, FtpClientProperties config) {
+		this.factory = factory;
+		this.maxTotalPerKey = config.getMaxTotalPerKey();
+		this.maxKeys = config.getMaxKeys();
+		this.maxWaitMillis = config.getMaxWaitMillis();
+		this.keyIdleTimeoutMillis = config.getKeyIdleTimeoutMillis();
+		this.keyConfig = new FtpClientProperties();
+		BeanUtils.copyProperties(config, keyConfig);
+		keyConfig.setMaxTotal(maxTotalPerKey);
+		keyConfig.setMaxIdle(Math.min(config.getMaxIdle(), maxTotalPerKey));
+		keyConfig.setMinIdle(0);
+		this.globalPermits = new Semaphore(config.getKeyedMaxTotal(), true);
+		this.evictor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ftp-keyed-evictor-"));
+		long interval = Math.max(keyIdleTimeoutMillis / 2, 1000L);
+		evictor.scheduleWithFixedDelay(this::evictIdleKeys, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 设置键被淘汰时的回调
+	 * @param evictionListener 回调，参数为被淘汰的键
+	 */
+	public void setEvictionListener(Consumer<FtpServerKey> evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	/**
+	 * 借出指定服务器的连接
+	 * @param key 服务器
+	 * @return ftp客户端
+	 * @throws Exception 创建连接失败
+	 * @throws NoSuchElementException 等待超时
+	 * @throws IllegalStateException 连接池已关闭
+	 */
+	@Override
+	public FTPClient borrowObject(FtpServerKey key) throws Exception, NoSuchElementException, IllegalStateException {
+		return borrowObject(key, maxWaitMillis);
+	}
+
+	/**
+	 * 按指定的最长等待时间借出指定服务器的连接
+	 * @param key 服务器
+	 * @param maxWaitMillis 最长等待时间，0表示没有可用名额时立即失败
+	 * @return ftp客户端
+	 * @throws Exception 创建连接失败
+	 * @throws NoSuchElementException 等待超时
+	 * @throws IllegalStateException 连接池已关闭
+	 */
+	public FTPClient borrowObject(FtpServerKey key, long maxWaitMillis) throws Exception {
+		assertOpen();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		KeyEntry entry = acquireEntry(key);
+		boolean keyPermit = false;
+		boolean globalPermit = false;
+		try {
+			if (!entry.permits.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+				throw new NoSuchElementException("Timeout waiting for FTP connection to " + key + " after " + maxWaitMillis + "ms.");
+			}
+			keyPermit = true;
+			if (!globalPermits.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+				throw new NoSuchElementException("Timeout waiting for global FTP connection capacity after " + maxWaitMillis + "ms.");
+			}
+			globalPermit = true;
+			return entry.pool.borrowObject();
+		} catch (Exception ex) {
+			if (globalPermit) {
+				globalPermits.release();
+			}
+			if (keyPermit) {
+				entry.permits.release();
+			}
+			entry.leave();
+			throw ex;
+		}
+	}
+
+	@Override
+	public void returnObject(FtpServerKey key, FTPClient client) {
+		KeyEntry entry = entries.get(key);
+		if (entry == null) {
+			factory.destroyObject(client);
+			return;
+		}
+		try {
+			entry.pool.returnObject(client);
+		} finally {
+			release(entry);
+		}
+	}
+
+	@Override
+	public void invalidateObject(FtpServerKey key, FTPClient client) {
+		KeyEntry entry = entries.get(key);
+		if (entry == null) {
+			factory.destroyObject(client);
+			return;
+		}
+		try {
+			entry.pool.invalidateObject(client);
+		} finally {
+			release(entry);
+		}
+	}
+
+	/**
+	 * 标记借出的连接已损坏，归还时直接销毁
+	 * @param key 服务器
+	 * @param client ftp客户端
+	 */
+	public void markBroken(FtpServerKey key, FTPClient client) {
+		KeyEntry entry = entries.get(key);
+		if (entry != null) {
+			entry.pool.markBroken(client);
+		}
+	}
+
+	@Override
+	public void addObject(FtpServerKey key) throws Exception {
+		assertOpen();
+		KeyEntry entry = acquireEntry(key);
+		try {
+			entry.pool.addObject();
+		} finally {
+			entry.leave();
+		}
+	}
+
+	@Override
+	public int getNumIdle(FtpServerKey key) {
+		KeyEntry entry = entries.get(key);
+		return entry == null ? 0 : entry.pool.getNumIdle();
+	}
+
+	@Override
+	public int getNumActive(FtpServerKey key) {
+		KeyEntry entry = entries.get(key);
+		return entry == null ? 0 : entry.pool.getNumActive();
+	}
+
+	@Override
+	public int getNumIdle() {
+		int idle = 0;
+		for (KeyEntry entry : entries.values()) {
+			idle += entry.pool.getNumIdle();
+		}
+		return idle;
+	}
+
+	@Override
+	public int getNumActive() {
+		int active = 0;
+		for (KeyEntry entry : entries.values()) {
+			active += entry.pool.getNumActive();
+		}
+		return active;
+	}
+
+	/**
+	 * 当前保留连接池的键数
+	 * @return 键数
+	 */
+	public int getNumKeys() {
+		return entries.size();
+	}
+
+	/**
+	 * 指定服务器的连接池状态
+	 * @param key 服务器
+	 * @return 状态，没有该服务器的连接池时返回null
+	 */
+	public FtpPoolStats getStats(FtpServerKey key) {
+		KeyEntry entry = entries.get(key);
+		return entry == null ? null : entry.pool.getStats();
+	}
+
+	/**
+	 * 销毁所有空闲连接
+	 */
+	@Override
+	public void clear() {
+		for (KeyEntry entry : entries.values()) {
+			entry.pool.clear();
+		}
+	}
+
+	/**
+	 * 销毁指定服务器的空闲连接
+	 * @param key 服务器
+	 */
+	@Override
+	public void clear(FtpServerKey key) {
+		KeyEntry entry = entries.get(key);
+		if (entry != null) {
+			entry.pool.clear();
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		evictor.shutdownNow();
+		for (KeyEntry entry : entries.values()) {
+			entry.pool.close();
+		}
+		entries.clear();
+	}
+
+	private void assertOpen() {
+		if (closed) {
+			throw new IllegalStateException("Pool not open");
+		}
+	}
+
+	/**
+	 * 获取键对应的连接池并登记使用者，登记后不会被淘汰
+	 */
+	private KeyEntry acquireEntry(FtpServerKey key) {
+		while (true) {
+			KeyEntry entry = entries.computeIfAbsent(key, this::createEntry);
+			if (entry.enter()) {
+				entry.lastUsed = System.currentTimeMillis();
+				if (entries.size() > maxKeys) {
+					evictLeastRecentlyUsed();
+				}
+				return entry;
+			}
+			// 已被淘汰但尚未移除
+			entries.remove(key, entry);
+		}
+	}
+
+	private KeyEntry createEntry(FtpServerKey key) {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory.forServer(key), keyConfig, null, evictor);
+		return new KeyEntry(key, pool, new Semaphore(maxTotalPerKey, true));
+	}
+
+	private void release(KeyEntry entry) {
+		globalPermits.release();
+		entry.permits.release();
+		entry.lastUsed = System.currentTimeMillis();
+		entry.leave();
+	}
+
+	/**
+	 * 淘汰最久未使用且没有使用者的键，所有键都在使用时暂时超出上限
+	 */
+	private void evictLeastRecentlyUsed() {
+		while (entries.size() > maxKeys) {
+			KeyEntry oldest = null;
+			for (KeyEntry entry : entries.values()) {
+				if (entry.isUnused() && (oldest == null || entry.lastUsed < oldest.lastUsed)) {
+					oldest = entry;
+				}
+			}
+			if (oldest == null) {
+				log.debug("All {} FTP server pools are in use, key limit {} exceeded.", entries.size(), maxKeys);
+				return;
+			}
+			if (oldest.retire()) {
+				evict(oldest);
+			}
+		}
+	}
+
+	/**
+	 * 关闭超过空闲时间未使用的键
+	 */
+	private void evictIdleKeys() {
+		try {
+			long now = System.currentTimeMillis();
+			for (KeyEntry entry : entries.values()) {
+				if (now - entry.lastUsed > keyIdleTimeoutMillis && entry.retire()) {
+					evict(entry);
+				}
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("Failed to evict idle FTP server pools.");
+		}
+	}
+
+	private void evict(KeyEntry entry) {
+		entries.remove(entry.key, entry);
+		entry.pool.close();
+		evictionListener.accept(entry.key);
+		log.debug("Evicted FTP server pool {}.", entry.key);
+	}
+
+	private static long remaining(long deadline) {
+		return Math.max(0, deadline - System.nanoTime());
+	}
+
+	/**
+	 * 一个键的连接池
+	 */
+	private static final class KeyEntry {
+
+		/**
+		 * 使用者计数为该值时表示已淘汰
+		 */
+		private static final int RETIRED = Integer.MIN_VALUE;
+
+		private final FtpServerKey key;
+		private final FtpConcurrentPool pool;
+		/**
+		 * 该键的借出许可
+		 */
+		private final Semaphore permits;
+		/**
+		 * 借出中和等待中的使用者数
+		 */
+		private final AtomicInteger users = new AtomicInteger();
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		KeyEntry(FtpServerKey key, FtpConcurrentPool pool, Semaphore permits) {
+			this.key = key;
+			this.pool = pool;
+			this.permits = permits;
+		}
+
+		boolean enter() {
+			while (true) {
+				int current = users.get();
+				if (current == RETIRED) {
+					return false;
+				}
+				if (users.compareAndSet(current, current + 1)) {
+					return true;
+				}
+			}
+		}
+
+		void leave() {
+			users.decrementAndGet();
+		}
+
+		boolean isUnused() {
+			return users.get() == 0;
+		}
+
+		boolean retire() {
+			return users.compareAndSet(0, RETIRED);
+		}
+	}
+}
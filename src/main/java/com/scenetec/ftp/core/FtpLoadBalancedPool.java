@@ -0,0 +1,434 @@
+package com.scenetec.ftp.core;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.BaseObjectPool;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多服务器负载均衡连接池
+ * 每个服务器一个{@link FtpConcurrentPool}，借出时按{@link LoadBalancePolicy}选择服务器，
+ * 连接或登录失败时换下一个服务器。服务器连续失败达到阈值后熔断，
+ * 熔断期间不再分配连接，由后台探测重新连接成功后恢复。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class FtpLoadBalancedPool extends BaseObjectPool<FTPClient> implements FtpObjectPool {
+
+	/**
+	 * 时延滑动平均中新样本的权重
+	 */
+	private static final double LATENCY_ALPHA = 0.2;
+
+	private final FtpClientFactory factory;
+	private final LoadBalancePolicy policy;
+	private final long maxWaitMillis;
+	private final List<Node> nodes;
+	/**
+	 * 借出的连接所属的服务器
+	 */
+	private final ConcurrentHashMap<FTPClient, Node> owners = new ConcurrentHashMap<>();
+	/**
+	 * 轮询起点，负载相同时依次选择不同的服务器
+	 */
+	private final AtomicInteger cursor = new AtomicInteger();
+
+	/**
+	 * 后台探测线程
+	 */
+	private final ScheduledExecutorService prober;
+
+	public FtpLoadBalancedPool(FtpClientFactory factory, FtpClientProperties config) {
+		if (config.getHosts() == null || config.getHosts().isEmpty()) {
+			throw new IllegalArgumentException("No FTP hosts configured.");
+		}
+		this.factory = factory;
+		this.policy = config.getLoadBalancePolicy();
+		this.maxWaitMillis = config.getMaxWaitMillis();
+		List<Node> list = new ArrayList<>();
+		for (String address : config.getHosts()) {
+			FtpEndpoint endpoint = FtpEndpoint.parse(address, config.getPort());
+			list.add(new Node(endpoint, new FtpConcurrentPool(factory, config, endpoint),
+					new CircuitBreaker(config.getCircuitFailureThreshold())));
+		}
+		this.nodes = Collections.unmodifiableList(list);
+		long interval = config.getProbeIntervalMillis();
+		this.prober = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ftp-endpoint-probe-"));
+		prober.scheduleWithFixedDelay(this::probe, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 从负载最低的可用服务器借出连接，失败时依次尝试其他服务器
+	 * 先不等待地依次尝试各服务器，都没有空闲连接时只在负载最低的服务器上等待，
+	 * 所有服务器共用一个截止时间，总等待不超过maxWaitMillis。
+	 * @return ftp客户端
+	 * @throws Exception 所有可用服务器都借出失败
+	 * @throws NoSuchElementException 没有可用的服务器或等待超时
+	 * @throws IllegalStateException 连接池已关闭
+	 */
+	@Override
+	public FTPClient borrowObject() throws Exception, NoSuchElementException, IllegalStateException {
+		return borrowObject(TransferPriority.current(), maxWaitMillis);
+	}
+
+	/**
+	 * 按指定优先级和最长等待时间借出连接，各服务器共用一个截止时间
+	 * @param priority 优先级
+	 * @param maxWaitMillis 最长等待时间，0表示所有服务器都没有空闲连接时立即失败
+	 * @return ftp客户端
+	 * @throws Exception 所有可用服务器都借出失败
+	 * @throws NoSuchElementException 没有可用的服务器或等待超时
+	 * @throws IllegalStateException 连接池已关闭
+	 */
+	@Override
+	public FTPClient borrowObject(TransferPriority priority, long maxWaitMillis) throws Exception {
+		assertOpen();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		List<Node> tried = new ArrayList<>(nodes.size());
+		// 连接或登录失败的服务器，不再等待
+		List<Node> failed = new ArrayList<>(nodes.size());
+		Exception last = null;
+		Node node;
+		while ((node = select(tried)) != null) {
+			tried.add(node);
+			try {
+				return borrow(node, priority, 0);
+			} catch (NoSuchElementException ex) {
+				// 该服务器连接已用尽，不计入失败
+				last = ex;
+			} catch (Exception ex) {
+				last = ex;
+				failed.add(node);
+				recordFailure(node);
+			}
+		}
+		long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		node = remaining > 0 ? select(failed) : null;
+		if (node != null) {
+			try {
+				return borrow(node, priority, remaining);
+			} catch (NoSuchElementException ex) {
+				last = ex;
+			} catch (Exception ex) {
+				recordFailure(node);
+				throw ex;
+			}
+		}
+		if (last != null) {
+			throw last;
+		}
+		throw new NoSuchElementException("No available FTP endpoint.");
+	}
+
+	private FTPClient borrow(Node node, TransferPriority priority, long maxWaitMillis) throws Exception {
+		FTPClient client = node.pool.borrowObject(priority, maxWaitMillis);
+		node.breaker.recordSuccess();
+		owners.put(client, node);
+		return client;
+	}
+
+	private void recordFailure(Node node) {
+		if (node.breaker.recordFailure()) {
+			log.warn("FTP endpoint {} ejected after {} consecutive failures.", node.endpoint, node.breaker.getFailures());
+		}
+	}
+
+	@Override
+	public void returnObject(FTPClient client) {
+		Node node = owners.remove(client);
+		if (node == null) {
+			factory.destroyObject(client);
+			return;
+		}
+		node.pool.returnObject(client);
+	}
+
+	@Override
+	public void invalidateObject(FTPClient client) {
+		Node node = owners.remove(client);
+		if (node == null) {
+			factory.destroyObject(client);
+			return;
+		}
+		node.pool.invalidateObject(client);
+	}
+
+	@Override
+	public void markBroken(FTPClient client) {
+		Node node = owners.get(client);
+		if (node != null) {
+			node.pool.markBroken(client);
+		}
+	}
+
+	@Override
+	public void addObject() throws Exception {
+		assertOpen();
+		Node node = select(Collections.emptyList());
+		if (node == null) {
+			throw new NoSuchElementException("No available FTP endpoint.");
+		}
+		node.pool.addObject();
+	}
+
+	@Override
+	public int getNumIdle() {
+		int idle = 0;
+		for (Node node : nodes) {
+			idle += node.pool.getNumIdle();
+		}
+		return idle;
+	}
+
+	@Override
+	public int getNumActive() {
+		int active = 0;
+		for (Node node : nodes) {
+			active += node.pool.getNumActive();
+		}
+		return active;
+	}
+
+	/**
+	 * 同时预热所有服务器的连接池
+	 * @param parallelism 每个服务器并行创建连接的线程数
+	 * @return 预热结果，至少一个服务器就绪时为true
+	 */
+	@Override
+	public CompletableFuture<Boolean> warmUp(int parallelism) {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[nodes.size()];
+		for (int i = 0; i < futures.length; i++) {
+			futures[i] = nodes.get(i).pool.warmUp(parallelism);
+		}
+		return CompletableFuture.allOf(futures).thenApply(result -> isReady());
+	}
+
+	/**
+	 * 至少一个未熔断的服务器就绪时即为就绪
+	 * @return 就绪返回true
+	 */
+	@Override
+	public boolean isReady() {
+		for (Node node : nodes) {
+			if (!node.breaker.isOpen() && node.pool.isReady()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 所有服务器合计的状态
+	 * @return 状态
+	 */
+	@Override
+	public FtpPoolStats getStats() {
+		int active = 0;
+		int idle = 0;
+		int waiting = 0;
+		long created = 0;
+		long destroyed = 0;
+		long performed = 0;
+		long skipped = 0;
+		long failed = 0;
+		for (Node node : nodes) {
+			FtpPoolStats stats = node.pool.getStats();
+			active += stats.getActive();
+			idle += stats.getIdle();
+			waiting += stats.getWaiting();
+			created += stats.getCreated();
+			destroyed += stats.getDestroyed();
+			performed += stats.getValidationsPerformed();
+			skipped += stats.getValidationsSkipped();
+			failed += stats.getValidationsFailed();
+		}
+		return FtpPoolStats.builder()
+				.active(active)
+				.idle(idle)
+				.waiting(waiting)
+				.created(created)
+				.destroyed(destroyed)
+				.validationsPerformed(performed)
+				.validationsSkipped(skipped)
+				.validationsFailed(failed)
+				.build();
+	}
+
+	/**
+	 * 各服务器的状态
+	 * @return 服务器地址到状态的映射，顺序与配置一致
+	 */
+	public Map<FtpEndpoint, FtpPoolStats> getEndpointStats() {
+		Map<FtpEndpoint, FtpPoolStats> result = new LinkedHashMap<>();
+		for (Node node : nodes) {
+			result.put(node.endpoint, node.pool.getStats());
+		}
+		return result;
+	}
+
+	/**
+	 * 服务器是否已熔断
+	 * @param endpoint 服务器地址
+	 * @return 已熔断返回true，未配置该服务器返回false
+	 */
+	public boolean isEjected(FtpEndpoint endpoint) {
+		for (Node node : nodes) {
+			if (node.endpoint.equals(endpoint)) {
+				return node.breaker.isOpen();
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		prober.shutdownNow();
+		for (Node node : nodes) {
+			node.pool.close();
+		}
+	}
+
+	/**
+	 * 选择负载最低的可用服务器
+	 * @param excluded 本次已尝试过的服务器
+	 * @return 服务器，没有可用的服务器时返回null
+	 */
+	private Node select(List<Node> excluded) {
+		int size = nodes.size();
+		int start = Math.floorMod(cursor.getAndIncrement(), size);
+		long defaultLatency = policy == LoadBalancePolicy.LATENCY_WEIGHTED ? meanLatency() : 0;
+		Node best = null;
+		double bestScore = Double.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			Node node = nodes.get((start + i) % size);
+			if (node.breaker.isOpen() || excluded.contains(node)) {
+				continue;
+			}
+			double load = node.pool.getNumActive() + node.pool.getNumWaiters();
+			if (policy == LoadBalancePolicy.LATENCY_WEIGHTED) {
+				// 尚未测得时延的服务器按平均时延计算
+				long latency = node.latencyNanos > 0 ? node.latencyNanos : defaultLatency;
+				load = (load + 1) * Math.max(latency, 1);
+			}
+			if (load < bestScore) {
+				best = node;
+				bestScore = load;
+			}
+		}
+		return best;
+	}
+
+	private long meanLatency() {
+		long sum = 0;
+		int count = 0;
+		for (Node node : nodes) {
+			if (node.latencyNanos > 0) {
+				sum += node.latencyNanos;
+				count++;
+			}
+		}
+		return count == 0 ? 1 : sum / count;
+	}
+
+	/**
+	 * 探测熔断的服务器是否恢复，并测量可用服务器的命令时延
+	 */
+	private void probe() {
+		for (Node node : nodes) {
+			try {
+				if (node.breaker.isOpen()) {
+					probeEjected(node);
+				} else {
+					measureLatency(node);
+				}
+			} catch (Exception ex) {
+				log.debug("Failed to probe FTP endpoint {}", node.endpoint, ex);
+			}
+		}
+	}
+
+	/**
+	 * 使用新连接探测熔断的服务器，连接、登录并响应NOOP后恢复
+	 */
+	private void probeEjected(Node node) {
+		FTPClient client = null;
+		try {
+			client = factory.create(node.endpoint);
+			long start = System.nanoTime();
+			if (client.sendNoOp()) {
+				node.recordLatency(System.nanoTime() - start);
+				node.breaker.recordSuccess();
+				log.info("FTP endpoint {} recovered.", node.endpoint);
+			}
+		} catch (IOException ex) {
+			log.debug("FTP endpoint {} is still unavailable: {}", node.endpoint, ex.getMessage());
+		} finally {
+			if (client != null) {
+				factory.close(client);
+			}
+		}
+	}
+
+	/**
+	 * 借用一个空闲连接测量NOOP往返时延，没有空闲连接时跳过
+	 */
+	private void measureLatency(Node node) throws Exception {
+		if (node.pool.getNumIdle() == 0) {
+			return;
+		}
+		FTPClient client = node.pool.borrowObject();
+		try {
+			long start = System.nanoTime();
+			if (client.sendNoOp()) {
+				node.recordLatency(System.nanoTime() - start);
+			}
+		} catch (IOException ex) {
+			node.pool.markBroken(client);
+		} finally {
+			node.pool.returnObject(client);
+		}
+	}
+
+	/**
+	 * 一个服务器及其连接池和熔断器
+	 */
+	private static final class Node {
+		private final FtpEndpoint endpoint;
+		private final FtpConcurrentPool pool;
+		private final CircuitBreaker breaker;
+		/**
+		 * 命令往返时延的滑动平均，0表示尚未测量，只由探测线程写入
+		 */
+		private volatile long latencyNanos;
+
+		Node(FtpEndpoint endpoint, FtpConcurrentPool pool, CircuitBreaker breaker) {
+			this.endpoint = endpoint;
+			this.pool = pool;
+			this.breaker = breaker;
+		}
+
+		void recordLatency(long sample) {
+			long current = latencyNanos;
+			latencyNanos = current == 0 ? sample : (long) (current * (1 - LATENCY_ALPHA) + sample * LATENCY_ALPHA);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.scenetec.ftp.core;
+
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.ObjectPool;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FTP连接池
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public interface FtpObjectPool extends ObjectPool<FTPClient> {
+
+	/**
+	 * 按指定优先级和最长等待时间借出连接
+	 * @param priority 优先级
+	 * @param maxWaitMillis 最长等待时间，0表示没有空闲连接且不能新建时立即失败
+	 * @return ftp客户端
+	 * @throws Exception 创建连接失败
+	 * @throws java.util.NoSuchElementException 等待超时
+	 */
+	FTPClient borrowObject(TransferPriority priority, long maxWaitMillis) throws Exception;
+
+	/**
+	 * 归还连接，失效的连接直接销毁
+	 * @param client ftp客户端
+	 */
+	@Override
+	void returnObject(FTPClient client);
+
+	/**
+	 * 销毁连接
+	 * @param client ftp客户端
+	 */
+	@Override
+	void invalidateObject(FTPClient client);
+
+	/**
+	 * 标记借出的连接已损坏，归还时直接销毁
+	 * @param client ftp客户端
+	 */
+	void markBroken(FTPClient client);
+
+	/**
+	 * 预热连接池，并行创建最小空闲连接
+	 * @param parallelism 并行创建连接的线程数
+	 * @return 预热结果，就绪时为true
+	 */
+	CompletableFuture<Boolean> warmUp(int parallelism);
+
+	/**
+	 * 是否已就绪，可以承接请求
+	 * @return 就绪返回true
+	 */
+	boolean isReady();
+
+	/**
+	 * 连接池状态快照
+	 * @return 状态
+	 */
+	FtpPoolStats getStats();
+}
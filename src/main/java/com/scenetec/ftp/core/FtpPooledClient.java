@@ -0,0 +1,112 @@
+package com.scenetec.ftp.core;
+
+import lombok.Getter;
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池中的连接条目
+ * 借出和归还通过CAS切换状态，不需要加锁
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class FtpPooledClient {
+
+	static final int STATE_IDLE = 0;
+	static final int STATE_IN_USE = 1;
+	static final int STATE_REMOVED = -1;
+
+	@Getter
+	private final FTPClient client;
+	@Getter
+	private final long createTime;
+	@Getter
+	private volatile long lastUsedTime;
+	/**
+	 * 最近一次验证或保活成功的时间
+	 */
+	@Getter
+	private volatile long lastCheckedTime;
+
+	/**
+	 * 使用过程中发生I/O异常，归还时销毁
+	 */
+	@Getter
+	private volatile boolean broken;
+
+	private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+	/**
+	 * 是否已在共享空闲栈中，保证栈中至多有一份
+	 */
+	private final AtomicBoolean queued = new AtomicBoolean(false);
+	/**
+	 * 是否借给了批量请求，归还时释放批量名额
+	 */
+	private final AtomicBoolean bulk = new AtomicBoolean(false);
+
+	FtpPooledClient(FTPClient client) {
+		this.client = client;
+		this.createTime = System.currentTimeMillis();
+		this.lastUsedTime = createTime;
+		this.lastCheckedTime = createTime;
+	}
+
+	boolean compareAndSet(int expect, int update) {
+		return state.compareAndSet(expect, update);
+	}
+
+	int getState() {
+		return state.get();
+	}
+
+	void setState(int update) {
+		state.set(update);
+	}
+
+	/**
+	 * 标记为已放入空闲栈
+	 * @return 之前不在栈中返回true
+	 */
+	boolean markQueued() {
+		return queued.compareAndSet(false, true);
+	}
+
+	void clearQueued() {
+		queued.set(false);
+	}
+
+	void markBulk() {
+		bulk.set(true);
+	}
+
+	/**
+	 * 清除批量借出标记
+	 * @return 之前借给了批量请求返回true
+	 */
+	boolean clearBulk() {
+		return bulk.compareAndSet(true, false);
+	}
+
+	void markBroken() {
+		broken = true;
+	}
+
+	void touch() {
+		lastUsedTime = System.currentTimeMillis();
+	}
+
+	void markChecked() {
+		lastCheckedTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * 最近一次确认连接可用的时间，取借还和验证中较晚的一次
+	 * @return 时间戳
+	 */
+	long getLastActiveTime() {
+		return Math.max(lastUsedTime, lastCheckedTime);
+	}
+}
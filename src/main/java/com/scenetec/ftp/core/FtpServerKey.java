@@ -0,0 +1,50 @@
+package com.scenetec.ftp.core;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 多服务器连接池的键，由服务器地址、登录用户和连接选项组成
+ * 未设置的选项使用{@link com.scenetec.ftp.config.FtpClientProperties}中的值
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+@ToString(exclude = "password")
+public final class FtpServerKey {
+
+	/**
+	 * ftp地址
+	 */
+	private final String host;
+
+	/**
+	 * 端口号
+	 */
+	private final Integer port;
+
+	/**
+	 * 登录用户
+	 */
+	private final String username;
+
+	/**
+	 * 登录密码
+	 */
+	private final String password;
+
+	/**
+	 * 被动模式
+	 */
+	private final Boolean passiveMode;
+
+	/**
+	 * 编码
+	 */
+	private final String encoding;
+}
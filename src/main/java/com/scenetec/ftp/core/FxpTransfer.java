@@ -0,0 +1,85 @@
+package com.scenetec.ftp.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * 服务器间直接传输(FXP)
+ * 一方进入被动模式监听，另一方通过PORT连接过去，数据不经过本机。
+ * 先尝试源服务器被动、目标服务器主动，PORT被拒绝时交换方向。
+ * 被动方在数据连接建立前可能不返回应答，因此被动方的命令只发送不等待，
+ * 主动方的命令返回后再读取被动方的应答。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public final class FxpTransfer {
+
+	private FxpTransfer() {
+	}
+
+	/**
+	 * 将源服务器上的文件直接传输到目标服务器
+	 * @param source 源服务器连接
+	 * @param sourcePath 源文件
+	 * @param target 目标服务器连接
+	 * @param targetPath 目标文件
+	 * @return 传输成功返回true；两个方向的PASV/PORT都被拒绝时返回false，此时两个连接仍可继续使用
+	 * @throws IOException 传输已开始后失败，连接状态未知，不能再使用
+	 */
+	public static boolean transfer(FtpChannelClient source, String sourcePath, FtpChannelClient target, String targetPath) throws IOException {
+		int sourceMode = source.getDataConnectionMode();
+		int targetMode = target.getDataConnectionMode();
+		try {
+			Boolean result = transfer(source, FTPCmd.RETR, sourcePath, target, FTPCmd.STOR, targetPath);
+			if (result == null) {
+				result = transfer(target, FTPCmd.STOR, targetPath, source, FTPCmd.RETR, sourcePath);
+			}
+			return result != null && result;
+		} finally {
+			restoreMode(source, sourceMode);
+			restoreMode(target, targetMode);
+		}
+	}
+
+	/**
+	 * 按指定方向传输
+	 * @return 传输结果，PASV/PORT被拒绝时返回null
+	 */
+	private static Boolean transfer(FtpChannelClient passive, FTPCmd passiveCommand, String passivePath,
+									FtpChannelClient active, FTPCmd activeCommand, String activePath) throws IOException {
+		if (!passive.enterRemotePassiveMode()) {
+			log.debug("FXP PASV refused: {}", passive.getReplyString());
+			return null;
+		}
+		if (!active.enterRemoteActiveMode(InetAddress.getByName(passive.getPassiveHost()), passive.getPassivePort())) {
+			log.debug("FXP PORT refused: {}", active.getReplyString());
+			return null;
+		}
+		passive.sendCommandNoReply(passiveCommand, passivePath);
+		if (!FTPReply.isPositivePreliminary(active.sendCommand(activeCommand, activePath))) {
+			// 被动方仍在等待数据连接
+			throw new IOException("FXP " + activeCommand + " failed: " + active.getReplyString().trim());
+		}
+		if (!FTPReply.isPositivePreliminary(passive.getReply())) {
+			throw new IOException("FXP " + passiveCommand + " failed: " + passive.getReplyString().trim());
+		}
+		boolean activeCompleted = active.completePendingCommand();
+		boolean passiveCompleted = passive.completePendingCommand();
+		return activeCompleted && passiveCompleted;
+	}
+
+	private static void restoreMode(FTPClient client, int mode) {
+		if (mode == FTPClient.PASSIVE_LOCAL_DATA_CONNECTION_MODE) {
+			client.enterLocalPassiveMode();
+		} else {
+			client.enterLocalActiveMode();
+		}
+	}
+}
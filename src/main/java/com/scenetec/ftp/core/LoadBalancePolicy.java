@@ -0,0 +1,20 @@
+package com.scenetec.ftp.core;
+
+/**
+ * 多服务器负载均衡策略
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public enum LoadBalancePolicy {
+
+	/**
+	 * 选择借出连接数最少的服务器
+	 */
+	LEAST_ACTIVE,
+
+	/**
+	 * 按借出连接数与命令往返时延的乘积选择，时延高的服务器分到的连接更少
+	 */
+	LATENCY_WEIGHTED
+}
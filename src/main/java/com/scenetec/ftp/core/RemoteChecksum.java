@@ -0,0 +1,182 @@
+package com.scenetec.ftp.core;
+
+import com.scenetec.ftp.io.HashAlgorithm;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.IOException;
+
+/**
+ * 服务器端文件校验值
+ * 根据FEAT选择服务器支持的校验命令：优先使用HASH(可选择算法，支持RANG时可校验字节区间)，
+ * 其次为XSHA256、XCRC、XSHA1、XMD5。本地在传输的同时按相同算法计算，传输完成后比较。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public final class RemoteChecksum {
+
+	/**
+	 * HASH命令可选算法的优先顺序
+	 */
+	private static final HashAlgorithm[] PREFERENCE = {
+			HashAlgorithm.SHA_256, HashAlgorithm.CRC32C, HashAlgorithm.CRC32, HashAlgorithm.SHA_1, HashAlgorithm.MD5
+	};
+
+	private static final String HASH = "HASH";
+
+	/**
+	 * 校验命令
+	 */
+	@Getter
+	private final String command;
+
+	/**
+	 * 校验算法
+	 */
+	@Getter
+	private final HashAlgorithm algorithm;
+
+	/**
+	 * 是否支持RANG指定校验区间
+	 */
+	private final boolean ranges;
+
+	private RemoteChecksum(String command, HashAlgorithm algorithm, boolean ranges) {
+		this.command = command;
+		this.algorithm = algorithm;
+		this.ranges = ranges;
+	}
+
+	/**
+	 * 选择服务器支持的校验命令和算法
+	 * @param client ftp客户端，FEAT结果由客户端缓存
+	 * @return 校验方式，服务器不支持任何校验命令时返回null
+	 * @throws IOException 通信异常
+	 */
+	public static RemoteChecksum negotiate(FTPClient client) throws IOException {
+		if (client.hasFeature(HASH)) {
+			// FEAT中的格式为 HASH SHA-1;SHA-256*;MD5
+			String[] values = client.featureValues(HASH);
+			String offered = values == null || values.length == 0 ? "" : values[0];
+			for (HashAlgorithm algorithm : PREFERENCE) {
+				if (algorithm.isSupported() && isOffered(offered, algorithm)) {
+					return new RemoteChecksum(HASH, algorithm, client.hasFeature("RANG"));
+				}
+			}
+		}
+		if (client.hasFeature("XSHA256")) {
+			return new RemoteChecksum("XSHA256", HashAlgorithm.SHA_256, false);
+		}
+		if (client.hasFeature("XCRC")) {
+			return new RemoteChecksum("XCRC", HashAlgorithm.CRC32, false);
+		}
+		if (client.hasFeature("XSHA1")) {
+			return new RemoteChecksum("XSHA1", HashAlgorithm.SHA_1, false);
+		}
+		if (client.hasFeature("XMD5")) {
+			return new RemoteChecksum("XMD5", HashAlgorithm.MD5, false);
+		}
+		return null;
+	}
+
+	/**
+	 * 是否支持校验字节区间
+	 * @return 支持返回true
+	 */
+	public boolean supportsRanges() {
+		return ranges;
+	}
+
+	/**
+	 * 获取整个文件的校验值
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件
+	 * @return 小写十六进制校验值，服务器返回失败时返回null
+	 * @throws IOException 通信异常
+	 */
+	public String query(FTPClient client, String remotePath) throws IOException {
+		return query(client, remotePath, -1, -1);
+	}
+
+	/**
+	 * 获取文件字节区间的校验值，需要服务器支持RANG
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件
+	 * @param start 起始偏移
+	 * @param end 结束偏移(不含)
+	 * @return 小写十六进制校验值，服务器返回失败时返回null
+	 * @throws IOException 通信异常
+	 */
+	public String query(FTPClient client, String remotePath, long start, long end) throws IOException {
+		for (int i = 0; i < 2; i++) {
+			if (start >= 0 && !FTPReply.isPositiveIntermediate(client.sendCommand("RANG", start + " " + (end - 1)))) {
+				log.debug("RANG refused: {}", client.getReplyString());
+				return null;
+			}
+			if (!FTPReply.isPositiveCompletion(client.sendCommand(command, remotePath))) {
+				log.debug("{} refused: {}", command, client.getReplyString());
+				return null;
+			}
+			String[] tokens = client.getReplyString().trim().split("\\s+");
+			if (!HASH.equals(command)) {
+				return tokens.length > 1 ? normalize(tokens[1]) : null;
+			}
+			// 213 SHA-256 0-49 169cd22282da7f147cb491e559e9dd filename
+			if (tokens.length < 4) {
+				return null;
+			}
+			if (algorithm.getName().equalsIgnoreCase(tokens[1])) {
+				return normalize(tokens[3]);
+			}
+			// 连接当前选择的算法不同，选择后重新获取，算法选择对该连接一直有效
+			if (!FTPReply.isPositiveCompletion(client.sendCommand("OPTS", HASH + " " + algorithm.getName()))) {
+				log.debug("OPTS HASH {} refused: {}", algorithm.getName(), client.getReplyString());
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 比较本地与服务器的校验值
+	 * @param local 本地计算的十六进制校验值
+	 * @param remote 服务器返回的十六进制校验值
+	 * @return 一致返回true
+	 */
+	public boolean matches(String local, String remote) {
+		if (local == null || remote == null) {
+			return false;
+		}
+		if (algorithm.isChecksum()) {
+			try {
+				return Long.parseLong(local, 16) == Long.parseLong(remote, 16);
+			} catch (NumberFormatException ex) {
+				return false;
+			}
+		}
+		return local.equalsIgnoreCase(remote);
+	}
+
+	private static boolean isOffered(String offered, HashAlgorithm algorithm) {
+		for (String name : offered.split(";")) {
+			if (algorithm.getName().equalsIgnoreCase(name.trim().replace("*", ""))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String normalize(String hex) {
+		String value = hex.toLowerCase();
+		return value.startsWith("0x") ? value.substring(2) : value;
+	}
+
+	@Override
+	public String toString() {
+		return command + "(" + algorithm.getName() + ")";
+	}
+}
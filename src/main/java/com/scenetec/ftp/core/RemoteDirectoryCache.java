@@ -0,0 +1,110 @@
+package com.scenetec.ftp.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 远程目录存在性缓存
+ * 记录最近确认存在的远程目录，供同一连接池中的所有连接共享，按容量淘汰最久未访问的目录，
+ * 超过有效期的目录需要重新确认。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class RemoteDirectoryCache {
+
+	private static final String FILE_SEPARATOR = "/";
+
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Map<String, Long> directories;
+
+	/**
+	 * @param maxSize 最大目录数，0表示禁用缓存
+	 * @param ttl 有效期
+	 * @param unit 有效期单位
+	 */
+	public RemoteDirectoryCache(int maxSize, long ttl, TimeUnit unit) {
+		this.maxSize = maxSize;
+		this.ttlMillis = unit.toMillis(ttl);
+		this.directories = Collections.synchronizedMap(new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > RemoteDirectoryCache.this.maxSize;
+			}
+		});
+	}
+
+	/**
+	 * 目录是否已知存在
+	 * @param dir 规范化后的目录，以"/"开头和结尾
+	 * @return 在有效期内确认过返回true
+	 */
+	public boolean contains(String dir) {
+		if (maxSize <= 0) {
+			return false;
+		}
+		Long expireTime = directories.get(dir);
+		if (expireTime == null) {
+			return false;
+		}
+		if (expireTime < System.currentTimeMillis()) {
+			directories.remove(dir);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 记录目录存在，其上级目录必然也存在
+	 * @param dir 规范化后的目录，以"/"开头和结尾
+	 */
+	public void put(String dir) {
+		if (maxSize <= 0) {
+			return;
+		}
+		Long expireTime = System.currentTimeMillis() + ttlMillis;
+		int index = dir.indexOf(FILE_SEPARATOR, 1);
+		while (index > 0) {
+			directories.put(dir.substring(0, index + 1), expireTime);
+			index = dir.indexOf(FILE_SEPARATOR, index + 1);
+		}
+	}
+
+	/**
+	 * 移除目录及其下级目录
+	 * @param dir 规范化后的目录，以"/"开头和结尾
+	 */
+	public void invalidate(String dir) {
+		synchronized (directories) {
+			directories.keySet().removeIf(key -> key.startsWith(dir));
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public void clear() {
+		directories.clear();
+	}
+
+	/**
+	 * 规范化目录，统一为以"/"开头和结尾的绝对路径
+	 * @param dir 目录
+	 * @return 规范化后的目录
+	 */
+	public static String normalize(String dir) {
+		StringBuilder builder = new StringBuilder(FILE_SEPARATOR);
+		if (dir == null) {
+			return builder.toString();
+		}
+		for (String segment : dir.replace('\\', '/').split(FILE_SEPARATOR)) {
+			if (!segment.isEmpty()) {
+				builder.append(segment).append(FILE_SEPARATOR);
+			}
+		}
+		return builder.toString();
+	}
+}
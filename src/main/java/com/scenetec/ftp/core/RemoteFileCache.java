@@ -0,0 +1,487 @@
+package com.scenetec.ftp.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 远程文件内容缓存
+ * 按远程路径缓存下载过的文件内容，以MDTM返回的修改时间和SIZE返回的大小作为版本，两者都一致时直接使用缓存。
+ * 内存层保存小文件，内容存放在堆外的直接缓冲区中；超过单个文件上限的文件存放在磁盘层。
+ * 两层都按总字节数淘汰最久未访问的文件，内存层淘汰的文件转存到磁盘层，磁盘层淘汰的文件直接删除。
+ * 每个缓存实例在磁盘目录下使用独立的子目录，缓存文件在淘汰或清空缓存时删除。
+ * MDTM只精确到秒，同一秒内大小不变的修改无法识别。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class RemoteFileCache {
+
+	private static final String DIRECTORY_PREFIX = "ftp-cache-";
+	private static final String FILE_SUFFIX = ".cache";
+
+	private final long maxMemoryBytes;
+	private final long maxEntryBytes;
+	private final long maxDiskBytes;
+	private final File diskDir;
+
+	private final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Entry> disk = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBytes;
+	private long diskBytes;
+	/**
+	 * 移除缓存的次数，写入流创建之后有移除时放弃提交，避免修改前开始的下载把旧内容加回缓存
+	 */
+	private long invalidations;
+
+	private final AtomicLong fileSequence = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param maxMemoryBytes 内存层总字节数，0禁用内存层
+	 * @param maxEntryBytes 内存层单个文件最大字节数
+	 * @param diskDir 磁盘层所在目录，为null时禁用磁盘层
+	 * @param maxDiskBytes 磁盘层总字节数，0禁用磁盘层
+	 */
+	public RemoteFileCache(long maxMemoryBytes, long maxEntryBytes, File diskDir, long maxDiskBytes) {
+		this.maxMemoryBytes = Math.max(0, maxMemoryBytes);
+		this.maxEntryBytes = Math.min(Math.max(0, maxEntryBytes), Integer.MAX_VALUE);
+		this.maxDiskBytes = Math.max(0, maxDiskBytes);
+		this.diskDir = diskDir != null && maxDiskBytes > 0 ? createDirectory(diskDir) : null;
+	}
+
+	/**
+	 * 是否启用了任一层缓存
+	 * @return 启用返回true
+	 */
+	public boolean isEnabled() {
+		return maxMemoryBytes > 0 || diskDir != null;
+	}
+
+	/**
+	 * 缓存中有该版本的文件时写出缓存的内容，版本不一致的缓存被移除
+	 * @param path 规范化后的远程文件路径
+	 * @param version 远程文件修改时间
+	 * @param size 远程文件大小
+	 * @param outputStream 目标流
+	 * @return 命中并写出返回true，未命中返回false
+	 * @throws IOException 写出失败，目标流中可能已有部分内容
+	 */
+	public boolean serve(String path, String version, long size, OutputStream outputStream) throws IOException {
+		Entry entry;
+		synchronized (this) {
+			entry = memory.get(path);
+			if (entry == null) {
+				entry = disk.get(path);
+			}
+			if (entry != null && !entry.matches(version, size)) {
+				remove(entry);
+				entry = null;
+			}
+			if (entry == null) {
+				misses.increment();
+				return false;
+			}
+			entry.retain();
+		}
+		try {
+			entry.writeTo(outputStream);
+			hits.increment();
+			return true;
+		} finally {
+			entry.release();
+		}
+	}
+
+	/**
+	 * 创建缓存写入流，写入的内容同时转发到目标流，提交后加入缓存
+	 * @param path 规范化后的远程文件路径
+	 * @param version 远程文件修改时间
+	 * @param size 远程文件大小
+	 * @param outputStream 目标流，关闭写入流时不关闭目标流
+	 * @return 写入流，文件超过两层的上限时返回null
+	 */
+	public Sink open(String path, String version, long size, OutputStream outputStream) {
+		if (size < 0) {
+			return null;
+		}
+		if (maxMemoryBytes > 0 && size <= maxEntryBytes && size <= maxMemoryBytes) {
+			try {
+				return new Sink(new Entry(path, version, size, ByteBuffer.allocateDirect((int) size)), outputStream, null);
+			} catch (OutOfMemoryError ex) {
+				// 直接内存不足时退回磁盘层
+				log.warn("Direct memory exhausted, {} is not cached in memory.", path);
+			}
+		}
+		if (diskDir == null || size > maxDiskBytes) {
+			return null;
+		}
+		File file = new File(diskDir, Long.toHexString(fileSequence.incrementAndGet()) + FILE_SUFFIX);
+		try {
+			return new Sink(new Entry(path, version, size, file), outputStream, new FileOutputStream(file));
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("Failed to create cache file {}", file);
+		}
+		return null;
+	}
+
+	/**
+	 * 移除文件的缓存，远程文件被上传、删除或改名时调用
+	 * 此前创建的写入流都不再提交
+	 * @param path 规范化后的远程文件路径
+	 */
+	public synchronized void invalidate(String path) {
+		invalidations++;
+		remove(path);
+	}
+
+	private void remove(String path) {
+		Entry entry = memory.get(path);
+		if (entry != null) {
+			remove(entry);
+		}
+		entry = disk.get(path);
+		if (entry != null) {
+			remove(entry);
+		}
+	}
+
+	/**
+	 * 清空缓存并删除磁盘层文件
+	 * 正在写出的文件在写出完成后删除。
+	 */
+	public synchronized void clear() {
+		invalidations++;
+		for (Entry entry : memory.values()) {
+			entry.release();
+		}
+		for (Entry entry : disk.values()) {
+			entry.release();
+		}
+		memory.clear();
+		disk.clear();
+		memoryBytes = 0;
+		diskBytes = 0;
+	}
+
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public synchronized long getDiskBytes() {
+		return diskBytes;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * 加入缓存，替换同一路径的旧版本，内存层超出上限的文件转存到磁盘层
+	 * @param generation 创建写入流时的移除次数
+	 * @return 创建写入流之后有移除时不加入并返回false
+	 */
+	private boolean put(Entry entry, long generation) {
+		List<Entry> evicted = new ArrayList<>();
+		synchronized (this) {
+			if (generation != invalidations) {
+				return false;
+			}
+			remove(entry.path);
+			if (entry.buffer != null) {
+				memory.put(entry.path, entry);
+				memoryBytes += entry.size;
+				Iterator<Entry> iterator = memory.values().iterator();
+				while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+					Entry eldest = iterator.next();
+					iterator.remove();
+					memoryBytes -= eldest.size;
+					evicted.add(eldest);
+				}
+			} else {
+				disk.put(entry.path, entry);
+				diskBytes += entry.size;
+				evictDisk();
+			}
+		}
+		// 转存在锁外写文件
+		for (Entry eldest : evicted) {
+			spill(eldest);
+		}
+		return true;
+	}
+
+	/**
+	 * 内存层淘汰的文件写入磁盘层
+	 */
+	private void spill(Entry entry) {
+		try {
+			if (diskDir == null || entry.size > maxDiskBytes) {
+				return;
+			}
+			File file = new File(diskDir, Long.toHexString(fileSequence.incrementAndGet()) + FILE_SUFFIX);
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer source = entry.buffer.duplicate();
+				while (source.hasRemaining()) {
+					channel.write(source);
+				}
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				log.error("Failed to spill {} to cache file {}", entry.path, file);
+				delete(file);
+				return;
+			}
+			Entry spilled = new Entry(entry.path, entry.version, entry.size, file);
+			synchronized (this) {
+				// 转存期间已有新版本时放弃
+				if (memory.containsKey(entry.path) || disk.containsKey(entry.path)) {
+					spilled.release();
+					return;
+				}
+				disk.put(entry.path, spilled);
+				diskBytes += spilled.size;
+				evictDisk();
+			}
+		} finally {
+			entry.release();
+		}
+	}
+
+	private void evictDisk() {
+		Iterator<Entry> iterator = disk.values().iterator();
+		while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+			Entry eldest = iterator.next();
+			iterator.remove();
+			diskBytes -= eldest.size;
+			eldest.release();
+		}
+	}
+
+	private void remove(Entry entry) {
+		if (entry.buffer != null) {
+			memory.remove(entry.path);
+			memoryBytes -= entry.size;
+		} else {
+			disk.remove(entry.path);
+			diskBytes -= entry.size;
+		}
+		entry.release();
+	}
+
+	/**
+	 * 在磁盘层所在目录下创建本实例的子目录
+	 * @return 子目录，创建失败返回null
+	 */
+	private static File createDirectory(File parent) {
+		try {
+			Files.createDirectories(parent.toPath());
+			File dir = Files.createTempDirectory(parent.toPath(), DIRECTORY_PREFIX).toFile();
+			dir.deleteOnExit();
+			return dir;
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("Failed to create file cache directory in {}, disk cache disabled.", parent);
+		}
+		return null;
+	}
+
+	private static void delete(File file) {
+		if (file.exists() && !file.delete()) {
+			log.warn("Failed to delete cache file {}", file);
+		}
+	}
+
+	/**
+	 * 缓存的一个文件，内容在直接缓冲区或磁盘文件中
+	 * 引用计数初始为1，由缓存持有；正在写出的读者各持有一个引用，全部释放后删除磁盘文件。
+	 */
+	private static final class Entry {
+
+		private final String path;
+		private final String version;
+		private final long size;
+		private final ByteBuffer buffer;
+		private final File file;
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		Entry(String path, String version, long size, ByteBuffer buffer) {
+			this.path = path;
+			this.version = version;
+			this.size = size;
+			this.buffer = buffer;
+			this.file = null;
+		}
+
+		Entry(String path, String version, long size, File file) {
+			this.path = path;
+			this.version = version;
+			this.size = size;
+			this.buffer = null;
+			this.file = file;
+		}
+
+		boolean matches(String version, long size) {
+			return this.size == size && Objects.equals(this.version, version);
+		}
+
+		void retain() {
+			references.incrementAndGet();
+		}
+
+		void release() {
+			if (references.decrementAndGet() == 0 && file != null) {
+				delete(file);
+			}
+		}
+
+		/**
+		 * 写出内容，目标为FileOutputStream时直接缓冲区和磁盘文件均经FileChannel写出，不经过堆
+		 */
+		void writeTo(OutputStream outputStream) throws IOException {
+			WritableByteChannel target = Channels.newChannel(outputStream);
+			if (buffer != null) {
+				ByteBuffer source = buffer.duplicate();
+				while (source.hasRemaining()) {
+					target.write(source);
+				}
+				return;
+			}
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				long position = 0;
+				while (position < size) {
+					long transferred = channel.transferTo(position, size - position, target);
+					if (transferred <= 0) {
+						throw new IOException("Cache file " + file + " is truncated");
+					}
+					position += transferred;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 缓存写入流
+	 * 内容同时写入目标流和缓存，写入缓存失败或超出声明的大小时只写目标流；
+	 * 调用{@link #commit()}且大小与声明一致时加入缓存，未提交的内容在关闭时丢弃。
+	 */
+	public final class Sink extends OutputStream {
+
+		private final Entry entry;
+		private final OutputStream target;
+		private final OutputStream fileOutput;
+		private final long generation;
+		private long count;
+		private boolean discarded;
+		private boolean committed;
+
+		private Sink(Entry entry, OutputStream target, OutputStream fileOutput) {
+			this.entry = entry;
+			this.target = target;
+			this.fileOutput = fileOutput;
+			synchronized (RemoteFileCache.this) {
+				this.generation = invalidations;
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			target.write(b, off, len);
+			if (discarded) {
+				return;
+			}
+			if (count + len > entry.size) {
+				// 文件在SIZE之后被修改
+				discarded = true;
+				return;
+			}
+			try {
+				if (fileOutput != null) {
+					fileOutput.write(b, off, len);
+				} else {
+					entry.buffer.put(b, off, len);
+				}
+				count += len;
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				log.error("Failed to write cache file {}", entry.file);
+				discarded = true;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target.flush();
+		}
+
+		/**
+		 * 下载成功后提交，内容大小与声明一致时加入缓存
+		 */
+		public void commit() {
+			if (discarded || committed || count != entry.size) {
+				return;
+			}
+			if (fileOutput != null) {
+				try {
+					fileOutput.close();
+				} catch (IOException ex) {
+					ex.printStackTrace();
+					log.error("Failed to close cache file {}", entry.file);
+					return;
+				}
+			} else {
+				entry.buffer.flip();
+			}
+			committed = put(entry, generation);
+			discarded = !committed;
+		}
+
+		/**
+		 * 关闭缓存部分，不关闭目标流
+		 */
+		@Override
+		public void close() {
+			if (committed) {
+				return;
+			}
+			if (fileOutput != null) {
+				try {
+					fileOutput.close();
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+			}
+			entry.release();
+		}
+	}
+}
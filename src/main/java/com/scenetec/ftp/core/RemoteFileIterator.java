@@ -0,0 +1,207 @@
+package com.scenetec.ftp.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.DefaultFTPFileEntryParserFactory;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 远程目录列表迭代器
+ * 边从数据连接读取边解析，不在内存中保存整个目录。服务器支持MLSD时使用MLSD（格式统一，
+ * 时间精确到秒），否则使用LIST并按服务器类型解析。客户端不是{@link FtpChannelClient}时
+ * 退化为{@link FTPListParseEngine}分页解析。
+ * 目录自身（cdir）和上级目录（pdir）条目不返回。使用完毕必须关闭，关闭后连接才能执行其他命令。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class RemoteFileIterator implements Iterator<FTPFile>, Closeable {
+
+	/**
+	 * 分页解析时每页的条目数
+	 */
+	private static final int PAGE_SIZE = 1000;
+
+	private final FTPClient client;
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final FTPFileEntryParser parser;
+	private final FTPListParseEngine engine;
+	private Iterator<FTPFile> page = Collections.emptyIterator();
+	private FTPFile next;
+	private boolean finished;
+	private boolean closed;
+	/**
+	 * 读取数据连接时发生I/O异常，连接已不可用
+	 */
+	private boolean failed;
+
+	private RemoteFileIterator(FTPClient client, Socket socket, FTPFileEntryParser parser) throws IOException {
+		this.client = client;
+		this.socket = socket;
+		this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), client.getControlEncoding()));
+		this.parser = parser;
+		this.engine = null;
+	}
+
+	private RemoteFileIterator(FTPClient client, FTPListParseEngine engine) {
+		this.client = client;
+		this.socket = null;
+		this.reader = null;
+		this.parser = null;
+		this.engine = engine;
+	}
+
+	/**
+	 * 列出远程目录
+	 * @param client ftp客户端
+	 * @param pathname 远程目录
+	 * @return 迭代器，服务器拒绝时返回null
+	 * @throws IOException 通信异常
+	 */
+	public static RemoteFileIterator open(FTPClient client, String pathname) throws IOException {
+		if (!(client instanceof FtpChannelClient)) {
+			FTPListParseEngine engine = client.initiateListParsing(pathname);
+			return engine == null ? null : new RemoteFileIterator(client, engine);
+		}
+		FtpChannelClient channelClient = (FtpChannelClient) client;
+		boolean mlsd = client.hasFeature("MLST");
+		FTPFileEntryParser parser = mlsd ? MLSxEntryParser.getInstance() : listParser(client);
+		Socket socket = channelClient.openChannelDataConnection(mlsd ? FTPCmd.MLSD : FTPCmd.LIST, pathname);
+		if (socket == null) {
+			return null;
+		}
+		try {
+			return new RemoteFileIterator(client, socket, parser);
+		} catch (IOException ex) {
+			socket.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (finished) {
+			return false;
+		}
+		try {
+			next = reader != null ? readEntry() : readPage();
+		} catch (IOException ex) {
+			failed = true;
+			throw new UncheckedIOException(ex);
+		}
+		finished = next == null;
+		return next != null;
+	}
+
+	@Override
+	public FTPFile next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		FTPFile file = next;
+		next = null;
+		return file;
+	}
+
+	/**
+	 * 读取过程中是否发生I/O异常，发生异常时连接应销毁
+	 * @return 发生异常返回true
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * 关闭数据连接并读取服务器的传输结果，未读完时服务器可能返回426
+	 * @throws IOException 通信异常
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed || socket == null) {
+			closed = true;
+			return;
+		}
+		closed = true;
+		try {
+			socket.close();
+		} finally {
+			// 数据连接读取失败时不再等待服务器应答
+			if (!failed && !client.completePendingCommand()) {
+				log.debug("Listing not completed: {}", client.getReplyString());
+			}
+		}
+	}
+
+	private FTPFile readEntry() throws IOException {
+		String entry;
+		while ((entry = parser.readNextEntry(reader)) != null) {
+			FTPFile file = parser.parseFTPEntry(entry);
+			if (file != null && !isSelfOrParent(file)) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private FTPFile readPage() {
+		while (true) {
+			while (page.hasNext()) {
+				FTPFile file = page.next();
+				if (file != null && !isSelfOrParent(file)) {
+					return file;
+				}
+			}
+			if (!engine.hasNext()) {
+				return null;
+			}
+			page = Arrays.asList(engine.getNext(PAGE_SIZE)).iterator();
+		}
+	}
+
+	/**
+	 * 按服务器类型选择LIST解析器，无法识别时按Unix格式解析
+	 */
+	private static FTPFileEntryParser listParser(FTPClient client) {
+		try {
+			return new DefaultFTPFileEntryParserFactory().createFileEntryParser(client.getSystemType());
+		} catch (Exception ex) {
+			log.debug("Unknown FTP system type, parsing listing as UNIX: {}", ex.getMessage());
+			return new UnixFTPEntryParser();
+		}
+	}
+
+	private static boolean isSelfOrParent(FTPFile file) {
+		String name = file.getName();
+		if (".".equals(name) || "..".equals(name)) {
+			return true;
+		}
+		String raw = file.getRawListing();
+		if (raw == null) {
+			return false;
+		}
+		String facts = raw.toLowerCase();
+		return facts.startsWith("type=cdir;") || facts.startsWith("type=pdir;")
+				|| facts.contains(";type=cdir;") || facts.contains(";type=pdir;");
+	}
+}
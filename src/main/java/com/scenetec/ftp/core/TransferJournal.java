@@ -0,0 +1,173 @@
+package com.scenetec.ftp.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * 断点续传日志
+ * 以properties格式保存在本地文件旁，记录传输双方的文件标识和已提交的字节偏移，
+ * 传输中断或JVM重启后据此从最后确认的位置继续传输。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+@Getter
+@Setter
+public class TransferJournal {
+
+	/**
+	 * 日志文件后缀
+	 */
+	public static final String JOURNAL_SUFFIX = ".ftp-journal";
+
+	private static final String KEY_REMOTE_PATH = "remotePath";
+	private static final String KEY_LOCAL_LENGTH = "localLength";
+	private static final String KEY_LOCAL_MODIFIED = "localModified";
+	private static final String KEY_REMOTE_SIZE = "remoteSize";
+	private static final String KEY_REMOTE_MODIFIED = "remoteModified";
+	private static final String KEY_OFFSET = "offset";
+
+	private final File journalFile;
+
+	/**
+	 * 远程文件路径
+	 */
+	private String remotePath;
+
+	/**
+	 * 本地文件大小(上传时记录)
+	 */
+	private long localLength = -1;
+
+	/**
+	 * 本地文件修改时间(上传时记录)
+	 */
+	private long localModified = -1;
+
+	/**
+	 * 远程文件大小(下载时记录)
+	 */
+	private long remoteSize = -1;
+
+	/**
+	 * 远程文件修改时间MDTM(下载时记录)
+	 */
+	private String remoteModified;
+
+	/**
+	 * 已提交的字节偏移
+	 */
+	private long offset;
+
+	private TransferJournal(File journalFile) {
+		this.journalFile = journalFile;
+	}
+
+	/**
+	 * 获取本地文件对应的日志
+	 * @param localFile 本地文件
+	 * @return 日志文件存在时返回其内容，否则返回空日志
+	 */
+	public static TransferJournal of(File localFile) {
+		TransferJournal journal = new TransferJournal(new File(localFile.getPath() + JOURNAL_SUFFIX));
+		if (journal.journalFile.exists()) {
+			journal.load();
+		}
+		return journal;
+	}
+
+	/**
+	 * 判断日志是否记录了同一个上传任务
+	 * @param remotePath 远程文件
+	 * @param localFile 本地文件
+	 * @return 远程路径和本地文件标识一致返回true
+	 */
+	public boolean matchesUpload(String remotePath, File localFile) {
+		return Objects.equals(this.remotePath, remotePath)
+				&& localLength == localFile.length()
+				&& localModified == localFile.lastModified();
+	}
+
+	/**
+	 * 判断日志是否记录了同一个下载任务
+	 * @param remotePath 远程文件
+	 * @param remoteSize 远程文件大小
+	 * @param remoteModified 远程文件修改时间
+	 * @return 远程路径和远程文件标识一致返回true
+	 */
+	public boolean matchesDownload(String remotePath, long remoteSize, String remoteModified) {
+		return Objects.equals(this.remotePath, remotePath)
+				&& this.remoteSize == remoteSize
+				&& Objects.equals(this.remoteModified, remoteModified);
+	}
+
+	/**
+	 * 保存日志，先写临时文件再替换，避免中断时留下残缺的日志
+	 */
+	public void save() {
+		Properties props = new Properties();
+		props.setProperty(KEY_REMOTE_PATH, remotePath);
+		props.setProperty(KEY_LOCAL_LENGTH, String.valueOf(localLength));
+		props.setProperty(KEY_LOCAL_MODIFIED, String.valueOf(localModified));
+		props.setProperty(KEY_REMOTE_SIZE, String.valueOf(remoteSize));
+		if (remoteModified != null) {
+			props.setProperty(KEY_REMOTE_MODIFIED, remoteModified);
+		}
+		props.setProperty(KEY_OFFSET, String.valueOf(offset));
+
+		File tmpFile = new File(journalFile.getPath() + ".tmp");
+		try (OutputStream os = new FileOutputStream(tmpFile)) {
+			props.store(os, null);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("Failed to write transfer journal {}", journalFile);
+			return;
+		}
+		try {
+			Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("Failed to replace transfer journal {}", journalFile);
+		}
+	}
+
+	/**
+	 * 删除日志
+	 */
+	public void delete() {
+		if (journalFile.exists() && !journalFile.delete()) {
+			log.warn("Failed to delete transfer journal {}", journalFile);
+		}
+	}
+
+	private void load() {
+		Properties props = new Properties();
+		try (InputStream is = new FileInputStream(journalFile)) {
+			props.load(is);
+			remotePath = props.getProperty(KEY_REMOTE_PATH);
+			localLength = Long.parseLong(props.getProperty(KEY_LOCAL_LENGTH, "-1"));
+			localModified = Long.parseLong(props.getProperty(KEY_LOCAL_MODIFIED, "-1"));
+			remoteSize = Long.parseLong(props.getProperty(KEY_REMOTE_SIZE, "-1"));
+			remoteModified = props.getProperty(KEY_REMOTE_MODIFIED);
+			offset = Long.parseLong(props.getProperty(KEY_OFFSET, "0"));
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.warn("Ignore broken transfer journal {}", journalFile);
+			remotePath = null;
+			offset = 0;
+		}
+	}
+}
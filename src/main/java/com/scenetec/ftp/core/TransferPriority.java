@@ -0,0 +1,85 @@
+package com.scenetec.ftp.core;
+
+import java.util.function.Supplier;
+
+/**
+ * 传输优先级
+ * 优先级绑定在调用线程上，模板在其线程池中执行的子任务继承提交时的优先级。
+ * 未指定时为INTERACTIVE，批量任务应在BULK下执行，例如：
+ * <pre>
+ * TransferPriority.BULK.call(() -&gt; template.downloadAll(items));
+ * </pre>
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public enum TransferPriority {
+
+	/**
+	 * 在线请求，对延迟敏感
+	 */
+	INTERACTIVE,
+
+	/**
+	 * 批量任务，让出带宽给在线请求
+	 */
+	BULK;
+
+	private static final ThreadLocal<TransferPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+	/**
+	 * 当前线程的传输优先级
+	 * @return 优先级
+	 */
+	public static TransferPriority current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * 以该优先级执行操作，结束后恢复原优先级
+	 * @param action 操作
+	 * @param <T> 结果类型
+	 * @return 操作结果
+	 */
+	public <T> T call(Supplier<T> action) {
+		TransferPriority previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return action.get();
+		} finally {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * 以该优先级执行操作，结束后恢复原优先级
+	 * @param action 操作
+	 */
+	public void run(Runnable action) {
+		call(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * 包装提交到其他线程的任务，使其以当前线程的优先级执行
+	 * @param action 任务
+	 * @return 包装后的任务
+	 */
+	public static Runnable propagate(Runnable action) {
+		TransferPriority priority = current();
+		return () -> priority.run(action);
+	}
+
+	/**
+	 * 包装提交到其他线程的任务，使其以当前线程的优先级执行
+	 * @param action 任务
+	 * @param <T> 结果类型
+	 * @return 包装后的任务
+	 */
+	public static <T> Supplier<T> propagate(Supplier<T> action) {
+		TransferPriority priority = current();
+		return () -> priority.call(action);
+	}
+}
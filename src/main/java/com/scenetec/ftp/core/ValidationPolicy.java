@@ -0,0 +1,30 @@
+package com.scenetec.ftp.core;
+
+/**
+ * 连接验证策略
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public enum ValidationPolicy {
+
+	/**
+	 * 每次借出都发送NOOP验证
+	 */
+	ALWAYS,
+
+	/**
+	 * 空闲时间超过验证间隔才在借出时验证
+	 */
+	IDLE_TIME,
+
+	/**
+	 * 借出时不验证，由后台线程定期验证空闲连接
+	 */
+	BACKGROUND,
+
+	/**
+	 * 不验证，只依赖使用过程中发现的I/O异常
+	 */
+	NONE
+}
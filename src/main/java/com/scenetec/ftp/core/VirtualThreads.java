@@ -0,0 +1,158 @@
+package com.scenetec.ftp.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟线程支持
+ * 项目以Java 8编译，运行在JDK 21及以上版本时通过反射创建虚拟线程执行器
+ * 判断虚拟线程在每次借还连接时调用，启动时解析一次方法句柄，调用可被JIT内联，不走反射
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public final class VirtualThreads {
+
+	private static final Method NEW_EXECUTOR = findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+	private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * 当前JDK是否支持虚拟线程
+	 * @return 支持返回true
+	 */
+	public static boolean isSupported() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * 当前线程是否为虚拟线程
+	 * @return 是返回true
+	 */
+	public static boolean isCurrentThreadVirtual() {
+		if (IS_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+		} catch (Throwable ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * 创建每个任务一个虚拟线程的执行器
+	 * @return 执行器，不支持虚拟线程时返回null
+	 */
+	public static ExecutorService newExecutor() {
+		if (NEW_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("Failed to create virtual thread executor.");
+		}
+		return null;
+	}
+
+	/**
+	 * 创建限制同时运行任务数的虚拟线程执行器
+	 * 提交不阻塞，超出的任务在各自的虚拟线程中等待许可，不占用平台线程
+	 * @param maxConcurrency 同时运行的最大任务数
+	 * @return 执行器，不支持虚拟线程时返回null
+	 */
+	public static ExecutorService newExecutor(int maxConcurrency) {
+		ExecutorService executor = newExecutor();
+		return executor == null ? null : new BoundedExecutor(executor, maxConcurrency);
+	}
+
+	private static Method findMethod(Class<?> type, String name) {
+		try {
+			return type.getMethod(name);
+		} catch (NoSuchMethodException ex) {
+			return null;
+		}
+	}
+
+	private static MethodHandle findIsVirtual() {
+		try {
+			return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+		} catch (NoSuchMethodException | IllegalAccessException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * 用信号量限制并发的执行器
+	 */
+	private static final class BoundedExecutor extends AbstractExecutorService {
+
+		private final ExecutorService delegate;
+		private final Semaphore permits;
+
+		BoundedExecutor(ExecutorService delegate, int maxConcurrency) {
+			this.delegate = delegate;
+			this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			delegate.execute(() -> {
+				try {
+					permits.acquire();
+				} catch (InterruptedException ex) {
+					// 关闭执行器时中断，不占许可、保留中断标志照常执行任务
+					// 任务感知中断后尽快结束，CompletableFuture等依赖结果总能完成，等待的调用方不会挂起
+					Thread.currentThread().interrupt();
+					command.run();
+					return;
+				}
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			});
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.scenetec.ftp.io;
+
+import java.security.MessageDigest;
+import java.util.zip.Checksum;
+
+/**
+ * 以MessageDigest的形式使用CRC校验
+ * 可与DigestInputStream/DigestOutputStream配合，在读写的同时计算，摘要为4字节大端序。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class ChecksumDigest extends MessageDigest {
+
+	private static final int DIGEST_LENGTH = 4;
+
+	private final Checksum checksum;
+
+	public ChecksumDigest(String algorithm, Checksum checksum) {
+		super(algorithm);
+		this.checksum = checksum;
+	}
+
+	@Override
+	protected int engineGetDigestLength() {
+		return DIGEST_LENGTH;
+	}
+
+	@Override
+	protected void engineUpdate(byte input) {
+		checksum.update(input);
+	}
+
+	@Override
+	protected void engineUpdate(byte[] input, int offset, int len) {
+		checksum.update(input, offset, len);
+	}
+
+	@Override
+	protected byte[] engineDigest() {
+		long value = checksum.getValue();
+		checksum.reset();
+		return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+	}
+
+	@Override
+	protected void engineReset() {
+		checksum.reset();
+	}
+}
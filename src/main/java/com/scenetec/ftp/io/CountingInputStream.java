@@ -0,0 +1,67 @@
+package com.scenetec.ftp.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 记录已读取字节数的输入流，重置流时计数同时回退
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private long count;
+
+	private long mark;
+
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b != -1) {
+			count++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = in.read(b, off, len);
+		if (n > 0) {
+			count += n;
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = in.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		in.mark(readlimit);
+		mark = count;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		in.reset();
+		count = mark;
+	}
+
+	/**
+	 * 已读取字节数
+	 * @return 字节数
+	 */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,40 @@
+package com.scenetec.ftp.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 记录已写入字节数的输出流
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+	private long count;
+
+	public CountingOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		count += len;
+	}
+
+	/**
+	 * 已写入字节数
+	 * @return 字节数
+	 */
+	public long getCount() {
+		return count;
+	}
+}
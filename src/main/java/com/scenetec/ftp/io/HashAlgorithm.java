@@ -0,0 +1,113 @@
+package com.scenetec.ftp.io;
+
+import java.lang.reflect.Constructor;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * 传输校验算法，名称与FTP HASH命令中的算法名称一致
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public enum HashAlgorithm {
+
+	SHA_256("SHA-256"),
+	/**
+	 * JDK 9及以上通过反射使用java.util.zip.CRC32C
+	 */
+	CRC32C("CRC32C"),
+	CRC32("CRC32"),
+	SHA_1("SHA-1"),
+	MD5("MD5");
+
+	private static final Constructor<?> CRC32C_CONSTRUCTOR = findCrc32c();
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String name;
+
+	HashAlgorithm(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 当前JDK是否支持该算法
+	 * @return 支持返回true
+	 */
+	public boolean isSupported() {
+		return this != CRC32C || CRC32C_CONSTRUCTOR != null;
+	}
+
+	/**
+	 * 是否为CRC校验，CRC的十六进制表示可能省略前导0
+	 * @return CRC返回true
+	 */
+	public boolean isChecksum() {
+		return this == CRC32 || this == CRC32C;
+	}
+
+	/**
+	 * 创建摘要
+	 * @return 摘要
+	 * @throws IllegalStateException 当前JDK不支持该算法
+	 */
+	public MessageDigest newDigest() {
+		try {
+			switch (this) {
+				case CRC32:
+					return new ChecksumDigest(name, new CRC32());
+				case CRC32C:
+					if (CRC32C_CONSTRUCTOR == null) {
+						throw new IllegalStateException("CRC32C requires JDK 9 or later");
+					}
+					return new ChecksumDigest(name, (Checksum) CRC32C_CONSTRUCTOR.newInstance());
+				default:
+					return MessageDigest.getInstance(name);
+			}
+		} catch (ReflectiveOperationException | NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("Unsupported hash algorithm " + name, ex);
+		}
+	}
+
+	/**
+	 * 按名称查找算法
+	 * @param name 算法名称，不区分大小写
+	 * @return 算法，未知时返回null
+	 */
+	public static HashAlgorithm forName(String name) {
+		for (HashAlgorithm algorithm : values()) {
+			if (algorithm.name.equalsIgnoreCase(name)) {
+				return algorithm;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 转换为小写十六进制
+	 * @param digest 摘要
+	 * @return 十六进制字符串
+	 */
+	public static String toHex(byte[] digest) {
+		char[] chars = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	private static Constructor<?> findCrc32c() {
+		try {
+			return Class.forName("java.util.zip.CRC32C").getConstructor();
+		} catch (ClassNotFoundException | NoSuchMethodException ex) {
+			return null;
+		}
+	}
+}
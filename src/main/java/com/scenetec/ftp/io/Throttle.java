@@ -0,0 +1,20 @@
+package com.scenetec.ftp.io;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 传输限速
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@FunctionalInterface
+public interface Throttle {
+
+	/**
+	 * 获取传输指定字节数的配额，配额不足时阻塞
+	 * @param bytes 字节数
+	 * @throws InterruptedIOException 等待时线程被中断
+	 */
+	void acquire(int bytes) throws InterruptedIOException;
+}
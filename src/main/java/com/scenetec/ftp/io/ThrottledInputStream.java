@@ -0,0 +1,44 @@
+package com.scenetec.ftp.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 限速输入流，读取后按实际读取的字节数获取配额
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+	private final Throttle throttle;
+
+	public ThrottledInputStream(InputStream in, Throttle throttle) {
+		super(in);
+		this.throttle = throttle;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b >= 0) {
+			throttle.acquire(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = in.read(b, off, len);
+		if (n > 0) {
+			throttle.acquire(n);
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		return in.skip(n);
+	}
+}
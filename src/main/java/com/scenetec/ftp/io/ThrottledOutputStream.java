@@ -0,0 +1,33 @@
+package com.scenetec.ftp.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 限速输出流，写入前获取配额
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class ThrottledOutputStream extends FilterOutputStream {
+
+	private final Throttle throttle;
+
+	public ThrottledOutputStream(OutputStream out, Throttle throttle) {
+		super(out);
+		this.throttle = throttle;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		throttle.acquire(1);
+		out.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		throttle.acquire(len);
+		out.write(b, off, len);
+	}
+}
@@ -0,0 +1,71 @@
+package com.scenetec.ftp.io;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶限速
+ * 以时间游标代替令牌计数：每次获取按速率把游标向后推，游标超过当前时间的部分即为需要等待的时间，
+ * 游标最多落后当前时间一个突发窗口，空闲后允许短暂突发。获取只做一次CAS，等待在锁外进行。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class TokenBucket implements Throttle {
+
+	/**
+	 * 突发窗口，空闲后最多可立即使用该时间内的配额
+	 */
+	private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final AtomicLong cursor = new AtomicLong(System.nanoTime());
+	private volatile long bytesPerSecond;
+
+	/**
+	 * @param bytesPerSecond 每秒字节数，小于等于0不限速
+	 */
+	public TokenBucket(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * 调整速率，对之后的获取生效
+	 * @param bytesPerSecond 每秒字节数，小于等于0不限速
+	 */
+	public void setBytesPerSecond(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	@Override
+	public void acquire(int bytes) throws InterruptedIOException {
+		long rate = bytesPerSecond;
+		if (rate <= 0 || bytes <= 0) {
+			return;
+		}
+		long cost = (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / rate);
+		long now = System.nanoTime();
+		long next;
+		while (true) {
+			long prev = cursor.get();
+			next = Math.max(prev, now - BURST_NANOS) + cost;
+			if (cursor.compareAndSet(prev, next)) {
+				break;
+			}
+		}
+		long wait = next - now;
+		if (wait <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while throttling");
+		}
+	}
+}
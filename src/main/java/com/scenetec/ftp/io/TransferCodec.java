@@ -0,0 +1,38 @@
+package com.scenetec.ftp.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 传输编解码阶段
+ * 上传时包装数据连接的输出流，写入的内容编码后发送；下载时包装数据连接的输入流，
+ * 读取时解码。编解码与传输在同一次读写中完成，不产生临时文件。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public interface TransferCodec {
+
+	/**
+	 * 编解码名称
+	 * @return 名称，如gzip
+	 */
+	String getName();
+
+	/**
+	 * 包装上传的输出流，关闭返回的流时写出剩余数据并关闭被包装的流
+	 * @param out 数据连接的输出流
+	 * @return 编码输出流
+	 * @throws IOException 写入编码头失败
+	 */
+	OutputStream encode(OutputStream out) throws IOException;
+
+	/**
+	 * 包装下载的输入流，关闭返回的流时关闭被包装的流
+	 * @param in 数据连接的输入流
+	 * @return 解码输入流
+	 * @throws IOException 读取编码头失败
+	 */
+	InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,162 @@
+package com.scenetec.ftp.io;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 内置的传输编解码
+ * gzip使用JDK实现；zstd和lz4不引入编译期依赖，运行时类路径上存在对应的库时通过反射使用：
+ * zstd依次查找zstd-jni、aircompressor(纯Java)，lz4使用lz4-java的帧格式(无本地库时自动使用纯Java实现)。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public final class TransferCodecs {
+
+	/**
+	 * gzip编解码
+	 */
+	public static final TransferCodec GZIP = new GzipCodec();
+
+	private static final TransferCodec ZSTD = ReflectiveCodec.find("zstd",
+			new String[]{"com.github.luben.zstd.ZstdOutputStream", "com.github.luben.zstd.ZstdInputStream"},
+			new String[]{"io.airlift.compress.zstd.ZstdOutputStream", "io.airlift.compress.zstd.ZstdInputStream"});
+
+	private static final TransferCodec LZ4 = ReflectiveCodec.find("lz4",
+			new String[]{"net.jpountz.lz4.LZ4FrameOutputStream", "net.jpountz.lz4.LZ4FrameInputStream"});
+
+	private TransferCodecs() {
+	}
+
+	/**
+	 * zstd编解码
+	 * @return 编解码，类路径上没有zstd实现时返回null
+	 */
+	public static TransferCodec zstd() {
+		return ZSTD;
+	}
+
+	/**
+	 * lz4帧格式编解码
+	 * @return 编解码，类路径上没有lz4-java时返回null
+	 */
+	public static TransferCodec lz4() {
+		return LZ4;
+	}
+
+	/**
+	 * 按名称查找编解码
+	 * @param name gzip、zstd或lz4，不区分大小写
+	 * @return 编解码，名称未知或对应的库不存在时返回null
+	 */
+	public static TransferCodec forName(String name) {
+		if (name == null) {
+			return null;
+		}
+		switch (name.toLowerCase()) {
+			case "gzip":
+				return GZIP;
+			case "zstd":
+				return ZSTD;
+			case "lz4":
+				return LZ4;
+			default:
+				return null;
+		}
+	}
+
+	private static final class GzipCodec implements TransferCodec {
+
+		/**
+		 * Deflater内部缓冲区大小
+		 */
+		private static final int BUFFER_SIZE = 64 * 1024;
+
+		@Override
+		public String getName() {
+			return "gzip";
+		}
+
+		@Override
+		public OutputStream encode(OutputStream out) throws IOException {
+			return new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+
+		@Override
+		public InputStream decode(InputStream in) throws IOException {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * 通过反射调用第三方库的流构造方法
+	 */
+	private static final class ReflectiveCodec implements TransferCodec {
+
+		private final String name;
+		private final Constructor<?> encoder;
+		private final Constructor<?> decoder;
+
+		private ReflectiveCodec(String name, Constructor<?> encoder, Constructor<?> decoder) {
+			this.name = name;
+			this.encoder = encoder;
+			this.decoder = decoder;
+		}
+
+		/**
+		 * 按顺序查找第一个可用的实现
+		 * @param name 编解码名称
+		 * @param candidates 每个实现的输出流类名和输入流类名
+		 * @return 编解码，都不可用时返回null
+		 */
+		static TransferCodec find(String name, String[]... candidates) {
+			for (String[] candidate : candidates) {
+				try {
+					Constructor<?> encoder = Class.forName(candidate[0]).getConstructor(OutputStream.class);
+					Constructor<?> decoder = Class.forName(candidate[1]).getConstructor(InputStream.class);
+					log.debug("Transfer codec {} uses {}", name, candidate[0]);
+					return new ReflectiveCodec(name, encoder, decoder);
+				} catch (ClassNotFoundException | NoSuchMethodException | LinkageError ex) {
+					log.trace("Transfer codec {} not available from {}", name, candidate[0]);
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public OutputStream encode(OutputStream out) throws IOException {
+			return (OutputStream) newInstance(encoder, out);
+		}
+
+		@Override
+		public InputStream decode(InputStream in) throws IOException {
+			return (InputStream) newInstance(decoder, in);
+		}
+
+		private static Object newInstance(Constructor<?> constructor, Object stream) throws IOException {
+			try {
+				return constructor.newInstance(stream);
+			} catch (InvocationTargetException ex) {
+				if (ex.getCause() instanceof IOException) {
+					throw (IOException) ex.getCause();
+				}
+				throw new IOException(ex.getCause());
+			} catch (ReflectiveOperationException ex) {
+				throw new IOException(ex);
+			}
+		}
+	}
+}
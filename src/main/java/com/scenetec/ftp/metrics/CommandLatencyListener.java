@@ -0,0 +1,45 @@
+package com.scenetec.ftp.metrics;
+
+import org.apache.commons.net.ProtocolCommandEvent;
+import org.apache.commons.net.ProtocolCommandListener;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 记录FTP命令延迟
+ * 每个FTPClient一个实例，同一时刻只有一个线程使用连接，因此不需要同步。
+ * 连续发送的命令(批量改名、服务器间传输)按发送顺序与应答配对。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CommandLatencyListener implements ProtocolCommandListener {
+
+	private final FtpMetricsListener metricsListener;
+	/**
+	 * 已发送未应答的命令及发送时间
+	 */
+	private final Deque<String> commands = new ArrayDeque<>();
+	private final Deque<Long> sentTimes = new ArrayDeque<>();
+
+	public CommandLatencyListener(FtpMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+	}
+
+	@Override
+	public void protocolCommandSent(ProtocolCommandEvent event) {
+		commands.addLast(event.getCommand());
+		sentTimes.addLast(System.nanoTime());
+	}
+
+	@Override
+	public void protocolReplyReceived(ProtocolCommandEvent event) {
+		// 传输命令的完成应答没有对应的命令，只记录第一条应答
+		String command = commands.pollFirst();
+		if (command == null) {
+			return;
+		}
+		metricsListener.onCommand(command, System.nanoTime() - sentTimes.pollFirst(), event.getReplyCode());
+	}
+}
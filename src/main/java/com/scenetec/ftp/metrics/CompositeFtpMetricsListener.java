@@ -0,0 +1,69 @@
+package com.scenetec.ftp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将指标分发给多个监听器
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CompositeFtpMetricsListener implements FtpMetricsListener {
+
+	private final List<FtpMetricsListener> listeners;
+
+	public CompositeFtpMetricsListener(List<FtpMetricsListener> listeners) {
+		this.listeners = new ArrayList<>(listeners);
+	}
+
+	/**
+	 * 合并监听器
+	 * @param listeners 监听器
+	 * @return 没有监听器时返回NOOP，只有一个时直接返回
+	 */
+	public static FtpMetricsListener of(List<FtpMetricsListener> listeners) {
+		if (listeners == null || listeners.isEmpty()) {
+			return NOOP;
+		}
+		if (listeners.size() == 1) {
+			return listeners.get(0);
+		}
+		return new CompositeFtpMetricsListener(listeners);
+	}
+
+	@Override
+	public void onBorrow(long waitNanos, boolean success) {
+		for (FtpMetricsListener listener : listeners) {
+			listener.onBorrow(waitNanos, success);
+		}
+	}
+
+	@Override
+	public void onConnectionCreated() {
+		for (FtpMetricsListener listener : listeners) {
+			listener.onConnectionCreated();
+		}
+	}
+
+	@Override
+	public void onConnectionDestroyed() {
+		for (FtpMetricsListener listener : listeners) {
+			listener.onConnectionDestroyed();
+		}
+	}
+
+	@Override
+	public void onCommand(String command, long latencyNanos, int replyCode) {
+		for (FtpMetricsListener listener : listeners) {
+			listener.onCommand(command, latencyNanos, replyCode);
+		}
+	}
+
+	@Override
+	public void onTransfer(TransferDirection direction, String remotePath, long bytes, long elapsedNanos, boolean success) {
+		for (FtpMetricsListener listener : listeners) {
+			listener.onTransfer(direction, remotePath, bytes, elapsedNanos, success);
+		}
+	}
+}
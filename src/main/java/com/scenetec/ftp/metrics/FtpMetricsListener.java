@@ -0,0 +1,58 @@
+package com.scenetec.ftp.metrics;
+
+/**
+ * FTP指标监听器
+ * 连接池、FTP命令和文件传输在关键位置回调该接口，实现类可将数据转发到Micrometer等监控系统。
+ * 回调在业务线程中同步执行，实现类不应阻塞。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public interface FtpMetricsListener {
+
+	/**
+	 * 不记录任何指标
+	 */
+	FtpMetricsListener NOOP = new FtpMetricsListener() {
+	};
+
+	/**
+	 * 从连接池借出连接
+	 * @param waitNanos 等待时间(纳秒)
+	 * @param success 是否借出成功
+	 */
+	default void onBorrow(long waitNanos, boolean success) {
+	}
+
+	/**
+	 * 创建了新连接
+	 */
+	default void onConnectionCreated() {
+	}
+
+	/**
+	 * 销毁了连接
+	 */
+	default void onConnectionDestroyed() {
+	}
+
+	/**
+	 * 收到FTP命令的应答
+	 * @param command 命令，如CWD、STOR
+	 * @param latencyNanos 从发送命令到收到第一条应答的时间(纳秒)
+	 * @param replyCode 应答码
+	 */
+	default void onCommand(String command, long latencyNanos, int replyCode) {
+	}
+
+	/**
+	 * 完成一次文件传输
+	 * @param direction 传输方向
+	 * @param remotePath 远程文件
+	 * @param bytes 传输字节数
+	 * @param elapsedNanos 耗时(纳秒)
+	 * @param success 是否成功
+	 */
+	default void onTransfer(TransferDirection direction, String remotePath, long bytes, long elapsedNanos, boolean success) {
+	}
+}
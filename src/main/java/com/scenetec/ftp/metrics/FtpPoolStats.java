@@ -0,0 +1,57 @@
+package com.scenetec.ftp.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 连接池状态快照
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@Builder
+@ToString
+public class FtpPoolStats {
+
+	/**
+	 * 借出中的连接数
+	 */
+	private final int active;
+
+	/**
+	 * 空闲连接数
+	 */
+	private final int idle;
+
+	/**
+	 * 等待借出的线程数
+	 */
+	private final int waiting;
+
+	/**
+	 * 累计创建的连接数
+	 */
+	private final long created;
+
+	/**
+	 * 累计销毁的连接数
+	 */
+	private final long destroyed;
+
+	/**
+	 * 已执行的验证次数
+	 */
+	private final long validationsPerformed;
+
+	/**
+	 * 跳过的验证次数
+	 */
+	private final long validationsSkipped;
+
+	/**
+	 * 验证失败的次数
+	 */
+	private final long validationsFailed;
+}
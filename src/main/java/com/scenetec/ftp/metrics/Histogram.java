@@ -0,0 +1,73 @@
+package com.scenetec.ftp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁直方图
+ * 按2的幂划分桶，记录只需一次原子自增，百分位为所在桶的上界近似值。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * 记录一个值
+	 * @param value 非负值
+	 */
+	public void record(long value) {
+		long v = Math.max(value, 0);
+		// 桶i记录[2^(i-1), 2^i - 1]范围内的值
+		buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(v));
+		count.increment();
+		sum.add(v);
+		max.accumulate(v);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = getCount();
+		return n == 0 ? 0 : (double) getSum() / n;
+	}
+
+	/**
+	 * 百分位近似值
+	 * @param percentile 0到1之间
+	 * @return 百分位所在桶的上界
+	 */
+	public long getPercentile(double percentile) {
+		long total = getCount();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return i == 0 ? 0 : Math.min((1L << i) - 1, getMax());
+			}
+		}
+		return getMax();
+	}
+}
@@ -0,0 +1,80 @@
+package com.scenetec.ftp.metrics;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存中的FTP指标
+ * 默认注册的监听器，记录借出等待时间、命令延迟和传输速率，可直接读取或定期导出。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@Component
+public class SimpleFtpMetrics implements FtpMetricsListener {
+
+	/**
+	 * 借出等待时间(微秒)
+	 */
+	private final Histogram borrowWait = new Histogram();
+	private final LongAdder borrowFailures = new LongAdder();
+	private final LongAdder connectionsCreated = new LongAdder();
+	private final LongAdder connectionsDestroyed = new LongAdder();
+
+	/**
+	 * 各命令的延迟(微秒)
+	 */
+	private final Map<String, Histogram> commandLatency = new ConcurrentHashMap<>();
+	private final LongAdder commandFailures = new LongAdder();
+
+	/**
+	 * 各方向的传输速率(字节/秒)
+	 */
+	private final Map<TransferDirection, Histogram> transferRate = new ConcurrentHashMap<>();
+	private final Map<TransferDirection, LongAdder> transferBytes = new ConcurrentHashMap<>();
+	private final Map<TransferDirection, LongAdder> transferFailures = new ConcurrentHashMap<>();
+
+	@Override
+	public void onBorrow(long waitNanos, boolean success) {
+		borrowWait.record(TimeUnit.NANOSECONDS.toMicros(waitNanos));
+		if (!success) {
+			borrowFailures.increment();
+		}
+	}
+
+	@Override
+	public void onConnectionCreated() {
+		connectionsCreated.increment();
+	}
+
+	@Override
+	public void onConnectionDestroyed() {
+		connectionsDestroyed.increment();
+	}
+
+	@Override
+	public void onCommand(String command, long latencyNanos, int replyCode) {
+		commandLatency.computeIfAbsent(command, key -> new Histogram()).record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+		if (replyCode >= 400) {
+			commandFailures.increment();
+		}
+	}
+
+	@Override
+	public void onTransfer(TransferDirection direction, String remotePath, long bytes, long elapsedNanos, boolean success) {
+		if (!success) {
+			transferFailures.computeIfAbsent(direction, key -> new LongAdder()).increment();
+			return;
+		}
+		transferBytes.computeIfAbsent(direction, key -> new LongAdder()).add(bytes);
+		if (elapsedNanos > 0) {
+			transferRate.computeIfAbsent(direction, key -> new Histogram()).record(bytes * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.scenetec.ftp.metrics;
+
+/**
+ * 传输方向
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public enum TransferDirection {
+
+	/**
+	 * 上传
+	 */
+	UPLOAD,
+
+	/**
+	 * 下载
+	 */
+	DOWNLOAD
+}
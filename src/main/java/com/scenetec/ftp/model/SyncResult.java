@@ -0,0 +1,54 @@
+package com.scenetec.ftp.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 目录同步结果
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@ToString
+public class SyncResult {
+
+	/**
+	 * 本次传输的文件及结果
+	 */
+	private final List<TransferResult> transfers;
+
+	/**
+	 * 未变化而跳过的文件数
+	 */
+	private final int unchanged;
+
+	/**
+	 * 比较过程是否完整，远程目录列出失败时为false
+	 */
+	private final boolean complete;
+
+	public SyncResult(List<TransferResult> transfers, int unchanged, boolean complete) {
+		this.transfers = transfers;
+		this.unchanged = unchanged;
+		this.complete = complete;
+	}
+
+	/**
+	 * 传输失败的文件数
+	 * @return 文件数
+	 */
+	public long getFailed() {
+		return transfers.stream().filter(result -> !result.isSuccess()).count();
+	}
+
+	/**
+	 * 比较完整且所有传输都成功
+	 * @return 成功返回true
+	 */
+	public boolean isSuccess() {
+		return complete && getFailed() == 0;
+	}
+}
@@ -0,0 +1,36 @@
+package com.scenetec.ftp.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.File;
+
+/**
+ * 批量传输条目
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@ToString
+public class TransferItem {
+
+	/**
+	 * 本地文件
+	 */
+	private final File localFile;
+
+	/**
+	 * 远程文件，必须包含文件名
+	 */
+	private final String remotePath;
+
+	public TransferItem(File localFile, String remotePath) {
+		this.localFile = localFile;
+		this.remotePath = remotePath;
+	}
+
+	public TransferItem(String localPath, String remotePath) {
+		this(new File(localPath), remotePath);
+	}
+}
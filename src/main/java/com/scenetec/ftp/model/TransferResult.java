@@ -0,0 +1,56 @@
+package com.scenetec.ftp.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 传输结果
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Getter
+@ToString
+public class TransferResult {
+
+	/**
+	 * 远程文件
+	 */
+	private final String remotePath;
+
+	/**
+	 * 是否成功
+	 */
+	private final boolean success;
+
+	/**
+	 * 传输字节数
+	 */
+	private final long bytes;
+
+	/**
+	 * 耗时(毫秒)
+	 */
+	private final long elapsedMillis;
+
+	/**
+	 * 失败原因
+	 */
+	private final String message;
+
+	private TransferResult(String remotePath, boolean success, long bytes, long elapsedMillis, String message) {
+		this.remotePath = remotePath;
+		this.success = success;
+		this.bytes = bytes;
+		this.elapsedMillis = elapsedMillis;
+		this.message = message;
+	}
+
+	public static TransferResult success(String remotePath, long bytes, long elapsedMillis) {
+		return new TransferResult(remotePath, true, bytes, elapsedMillis, null);
+	}
+
+	public static TransferResult failure(String remotePath, long elapsedMillis, String message) {
+		return new TransferResult(remotePath, false, 0, elapsedMillis, message);
+	}
+}
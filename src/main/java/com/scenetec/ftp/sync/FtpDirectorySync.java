@@ -0,0 +1,277 @@
+package com.scenetec.ftp.sync;
+
+import com.scenetec.ftp.core.RemoteDirectoryCache;
+import com.scenetec.ftp.core.TransferJournal;
+import com.scenetec.ftp.model.SyncResult;
+import com.scenetec.ftp.model.TransferItem;
+import com.scenetec.ftp.model.TransferResult;
+import com.scenetec.ftp.template.FtpBaseTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 目录同步
+ * 基于模板的列表和批量传输，按文件大小和修改时间比较本地与远程目录，只传输变化的文件。
+ * 同步结果记录在本地清单中，再次同步时清单显示本地未变化的文件不再列出远程目录；
+ * 首次同步时两端大小一致且目标端不旧于源端的文件视为已同步。
+ * 只新增和覆盖文件，不删除目标端多出的文件。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class FtpDirectorySync {
+
+	/**
+	 * MLSD返回的修改时间精确到秒
+	 */
+	private static final long MLSD_PRECISION_MILLIS = 1000L;
+	/**
+	 * LIST返回的修改时间最多精确到分钟
+	 */
+	private static final long LIST_PRECISION_MILLIS = 60000L;
+
+	private final FtpBaseTemplate template;
+
+	public FtpDirectorySync(FtpBaseTemplate template) {
+		this.template = template;
+	}
+
+	/**
+	 * 将本地目录同步到远程目录，清单保存在本地目录下
+	 * @param localDir 本地目录
+	 * @param remoteDir 远程目录
+	 * @return 同步结果
+	 */
+	public SyncResult upload(File localDir, String remoteDir) {
+		return upload(localDir, remoteDir, new File(localDir, SyncManifest.MANIFEST_NAME));
+	}
+
+	/**
+	 * 将本地目录同步到远程目录
+	 * @param localDir 本地目录
+	 * @param remoteDir 远程目录
+	 * @param manifestFile 清单文件
+	 * @return 同步结果
+	 */
+	public SyncResult upload(File localDir, String remoteDir, File manifestFile) {
+		String remoteRoot = RemoteDirectoryCache.normalize(remoteDir);
+		SyncManifest manifest = SyncManifest.load(manifestFile, remoteRoot);
+		Map<String, File> localFiles;
+		try {
+			localFiles = listLocal(localDir, manifestFile);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("读取本地目录【{}】异常。原因：【{}】", localDir, ex.getMessage());
+			return new SyncResult(Collections.emptyList(), 0, false);
+		}
+
+		// 清单显示未变化的文件不再比较远程
+		Map<String, File> candidates = new LinkedHashMap<>();
+		for (Map.Entry<String, File> entry : localFiles.entrySet()) {
+			SyncManifest.Entry record = manifest.get(entry.getKey());
+			if (record == null || !record.matchesLocal(entry.getValue())) {
+				candidates.put(entry.getKey(), entry.getValue());
+			}
+		}
+		int unchanged = localFiles.size() - candidates.size();
+
+		// 只列出包含待比较文件的远程目录
+		Map<String, FTPFile> remoteFiles = listRemote(remoteRoot, candidates.keySet());
+		List<TransferItem> items = new ArrayList<>();
+		List<String> paths = new ArrayList<>();
+		for (Map.Entry<String, File> entry : candidates.entrySet()) {
+			File localFile = entry.getValue();
+			FTPFile remoteFile = remoteFiles.get(entry.getKey());
+			if (remoteFile != null && isSame(localFile, remoteFile)) {
+				manifest.put(entry.getKey(), new SyncManifest.Entry(localFile.length(), localFile.lastModified(),
+						remoteFile.getSize(), timestamp(remoteFile)));
+				unchanged++;
+				continue;
+			}
+			items.add(new TransferItem(localFile, remoteRoot + entry.getKey()));
+			paths.add(entry.getKey());
+		}
+
+		List<TransferResult> results = items.isEmpty() ? Collections.emptyList() : template.uploadAll(items);
+		for (int i = 0; i < results.size(); i++) {
+			if (results.get(i).isSuccess()) {
+				File localFile = items.get(i).getLocalFile();
+				manifest.put(paths.get(i), new SyncManifest.Entry(localFile.length(), localFile.lastModified(),
+						localFile.length(), -1));
+			}
+		}
+		manifest.retainAll(localFiles.keySet());
+		manifest.save();
+		log.info("目录【{}】同步到【{}】完成，传输{}个，未变化{}个。", localDir, remoteRoot, results.size(), unchanged);
+		return new SyncResult(results, unchanged, true);
+	}
+
+	/**
+	 * 将远程目录同步到本地目录，清单保存在本地目录下
+	 * @param remoteDir 远程目录
+	 * @param localDir 本地目录
+	 * @return 同步结果
+	 */
+	public SyncResult download(String remoteDir, File localDir) {
+		return download(remoteDir, localDir, new File(localDir, SyncManifest.MANIFEST_NAME));
+	}
+
+	/**
+	 * 将远程目录同步到本地目录
+	 * 下载完成的文件修改时间设为远程文件的修改时间。
+	 * @param remoteDir 远程目录
+	 * @param localDir 本地目录
+	 * @param manifestFile 清单文件
+	 * @return 同步结果
+	 */
+	public SyncResult download(String remoteDir, File localDir, File manifestFile) {
+		if (!localDir.exists() && !localDir.mkdirs()) {
+			log.error("创建本地路径失败");
+			return new SyncResult(Collections.emptyList(), 0, false);
+		}
+		String remoteRoot = RemoteDirectoryCache.normalize(remoteDir);
+		SyncManifest manifest = SyncManifest.load(manifestFile, remoteRoot);
+		Map<String, FTPFile> remoteFiles = new ConcurrentHashMap<>();
+		boolean complete = template.walkFileTree(remoteRoot, (path, file) -> {
+			if (file.isFile()) {
+				remoteFiles.put(path.substring(remoteRoot.length()), file);
+			}
+			return true;
+		});
+
+		int unchanged = 0;
+		List<TransferItem> items = new ArrayList<>();
+		List<String> paths = new ArrayList<>();
+		for (Map.Entry<String, FTPFile> entry : remoteFiles.entrySet()) {
+			FTPFile remoteFile = entry.getValue();
+			File localFile = new File(localDir, entry.getKey());
+			SyncManifest.Entry record = manifest.get(entry.getKey());
+			boolean same;
+			if (record != null && localFile.isFile()) {
+				same = record.matchesRemote(remoteFile.getSize(), timestamp(remoteFile)) && record.matchesLocal(localFile);
+			} else {
+				same = localFile.isFile() && isSame(remoteFile, localFile);
+			}
+			if (same) {
+				if (record == null) {
+					manifest.put(entry.getKey(), new SyncManifest.Entry(localFile.length(), localFile.lastModified(),
+							remoteFile.getSize(), timestamp(remoteFile)));
+				}
+				unchanged++;
+				continue;
+			}
+			items.add(new TransferItem(localFile, remoteRoot + entry.getKey()));
+			paths.add(entry.getKey());
+		}
+
+		List<TransferResult> results = items.isEmpty() ? Collections.emptyList() : template.downloadAll(items);
+		for (int i = 0; i < results.size(); i++) {
+			if (!results.get(i).isSuccess()) {
+				continue;
+			}
+			FTPFile remoteFile = remoteFiles.get(paths.get(i));
+			File localFile = items.get(i).getLocalFile();
+			long modified = timestamp(remoteFile);
+			if (modified >= 0 && !localFile.setLastModified(modified)) {
+				log.warn("设置文件【{}】修改时间失败", localFile);
+			}
+			manifest.put(paths.get(i), new SyncManifest.Entry(localFile.length(), localFile.lastModified(),
+					remoteFile.getSize(), modified));
+		}
+		// 远程目录未完整列出时保留清单中的其他记录
+		if (complete) {
+			manifest.retainAll(remoteFiles.keySet());
+		}
+		manifest.save();
+		log.info("目录【{}】同步到【{}】完成，传输{}个，未变化{}个。", remoteRoot, localDir, results.size(), unchanged);
+		return new SyncResult(results, unchanged, complete);
+	}
+
+	/**
+	 * 列出本地目录下的所有文件，不含清单和断点续传日志
+	 * @return 相对路径到文件的映射
+	 */
+	private Map<String, File> listLocal(File localDir, File manifestFile) throws IOException {
+		Path root = localDir.toPath();
+		String manifestPath = manifestFile.getAbsolutePath();
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.filter(Files::isRegularFile)
+					.map(Path::toFile)
+					.filter(file -> !file.getAbsolutePath().startsWith(manifestPath)
+							&& !file.getName().endsWith(TransferJournal.JOURNAL_SUFFIX))
+					.collect(Collectors.toMap(file -> root.relativize(file.toPath()).toString().replace(File.separatorChar, '/'),
+							file -> file, (a, b) -> a, LinkedHashMap::new));
+		}
+	}
+
+	/**
+	 * 列出待比较文件所在的远程目录，每个目录列出一次
+	 * @return 相对路径到远程文件的映射，只包含待比较的文件
+	 */
+	private Map<String, FTPFile> listRemote(String remoteRoot, Iterable<String> relativePaths) {
+		Map<String, Set<String>> directories = new LinkedHashMap<>();
+		for (String path : relativePaths) {
+			String directory = path.substring(0, path.lastIndexOf('/') + 1);
+			directories.computeIfAbsent(directory, key -> new HashSet<>()).add(path);
+		}
+		Map<String, FTPFile> result = new HashMap<>();
+		for (Map.Entry<String, Set<String>> directory : directories.entrySet()) {
+			Set<String> wanted = directory.getValue();
+			try (Stream<FTPFile> files = template.listFiles(remoteRoot + directory.getKey())) {
+				files.filter(FTPFile::isFile).forEach(file -> {
+					String path = directory.getKey() + file.getName();
+					if (wanted.contains(path)) {
+						result.put(path, file);
+					}
+				});
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 上传时，远程文件大小一致且不早于本地文件时视为相同
+	 */
+	private static boolean isSame(File localFile, FTPFile remoteFile) {
+		long modified = timestamp(remoteFile);
+		return remoteFile.getSize() == localFile.length()
+				&& modified >= 0 && modified + precision(remoteFile) > localFile.lastModified();
+	}
+
+	/**
+	 * 下载时，本地文件大小一致且不早于远程文件时视为相同
+	 */
+	private static boolean isSame(FTPFile remoteFile, File localFile) {
+		long modified = timestamp(remoteFile);
+		return remoteFile.getSize() == localFile.length()
+				&& modified >= 0 && localFile.lastModified() + precision(remoteFile) > modified;
+	}
+
+	private static long timestamp(FTPFile remoteFile) {
+		Calendar timestamp = remoteFile.getTimestamp();
+		return timestamp == null ? -1 : timestamp.getTimeInMillis();
+	}
+
+	private static long precision(FTPFile remoteFile) {
+		String raw = remoteFile.getRawListing();
+		return raw != null && raw.toLowerCase().contains("modify=") ? MLSD_PRECISION_MILLIS : LIST_PRECISION_MILLIS;
+	}
+}
@@ -0,0 +1,212 @@
+package com.scenetec.ftp.sync;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 目录同步清单
+ * 以properties格式保存在本地，记录上次同步成功时每个文件两端的大小和修改时间，
+ * 再次同步时两端都未变化的文件直接跳过。清单对应的远程目录变化时清单作废。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+public class SyncManifest {
+
+	/**
+	 * 清单文件默认名称，保存在本地目录下，同步时不传输
+	 */
+	public static final String MANIFEST_NAME = ".ftp-sync-manifest";
+
+	private static final String KEY_REMOTE_ROOT = "@remoteRoot";
+	private static final String FIELD_SEPARATOR = ",";
+
+	private final File manifestFile;
+	@Getter
+	private final String remoteRoot;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private SyncManifest(File manifestFile, String remoteRoot) {
+		this.manifestFile = manifestFile;
+		this.remoteRoot = remoteRoot;
+	}
+
+	/**
+	 * 读取清单
+	 * @param manifestFile 清单文件
+	 * @param remoteRoot 同步的远程目录
+	 * @return 清单文件存在且属于同一远程目录时返回其内容，否则返回空清单
+	 */
+	public static SyncManifest load(File manifestFile, String remoteRoot) {
+		SyncManifest manifest = new SyncManifest(manifestFile, remoteRoot);
+		if (manifestFile.exists()) {
+			manifest.read();
+		}
+		return manifest;
+	}
+
+	/**
+	 * 获取文件的同步记录
+	 * @param relativePath 相对同步目录的路径，以"/"分隔
+	 * @return 同步记录，未同步过返回null
+	 */
+	public Entry get(String relativePath) {
+		return entries.get(relativePath);
+	}
+
+	/**
+	 * 记录文件已同步
+	 * @param relativePath 相对同步目录的路径，以"/"分隔
+	 * @param entry 同步记录
+	 */
+	public void put(String relativePath, Entry entry) {
+		entries.put(relativePath, entry);
+	}
+
+	/**
+	 * 删除已不存在的文件的记录
+	 * @param relativePaths 仍然存在的文件
+	 */
+	public void retainAll(Collection<String> relativePaths) {
+		entries.keySet().retainAll(relativePaths);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * 保存清单，先写临时文件再替换，避免中断时留下残缺的清单
+	 */
+	public void save() {
+		Properties props = new Properties();
+		props.setProperty(KEY_REMOTE_ROOT, remoteRoot);
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			props.setProperty(entry.getKey(), entry.getValue().format());
+		}
+
+		File tmpFile = new File(manifestFile.getPath() + ".tmp");
+		try (OutputStream os = new FileOutputStream(tmpFile)) {
+			props.store(os, null);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("Failed to write sync manifest {}", manifestFile);
+			return;
+		}
+		try {
+			Files.move(tmpFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("Failed to replace sync manifest {}", manifestFile);
+		}
+	}
+
+	private void read() {
+		Properties props = new Properties();
+		try (InputStream is = new FileInputStream(manifestFile)) {
+			props.load(is);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.warn("Ignore broken sync manifest {}", manifestFile);
+			return;
+		}
+		if (!Objects.equals(remoteRoot, props.getProperty(KEY_REMOTE_ROOT))) {
+			log.info("Sync manifest {} belongs to another remote directory, ignored.", manifestFile);
+			return;
+		}
+		for (String key : props.stringPropertyNames()) {
+			if (KEY_REMOTE_ROOT.equals(key)) {
+				continue;
+			}
+			Entry entry = Entry.parse(props.getProperty(key));
+			if (entry != null) {
+				entries.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * 一个文件的同步记录
+	 */
+	@Getter
+	public static final class Entry {
+
+		/**
+		 * 本地文件大小
+		 */
+		private final long localLength;
+
+		/**
+		 * 本地文件修改时间
+		 */
+		private final long localModified;
+
+		/**
+		 * 远程文件大小
+		 */
+		private final long remoteSize;
+
+		/**
+		 * 远程文件修改时间，未知时为-1
+		 */
+		private final long remoteModified;
+
+		public Entry(long localLength, long localModified, long remoteSize, long remoteModified) {
+			this.localLength = localLength;
+			this.localModified = localModified;
+			this.remoteSize = remoteSize;
+			this.remoteModified = remoteModified;
+		}
+
+		/**
+		 * 本地文件是否未变化
+		 * @param localFile 本地文件
+		 * @return 大小和修改时间与记录一致返回true
+		 */
+		public boolean matchesLocal(File localFile) {
+			return localLength == localFile.length() && localModified == localFile.lastModified();
+		}
+
+		/**
+		 * 远程文件是否未变化
+		 * @param size 远程文件大小
+		 * @param modified 远程文件修改时间，未知时为-1
+		 * @return 大小和修改时间与记录一致返回true
+		 */
+		public boolean matchesRemote(long size, long modified) {
+			return remoteSize == size && remoteModified == modified;
+		}
+
+		String format() {
+			return localLength + FIELD_SEPARATOR + localModified + FIELD_SEPARATOR + remoteSize + FIELD_SEPARATOR + remoteModified;
+		}
+
+		static Entry parse(String value) {
+			String[] fields = value.split(FIELD_SEPARATOR);
+			if (fields.length != 4) {
+				return null;
+			}
+			try {
+				return new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+						Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+			} catch (NumberFormatException ex) {
+				return null;
+			}
+		}
+	}
+}
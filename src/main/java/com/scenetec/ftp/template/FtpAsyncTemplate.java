@@ -0,0 +1,167 @@
+package com.scenetec.ftp.template;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.TransferPriority;
+import com.scenetec.ftp.core.VirtualThreads;
+import com.scenetec.ftp.model.TransferResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * 异步传输模板
+ * 传输任务提交到与连接池大小一致的有界线程池，调用线程立即返回CompletableFuture。
+ * 队列已满时由调用线程执行任务，形成背压；启用虚拟线程时同时运行的任务数同样不超过线程池大小，
+ * 其余任务排队等待，排队的任务数以信号量限制，超出时提交线程等待。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+@Component
+public class FtpAsyncTemplate {
+
+	private final FtpPoolTemplate ftpPoolTemplate;
+	private final ExecutorService executor;
+	/**
+	 * 虚拟线程模式下限制运行和排队的任务总数，平台线程模式下为null
+	 */
+	private final Semaphore permits;
+
+	public FtpAsyncTemplate(FtpPoolTemplate ftpPoolTemplate, FtpClientProperties config) {
+		this.ftpPoolTemplate = ftpPoolTemplate;
+		int poolSize = config.getAsyncPoolSize() != null ? config.getAsyncPoolSize() : config.getMaxTotal();
+		ExecutorService virtualExecutor = config.isAsyncVirtualThreads() ? VirtualThreads.newExecutor(poolSize) : null;
+		if (virtualExecutor != null) {
+			// 同时运行的任务数与连接池一致，多出的任务排队而不是在借连接时超时
+			this.executor = virtualExecutor;
+			this.permits = new Semaphore(poolSize + config.getAsyncQueueCapacity());
+			log.info("FTP async template uses virtual threads.");
+		} else {
+			if (config.isAsyncVirtualThreads()) {
+				log.warn("Virtual threads are not supported by this JDK, fall back to platform threads.");
+			}
+			this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<>(config.getAsyncQueueCapacity()),
+					new CustomizableThreadFactory("ftp-async-"),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+			this.permits = null;
+		}
+	}
+
+	/**
+	 * 异步上传文件
+	 * @param localFile 本地文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 传输结果
+	 */
+	public CompletableFuture<TransferResult> uploadFile(File localFile, String remotePath) {
+		return submit(remotePath, localFile::length, () -> ftpPoolTemplate.uploadFile(localFile, remotePath));
+	}
+
+	/**
+	 * 异步上传文件
+	 * @param localPath 本地路径
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 传输结果
+	 */
+	public CompletableFuture<TransferResult> uploadFile(String localPath, String remotePath) {
+		return uploadFile(new File(localPath), remotePath);
+	}
+
+	/**
+	 * 异步上传文件
+	 * @param fileContent 文件内容
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 传输结果
+	 */
+	public CompletableFuture<TransferResult> uploadFile(byte[] fileContent, String remotePath) {
+		return submit(remotePath, () -> fileContent.length, () -> ftpPoolTemplate.uploadFile(fileContent, remotePath));
+	}
+
+	/**
+	 * 异步下载文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param localFile 本地文件
+	 * @return 传输结果
+	 */
+	public CompletableFuture<TransferResult> downloadFile(String remotePath, File localFile) {
+		return submit(remotePath, localFile::length, () -> ftpPoolTemplate.downloadFile(localFile, remotePath));
+	}
+
+	/**
+	 * 异步下载文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param localPath 本地路径，必须包含文件名（全路径）
+	 * @return 传输结果
+	 */
+	public CompletableFuture<TransferResult> downloadFile(String remotePath, String localPath) {
+		return downloadFile(remotePath, new File(localPath));
+	}
+
+	/**
+	 * 异步删除文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 删除结果
+	 */
+	public CompletableFuture<TransferResult> deleteFile(String remotePath) {
+		return submit(remotePath, () -> 0L, () -> ftpPoolTemplate.deleteFile(remotePath));
+	}
+
+	private CompletableFuture<TransferResult> submit(String remotePath, LongSupplier bytes, BooleanSupplier operation) {
+		if (permits != null) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				CompletableFuture<TransferResult> future = new CompletableFuture<>();
+				future.completeExceptionally(ex);
+				return future;
+			}
+		}
+		CompletableFuture<TransferResult> future;
+		try {
+			// 以提交线程的传输优先级执行
+			future = CompletableFuture.supplyAsync(TransferPriority.propagate(() -> {
+				long start = System.currentTimeMillis();
+				boolean success;
+				String failure;
+				try {
+					success = operation.getAsBoolean();
+				} finally {
+					failure = ftpPoolTemplate.takeFailure();
+				}
+				long elapsed = System.currentTimeMillis() - start;
+				return success ? TransferResult.success(remotePath, bytes.getAsLong(), elapsed)
+						: TransferResult.failure(remotePath, elapsed, StringUtils.defaultString(failure, "传输失败"));
+			}), executor);
+		} catch (RejectedExecutionException ex) {
+			if (permits != null) {
+				permits.release();
+			}
+			throw ex;
+		}
+		if (permits != null) {
+			future.whenComplete((result, ex) -> permits.release());
+		}
+		return future;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdown();
+	}
+}
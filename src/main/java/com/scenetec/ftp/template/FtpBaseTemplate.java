@@ -1,10 +1,55 @@
 package com.scenetec.ftp.template;
 
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.BandwidthLimiter;
+import com.scenetec.ftp.core.FtpChannelClient;
+import com.scenetec.ftp.core.FxpTransfer;
+import com.scenetec.ftp.core.RemoteChecksum;
+import com.scenetec.ftp.core.RemoteDirectoryCache;
+import com.scenetec.ftp.core.RemoteFileCache;
+import com.scenetec.ftp.core.RemoteFileIterator;
+import com.scenetec.ftp.core.TransferJournal;
+import com.scenetec.ftp.core.TransferPriority;
+import com.scenetec.ftp.io.CountingInputStream;
+import com.scenetec.ftp.io.CountingOutputStream;
+import com.scenetec.ftp.io.HashAlgorithm;
+import com.scenetec.ftp.io.TransferCodec;
+import com.scenetec.ftp.io.TransferCodecs;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import com.scenetec.ftp.metrics.TransferDirection;
+import com.scenetec.ftp.model.TransferItem;
+import com.scenetec.ftp.model.TransferResult;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author shendunyuan@scenetec.com
@@ -13,6 +58,81 @@ import java.io.*;
 @Slf4j
 public abstract class FtpBaseTemplate {
 
+	/**
+	 * 替换目标文件时原文件的备份后缀
+	 */
+	private static final String BACKUP_SUFFIX = ".bak";
+
+	/**
+	 * 断点续传上传的临时文件在原子上传后缀前的标记，清理遗留临时文件时不删除
+	 */
+	private static final String RESUMABLE_MARK = ".resume";
+
+	/**
+	 * 复制时获取目标连接失败后重试的退避时间范围
+	 * 单位:毫秒
+	 */
+	private static final long PAIR_RETRY_MIN_MILLIS = 5;
+	private static final long PAIR_RETRY_MAX_MILLIS = 50;
+
+	protected final FtpClientProperties config;
+
+	/**
+	 * 远程目录缓存，同一模板的所有连接共享
+	 */
+	protected final RemoteDirectoryCache directoryCache;
+
+	/**
+	 * 下载文件缓存，同一模板的所有连接共享
+	 */
+	protected final RemoteFileCache fileCache;
+
+	/**
+	 * 带宽限制，同一模板的所有传输共享
+	 */
+	protected final BandwidthLimiter bandwidthLimiter;
+
+	/**
+	 * 当前线程最近一次失败的原因，传输方法只返回布尔值，由调用方按需取出
+	 */
+	private final ThreadLocal<String> lastFailure = new ThreadLocal<>();
+
+	protected FtpBaseTemplate(FtpClientProperties config) {
+		this(config, new BandwidthLimiter(config));
+	}
+
+	/**
+	 * @param config 配置
+	 * @param bandwidthLimiter 带宽限制，多个模板共享同一条链路时传入同一个实例
+	 */
+	protected FtpBaseTemplate(FtpClientProperties config, BandwidthLimiter bandwidthLimiter) {
+		this(config, bandwidthLimiter, newFileCache(config));
+	}
+
+	/**
+	 * @param config 配置
+	 * @param bandwidthLimiter 带宽限制，多个模板共享同一条链路时传入同一个实例
+	 * @param fileCache 下载文件缓存，多个模板共享缓存容量时传入同一个实例，并以{@link #cacheKey(String)}区分服务器
+	 */
+	protected FtpBaseTemplate(FtpClientProperties config, BandwidthLimiter bandwidthLimiter, RemoteFileCache fileCache) {
+		this.config = config;
+		this.directoryCache = new RemoteDirectoryCache(config.getDirectoryCacheSize(),
+				config.getDirectoryCacheTtlSeconds(), TimeUnit.SECONDS);
+		this.bandwidthLimiter = bandwidthLimiter;
+		this.fileCache = fileCache;
+	}
+
+	/**
+	 * 按配置创建下载文件缓存
+	 * @param config 配置
+	 * @return 下载文件缓存，未配置容量时不启用
+	 */
+	protected static RemoteFileCache newFileCache(FtpClientProperties config) {
+		return new RemoteFileCache(config.getFileCacheMaxBytes(), config.getFileCacheMaxEntryBytes(),
+				StringUtils.isBlank(config.getFileCacheDiskDir()) ? null : new File(config.getFileCacheDiskDir()),
+				config.getFileCacheDiskMaxBytes());
+	}
+
 	/**
 	 * 上传文件
 	 *
@@ -38,6 +158,7 @@ public abstract class FtpBaseTemplate {
 	public boolean uploadFile(File localFile, String remotePath) {
 		if (!localFile.exists()) {
 			log.error("本地文件不存在");
+			recordFailure("本地文件不存在");
 			return false;
 		}
 		if (!localFile.isFile()) {
@@ -46,34 +167,30 @@ public abstract class FtpBaseTemplate {
 		if (StringUtils.isBlank(remotePath)) {
 			remotePath = "/";
 		}
-		FileInputStream fis = null;
-		BufferedInputStream bis = null;
-		try {
-			fis = new FileInputStream(localFile);
-			bis = new BufferedInputStream(fis);
-			// 上传
-			return uploadFile(bis, remotePath);
-		} catch (FileNotFoundException fex) {
-			fex.printStackTrace();
-			log.error("系统找不到指定的文件：{}", localFile);
-		} catch (Exception ex) {
-			ex.printStackTrace();
-			log.error("上传文件异常。");
-		} finally {
-			try {
-				if (bis != null) {
-					bis.close();
-				}
-			} catch (Exception ex) {
-				ex.printStackTrace();
-			}
-			try {
-				if (fis != null) {
-					fis.close();
+		// 校验时需要在传输的同时计算校验值，不使用零拷贝
+		if (isZeroCopy() && !isVerifyIntegrity()) {
+			return uploadFileChannel(localFile, remotePath);
+		}
+		// 设置重试次数，文件流读取后无法重置，每次重试重新打开文件并使用新的连接
+		final int retryTime = 3;
+
+		for (int i = 0; i <= retryTime; i++) {
+			try (InputStream fis = new BufferedInputStream(new FileInputStream(localFile), config.getBufferSize())) {
+				// 上传
+				if (uploadFile(fis, remotePath)) {
+					return true;
 				}
+			} catch (FileNotFoundException fex) {
+				fex.printStackTrace();
+				log.error("系统找不到指定的文件：{}", localFile);
+				recordFailure(fex);
+				return false;
 			} catch (Exception ex) {
 				ex.printStackTrace();
+				log.error("上传文件异常。");
+				recordFailure(ex);
 			}
+			log.warn("文件【{}】上传失败，重新打开文件上传...尝试{}次", remotePath, i);
 		}
 		return false;
 	}
@@ -88,6 +205,7 @@ public abstract class FtpBaseTemplate {
 	public boolean uploadFile(byte[] fileContent, String remotePath) {
 		if (fileContent == null || fileContent.length <= 0) {
 			log.error("上传文件内容为空。");
+			recordFailure("上传文件内容为空");
 			return false;
 		}
 		InputStream is = null;
@@ -98,6 +216,7 @@ public abstract class FtpBaseTemplate {
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			log.error("上传文件异常。原因：【{}】", ex.getMessage());
+			recordFailure(ex);
 		} finally {
 			try {
 				if (is != null) {
@@ -141,10 +260,15 @@ public abstract class FtpBaseTemplate {
 				boolean bool = parentFile.mkdirs();
 				if (!bool) {
 					log.error("创建本地路径失败");
+					recordFailure("创建本地路径失败");
 					return false;
 				}
 			}
 		}
+		// 开启缓存时经缓存读写，不使用零拷贝
+		if (isZeroCopy() && !isVerifyIntegrity() && !fileCache.isEnabled()) {
+			return downloadFileChannel(remotePath, localFile);
+		}
 		OutputStream os = null;
 		try {
 			os = new FileOutputStream(localFile);
@@ -153,6 +277,7 @@ public abstract class FtpBaseTemplate {
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			log.error("下载文件异常。原因：【{}】", ex.getMessage());
+			recordFailure(ex);
 		} finally {
 			try {
 				if (os != null) {
@@ -165,6 +290,73 @@ public abstract class FtpBaseTemplate {
 		return false;
 	}
 
+	/**
+	 * 压缩上传文件
+	 * 读取本地文件的同时编码后写入数据连接，远程文件为编码后的内容。
+	 *
+	 * @param localFile 本地文件
+	 * @param remotePath 远程文件，必须包含文件名，通常带有编码对应的扩展名
+	 * @param codec 编解码，见{@link TransferCodecs}
+	 * @return 上传成功返回true， 否则返回false
+	 */
+	public boolean uploadFile(File localFile, String remotePath, TransferCodec codec) {
+		if (codec == null) {
+			log.error("编解码不可用");
+			return false;
+		}
+		if (!localFile.isFile()) {
+			log.error("本地文件不存在");
+			return false;
+		}
+		FTPClient client = null;
+		try (InputStream is = new FileInputStream(localFile)) {
+			client = borrowClient();
+			return uploadEncoded(client, is, remotePath, codec);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("上传文件异常。原因：【{}】", ex.getMessage());
+		} finally {
+			if (client != null) {
+				returnClient(client);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 下载并解压文件
+	 * 读取数据连接的同时解码后写入本地文件，本地文件为解码后的内容。
+	 *
+	 * @param localFile 本地文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param codec 编解码，见{@link TransferCodecs}
+	 * @return 下载成功返回true，否则返回false
+	 */
+	public boolean downloadFile(File localFile, String remotePath, TransferCodec codec) {
+		if (codec == null) {
+			log.error("编解码不可用");
+			return false;
+		}
+		File parentFile = localFile.getAbsoluteFile().getParentFile();
+		if (!parentFile.exists() && !parentFile.mkdirs()) {
+			log.error("创建本地路径失败");
+			return false;
+		}
+		FTPClient client = null;
+		try (OutputStream os = new FileOutputStream(localFile)) {
+			client = borrowClient();
+			return downloadDecoded(client, remotePath, os, codec);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("下载文件异常。原因：【{}】", ex.getMessage());
+		} finally {
+			if (client != null) {
+				returnClient(client);
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * 删除文件
 	 * @param remotePath 远程文件，必须包含文件名
@@ -179,186 +371,1630 @@ public abstract class FtpBaseTemplate {
 	}
 
 	/**
-	 * 上传文件
-	 * @param inputStream 文件流
-	 * @param remotePath 远程路径，必须包含文件名
-	 * @return 上传成功返回true，否则返回false
-	 */
-	protected abstract boolean uploadFile(InputStream inputStream, String remotePath);
-	/**
-	 * 下载文件
-	 * @param remotePath 远程文件，必须包含文件名
-	 * @param outputStream 本地文件流
-	 * @return 下载成功返回true，否则返回false
+	 * 批量上传文件
+	 * 按远程目录分组，每组只切换一次工作目录，各组分配到不同连接并行上传
+	 *
+	 * @param items 上传条目
+	 * @return 与条目顺序一致的传输结果
 	 */
-	protected abstract boolean downloadFile(String remotePath, OutputStream outputStream);
+	public List<TransferResult> uploadAll(Collection<TransferItem> items) {
+		return transferAll(items, true);
+	}
+
 	/**
-	 * 删除文件
-	 * @param remotePath 程文件，必须包含文件名
-	 * @return 删除成功返回true，否则返回false
+	 * 批量下载文件
+	 * 按远程目录分组，每组只切换一次工作目录，各组分配到不同连接并行下载
+	 *
+	 * @param items 下载条目
+	 * @return 与条目顺序一致的传输结果
 	 */
-	protected abstract boolean deleFile(String remotePath);
+	public List<TransferResult> downloadAll(Collection<TransferItem> items) {
+		return transferAll(items, false);
+	}
 
 	/**
-	 * 上传文件
+	 * 列出远程目录
+	 * 条目边读取边解析，不在内存中保存整个目录。列表占用一个连接直到流关闭，
+	 * 必须在try-with-resources中使用。列出失败时返回空流。
 	 *
-	 * @param client ftp客户端
-	 * @param inputStream 文件流
-	 * @param remotePath 远程文件，必须包含文件名
-	 * @return 上传成功返回true， 否则返回false
+	 * @param remotePath 远程目录
+	 * @return 目录下的文件和子目录，不含"."和".."
 	 */
-	protected boolean uploadHandle(FTPClient client, InputStream inputStream, String remotePath) {
-		// 上传
+	public Stream<FTPFile> listFiles(String remotePath) {
+		if (StringUtils.isBlank(remotePath)) {
+			remotePath = "/";
+		}
+		FTPClient client = null;
 		try {
-			// 获取远程文件路径
-			String remoteFilePath = getRemoteFilePath(remotePath);
-			// 获取远程文件名
-			String remoteFileName = getRemoteFileName(remotePath);
-			// 切换工作路径
-			boolean bool = changeDirectory(client, remoteFilePath);
-			if (!bool) {
-				log.error("切换工作路径失败，{}", client.getReplyString());
-				return false;
-			}
-			// 设置重试次数
-			final int retryTime = 3;
-			boolean retryResult = false;
-
-			for (int i = 0; i <= retryTime; i++) {
-				boolean success = client.storeFile(remoteFileName, inputStream);
-				if (success) {
-					log.info("文件【{}】上传成功。", remotePath);
-					retryResult = true;
-					break;
-				} else {
-					log.error("文件上传失败。{}", client.getReplyString());
-				}
-				log.warn("文件【{}】上传失败,重试上传...尝试{}次", remotePath, i);
+			client = borrowClient();
+			RemoteFileIterator iterator = RemoteFileIterator.open(client, remotePath);
+			if (iterator == null) {
+				log.error("列出目录【{}】失败，{}", remotePath, client.getReplyString());
+				returnClient(client);
+				return Stream.empty();
 			}
-
-			return retryResult;
+			FTPClient listClient = client;
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+					Spliterator.ORDERED | Spliterator.NONNULL), false)
+					.onClose(() -> closeListing(listClient, iterator));
 		} catch (Exception ex) {
 			ex.printStackTrace();
-			log.error("上传文件异常。");
+			log.error("列出目录【{}】异常。原因：【{}】", remotePath, ex.getMessage());
+			markBroken(client, ex);
+			if (client != null) {
+				returnClient(client);
+			}
 		}
+		return Stream.empty();
+	}
 
-		return false;
+	/**
+	 * 递归遍历远程目录
+	 * 每个目录使用一个连接列出，子目录通过批量传输线程池并行遍历；
+	 * 列出一个目录期间占用该连接，回调中不宜再使用同一模板传输文件。
+	 *
+	 * @param remotePath 远程目录
+	 * @param visitor 回调，对每个文件和目录调用一次
+	 * @return 所有目录都列出成功返回true，否则返回false
+	 */
+	public boolean walkFileTree(String remotePath, FtpFileVisitor visitor) {
+		if (StringUtils.isBlank(remotePath)) {
+			remotePath = "/";
+		}
+		return walkDirectory(RemoteDirectoryCache.normalize(remotePath), visitor).join();
+	}
+
+	private CompletableFuture<Boolean> walkDirectory(String directory, FtpFileVisitor visitor) {
+		return CompletableFuture.supplyAsync(() -> listDirectory(directory, visitor), getBatchExecutor())
+				.thenCompose(subdirectories -> {
+					if (subdirectories == null) {
+						return CompletableFuture.completedFuture(false);
+					}
+					List<CompletableFuture<Boolean>> futures = new ArrayList<>(subdirectories.size());
+					for (String subdirectory : subdirectories) {
+						futures.add(walkDirectory(subdirectory, visitor));
+					}
+					return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+							.thenApply(v -> futures.stream().allMatch(CompletableFuture::join));
+				});
 	}
 
 	/**
-	 * 下载文件
-	 * @param client ftp客户端
-	 * @param remotePath 远程文件，必须包含文件名
-	 * @param outputStream 本地文件流
-	 * @return 下载成功返回true，否则返回false
+	 * 列出一个目录并回调
+	 * @return 需要继续遍历的子目录，列出失败返回null
 	 */
-	protected boolean downloadHandle(FTPClient client, String remotePath, OutputStream outputStream) {
-		// 下载
+	private List<String> listDirectory(String directory, FtpFileVisitor visitor) {
+		List<String> subdirectories = new ArrayList<>();
+		FTPClient client = null;
+		RemoteFileIterator iterator = null;
 		try {
-			// 获取远程文件路径
-			String remoteFilePath = getRemoteFilePath(remotePath);
-			// 获取远程文件名
-			String remoteFileName = getRemoteFileName(remotePath);
-			// 切换工作路径
-			boolean bool = client.changeWorkingDirectory(remoteFilePath);
-			if (!bool) {
-				log.error("切换工作路径失败，{}", client.getReplyString());
-				return false;
+			client = borrowClient();
+			iterator = RemoteFileIterator.open(client, directory);
+			if (iterator == null) {
+				log.error("列出目录【{}】失败，{}", directory, client.getReplyString());
+				return null;
 			}
-			// 设置重试次数
-			final int retryTime = 3;
-			boolean retryResult = false;
-
-			for (int i = 0; i <= retryTime; i++) {
-				boolean success = client.retrieveFile(remoteFileName, outputStream);
-				if (success) {
-					log.info("文件【{}】下载成功。", remotePath);
-					retryResult = true;
-					break;
-				} else {
-					log.error("文件下载失败。 {}", client.getReplyString());
+			while (iterator.hasNext()) {
+				FTPFile file = iterator.next();
+				String path = directory + file.getName();
+				if (visitor.visit(path, file) && file.isDirectory()) {
+					subdirectories.add(path + "/");
 				}
-				log.warn("文件【{}】下载失败，重试下载...尝试{}次", remotePath, i);
 			}
-			// 返回结果
-			return retryResult;
+			return subdirectories;
 		} catch (Exception ex) {
 			ex.printStackTrace();
-			log.error("下载文件异常。");
+			log.error("遍历目录【{}】异常。原因：【{}】", directory, ex.getMessage());
+			markBroken(client, ex);
 		} finally {
+			if (iterator != null) {
+				closeListing(client, iterator);
+			} else if (client != null) {
+				returnClient(client);
+			}
+		}
+		return null;
+	}
 
+	/**
+	 * 关闭目录列表并归还连接
+	 */
+	private void closeListing(FTPClient client, RemoteFileIterator iterator) {
+		try {
+			iterator.close();
+		} catch (IOException ex) {
+			log.error("关闭目录列表异常。原因：【{}】", ex.getMessage());
+			markBroken(client);
+		} finally {
+			if (iterator.isFailed()) {
+				markBroken(client);
+			}
+			returnClient(client);
 		}
-		return false;
 	}
 
 	/**
-	 * 删除文件
-	 * @param remotePath 远程文件，必须包含文件名
-	 * @return 删除成功返回true，否则返回false
+	 * 将文件复制到另一个FTP服务器，数据不落本地磁盘
+	 * 两台服务器都允许时使用FXP直接在服务器间传输，否则经本机内存中转，
+	 * 中转时只占用一个传输缓冲区。目标模板开启原子上传时先写临时文件再改名。
+	 * 目标模板可以是本模板，同一服务器内复制同样占用两个连接，连接池最大连接数应不小于2。
+	 *
+	 * @param sourcePath 本模板服务器上的源文件
+	 * @param target 目标服务器的模板
+	 * @param targetPath 目标文件，必须包含文件名
+	 * @return 复制成功返回true，否则返回false
 	 */
-	protected boolean deleteHandle(FTPClient client, String remotePath) {
+	public boolean copyTo(String sourcePath, FtpBaseTemplate target, String targetPath) {
+		if (StringUtils.isBlank(sourcePath) || StringUtils.isBlank(targetPath)) {
+			log.error("远程路径为空");
+			return false;
+		}
+		String targetFilePath = getRemoteFilePath(targetPath);
+		String targetFileName = getRemoteFileName(targetPath);
+		FTPClient source = null;
+		FTPClient dest = null;
 		try {
-			// 删除文件
-			boolean bool = client.deleteFile(remotePath);
-			if (!bool) {
-				log.error("删除文件失败，{}", client.getReplyString());
+			FTPClient[] pair = borrowPair(target);
+			source = pair[0];
+			dest = pair[1];
+			if (!target.changeDirectory(dest, targetFilePath)) {
+				log.error("切换工作路径失败，{}", dest.getReplyString());
+				return false;
 			}
-			return bool;
+			String storeName = target.isAtomicUpload() ? target.tempName(targetFileName) : targetFileName;
+			boolean copied = false;
+			boolean fxp = config.isFxpEnabled() && target.config.isFxpEnabled()
+					&& source instanceof FtpChannelClient && dest instanceof FtpChannelClient
+					// 两端传输模式不同时数据无法直接对接
+					&& ((FtpChannelClient) source).isDeflateMode() == ((FtpChannelClient) dest).isDeflateMode();
+			if (fxp) {
+				try {
+					copied = FxpTransfer.transfer((FtpChannelClient) source, sourcePath, (FtpChannelClient) dest, storeName);
+				} catch (IOException ex) {
+					log.warn("服务器间直接传输【{}】失败，改为中转。原因：【{}】", sourcePath, ex.getMessage());
+					// 连接状态未知，换新连接中转
+					markBroken(source);
+					returnClient(source);
+					source = null;
+					target.markBroken(dest);
+					target.returnClient(dest);
+					dest = null;
+					pair = borrowPair(target);
+					source = pair[0];
+					dest = pair[1];
+					if (!target.changeDirectory(dest, targetFilePath)) {
+						log.error("切换工作路径失败，{}", dest.getReplyString());
+						return false;
+					}
+				}
+			}
+			if (!copied) {
+				copied = relay(source, sourcePath, dest, storeName);
+			}
+			if (copied && target.isAtomicUpload()) {
+				copied = target.commitUpload(dest, storeName, targetFileName);
+			} else if (!copied && target.isAtomicUpload()) {
+				dest.deleteFile(storeName);
+			}
+			if (copied) {
+				log.info("文件【{}】复制到【{}】成功。", sourcePath, targetPath);
+			} else {
+				log.error("文件【{}】复制失败。源：{}目标：{}", sourcePath, source.getReplyString(), dest.getReplyString());
+			}
+			return copied;
 		} catch (Exception ex) {
 			ex.printStackTrace();
-			log.error("删除文件异常。");
+			log.error("复制文件异常。原因：【{}】", ex.getMessage());
+			markBroken(source, ex);
+			target.markBroken(dest, ex);
+		} finally {
+			target.invalidateCache(targetPath);
+			if (source != null) {
+				returnClient(source);
+			}
+			if (dest != null) {
+				target.returnClient(dest);
+			}
 		}
 		return false;
 	}
 
 	/**
-	 * 获取远程工作目录
-	 * @param remotePath 远程路径
-	 * @return 返回工作路径
+	 * 获取复制使用的源连接和目标连接
+	 * 持有源连接时不等待地获取目标连接，失败时先归还源连接，稍后重新获取，
+	 * 避免并发复制(尤其是同一服务器内复制)各持有一个连接、互相等待对方归还。
+	 * @return 源连接和目标连接
 	 */
-	private String getRemoteFilePath(String remotePath) {
-		if (StringUtils.isNotBlank(remotePath)) {
-			return remotePath.substring(0, remotePath.lastIndexOf("/") + 1);
+	private FTPClient[] borrowPair(FtpBaseTemplate target) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+		while (true) {
+			FTPClient source = borrowClient();
+			try {
+				return new FTPClient[]{source, target.tryBorrowClient()};
+			} catch (NoSuchElementException ex) {
+				returnClient(source);
+				if (System.nanoTime() - deadline >= 0) {
+					throw ex;
+				}
+			} catch (Exception ex) {
+				returnClient(source);
+				throw ex;
+			}
+			// 随机退避，错开同时重试的复制
+			Thread.sleep(ThreadLocalRandom.current().nextLong(PAIR_RETRY_MIN_MILLIS, PAIR_RETRY_MAX_MILLIS));
 		}
-		return "/";
 	}
 
 	/**
-	 * 获取远程文件名
-	 * @param remotePath 远程路径
-	 * @return 返回文件名
+	 * 经本机中转复制，边下载边上传
 	 */
-	private String getRemoteFileName(String remotePath) {
-		if (StringUtils.isNotBlank(remotePath)) {
-			return remotePath.substring(remotePath.lastIndexOf("/") + 1);
+	private boolean relay(FTPClient source, String sourcePath, FTPClient dest, String storeName) throws IOException {
+		InputStream is = source.retrieveFileStream(sourcePath);
+		if (is == null) {
+			return false;
 		}
-		return "";
+		OutputStream os;
+		try {
+			os = dest.storeFileStream(storeName);
+		} catch (IOException ex) {
+			is.close();
+			source.completePendingCommand();
+			throw ex;
+		}
+		if (os == null) {
+			is.close();
+			source.completePendingCommand();
+			return false;
+		}
+		byte[] buffer = new byte[config.getBufferSize()];
+		try (BandwidthLimiter.Permit permit = bandwidthLimiter.open()) {
+			InputStream throttled = permit.wrap(is);
+			int len;
+			while ((len = throttled.read(buffer)) != -1) {
+				os.write(buffer, 0, len);
+			}
+		} finally {
+			is.close();
+			os.close();
+		}
+		boolean retrieved = source.completePendingCommand();
+		boolean stored = dest.completePendingCommand();
+		return retrieved && stored;
 	}
 
 	/**
-	 * 切换工作目录
-	 * @param client ftp客户端
-	 * @param dir 工作目录
-	 * @return 切换成功返回true，否则返回false
+	 * 批量传输使用的线程池，默认在调用线程中依次执行
+	 * @return 线程池
 	 */
-	private boolean changeDirectory(FTPClient client, String dir) {
-		try {
-			if (client == null || StringUtils.isBlank(dir)) {
-				return false;
-			}
-
-			String fileBackslashSeparator = "\\";
-			String fileSeparator = "/";
+	protected Executor getBatchExecutor() {
+		return Runnable::run;
+	}
 
-			if (StringUtils.contains(dir, fileBackslashSeparator)) {
-				dir = StringUtils.replaceAll(dir, fileBackslashSeparator, fileSeparator);
-			}
+	/**
+	 * 上传文件
+	 * @param inputStream 文件流
+	 * @param remotePath 远程路径，必须包含文件名
+	 * @return 上传成功返回true，否则返回false
+	 */
+	protected abstract boolean uploadFile(InputStream inputStream, String remotePath);
+	/**
+	 * 下载文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param outputStream 本地文件流
+	 * @return 下载成功返回true，否则返回false
+	 */
+	protected abstract boolean downloadFile(String remotePath, OutputStream outputStream);
+	/**
+	 * 删除文件
+	 * @param remotePath 程文件，必须包含文件名
+	 * @return 删除成功返回true，否则返回false
+	 */
+	protected abstract boolean deleFile(String remotePath);
+	/**
+	 * 获取ftp客户端
+	 * @return ftp客户端
+	 * @throws Exception 获取失败
+	 */
+	protected abstract FTPClient borrowClient() throws Exception;
+
+	/**
+	 * 不等待地获取ftp客户端，已持有一个连接时用于获取第二个连接
+	 * 默认与{@link #borrowClient()}相同，连接池实现应在没有空闲连接时立即失败。
+	 * @return ftp客户端
+	 * @throws Exception 获取失败，没有空闲连接时为{@link java.util.NoSuchElementException}
+	 */
+	protected FTPClient tryBorrowClient() throws Exception {
+		return borrowClient();
+	}
+	/**
+	 * 归还ftp客户端
+	 * @param client ftp客户端
+	 */
+	protected abstract void returnClient(FTPClient client);
+
+	/**
+	 * 标记连接已损坏
+	 * 使用过程中发生I/O异常的连接不能再放回池中，默认不处理
+	 * @param client ftp客户端
+	 */
+	protected void markBroken(FTPClient client) {
+	}
+
+	/**
+	 * 指标监听器，默认不记录
+	 * @return 指标监听器
+	 */
+	protected FtpMetricsListener metricsListener() {
+		return FtpMetricsListener.NOOP;
+	}
+
+	/**
+	 * 记录一次文件传输
+	 * @param direction 传输方向
+	 * @param remotePath 远程文件
+	 * @param bytes 传输字节数
+	 * @param startNanos 开始时间(纳秒)
+	 * @param success 是否成功
+	 */
+	protected void recordTransfer(TransferDirection direction, String remotePath, long bytes, long startNanos, boolean success) {
+		metricsListener().onTransfer(direction, remotePath, bytes, System.nanoTime() - startNanos, success);
+	}
+
+	/**
+	 * 记录当前线程失败的原因，后记录的覆盖先记录的
+	 * @param reason 失败原因，通常为服务器的应答
+	 */
+	protected void recordFailure(String reason) {
+		lastFailure.set(StringUtils.trimToNull(reason));
+	}
+
+	/**
+	 * 记录当前线程失败的异常
+	 * @param ex 异常
+	 */
+	protected void recordFailure(Exception ex) {
+		recordFailure(StringUtils.defaultIfBlank(ex.getMessage(), ex.getClass().getName()));
+	}
+
+	/**
+	 * 取出并清除当前线程最近一次失败的原因
+	 * 在同一线程中调用传输方法后立即调用，传输成功时也应调用以清除重试过程中记录的原因。
+	 * @return 失败原因，没有记录时返回null
+	 */
+	public String takeFailure() {
+		String reason = lastFailure.get();
+		lastFailure.remove();
+		return reason;
+	}
+
+	/**
+	 * 发生I/O异常时标记连接已损坏
+	 * @param client ftp客户端
+	 * @param ex 异常
+	 */
+	protected void markBroken(FTPClient client, Exception ex) {
+		if (client != null && ex instanceof IOException) {
+			markBroken(client);
+		}
+	}
+
+	/**
+	 * 断点续传上传文件
+	 * 传输过程中定期将已发送偏移写入本地日志文件，失败或重启后以服务器上的文件大小为准，
+	 * 通过APPE从最后确认的位置继续上传。ASCII模式或服务器不支持APPE时从头上传。
+	 * 原子上传时续传到固定的临时文件“文件名.resume后缀”，完成后改名为目标文件。
+	 *
+	 * @param localFile 本地文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 上传成功返回true， 否则返回false
+	 */
+	public boolean uploadFileResumable(File localFile, String remotePath) {
+		if (!localFile.isFile()) {
+			log.error("本地文件不存在");
+			return false;
+		}
+		if (StringUtils.isBlank(remotePath)) {
+			log.error("远程路径为空");
+			return false;
+		}
+		String remoteFilePath = getRemoteFilePath(remotePath);
+		String remoteFileName = getRemoteFileName(remotePath);
+		long fileLength = localFile.length();
+		TransferJournal journal = TransferJournal.of(localFile);
+		boolean resume = journal.matchesUpload(remotePath, localFile);
+		if (!resume) {
+			journal.setRemotePath(remotePath);
+			journal.setLocalLength(fileLength);
+			journal.setLocalModified(localFile.lastModified());
+			journal.setOffset(0);
+			journal.save();
+		}
+		long start = System.nanoTime();
+		// 设置重试次数
+		final int retryTime = 3;
+
+		for (int i = 0; i <= retryTime; i++) {
+			FTPClient client = null;
+			try {
+				client = borrowClient();
+				if (!changeDirectory(client, remoteFilePath)) {
+					log.error("切换工作路径失败，{}", client.getReplyString());
+					continue;
+				}
+				// 原子上传时续传到固定的临时文件，完成后改名；暂停期间该文件不会被当作遗留文件清理
+				String storeName = isAtomicUpload() ? remoteFileName + RESUMABLE_MARK + config.getAtomicUploadSuffix() : remoteFileName;
+				// 以服务器上已有的大小作为确认的偏移
+				long offset = 0;
+				if (resume && isResumable()) {
+					offset = Math.max(0, Math.min(getRemoteFileSize(client, storeName), fileLength));
+				}
+				if (uploadFrom(client, localFile, storeName, offset, journal)) {
+					long remoteSize = getRemoteFileSize(client, storeName);
+					if (remoteSize >= 0 && remoteSize != fileLength) {
+						log.error("文件【{}】上传后大小不一致，本地{}，远程{}", remotePath, fileLength, remoteSize);
+					} else if (isAtomicUpload() && !commitUpload(client, storeName, remoteFileName)) {
+						log.error("文件【{}】改名失败，{}", remotePath, client.getReplyString());
+					} else {
+						journal.delete();
+						log.info("文件【{}】断点续传上传成功。", remotePath);
+						recordTransfer(TransferDirection.UPLOAD, remotePath, fileLength, start, true);
+						return true;
+					}
+				} else {
+					log.error("文件上传失败。{}", client.getReplyString());
+				}
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				log.error("断点续传上传异常。原因：【{}】", ex.getMessage());
+				markBroken(client, ex);
+			} finally {
+				invalidateCache(remotePath);
+				if (client != null) {
+					returnClient(client);
+				}
+			}
+			resume = true;
+			log.warn("文件【{}】上传失败，从断点继续上传...尝试{}次", remotePath, i);
+		}
+		recordTransfer(TransferDirection.UPLOAD, remotePath, 0, start, false);
+		return false;
+	}
+
+	/**
+	 * 断点续传下载文件
+	 * 传输过程中定期将已落盘偏移写入本地日志文件，失败或重启后确认远程文件大小和修改时间未变，
+	 * 通过REST从最后确认的位置继续下载。ASCII模式或服务器不支持REST时从头下载。
+	 *
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param localFile 本地文件
+	 * @return 下载成功返回true，否则返回false
+	 */
+	public boolean downloadFileResumable(String remotePath, File localFile) {
+		if (StringUtils.isBlank(remotePath)) {
+			log.error("远程路径为空");
+			return false;
+		}
+		File parentFile = localFile.getAbsoluteFile().getParentFile();
+		if (!parentFile.exists() && !parentFile.mkdirs()) {
+			log.error("创建本地路径失败");
+			return false;
+		}
+		TransferJournal journal = TransferJournal.of(localFile);
+		long start = System.nanoTime();
+		// 设置重试次数
+		final int retryTime = 3;
+
+		for (int i = 0; i <= retryTime; i++) {
+			FTPClient client = null;
+			try {
+				client = borrowClient();
+				long remoteSize = getRemoteFileSize(client, remotePath);
+				String remoteModified = client.getModificationTime(remotePath);
+				// 远程文件发生变化时从头下载
+				long offset = 0;
+				if (isResumable() && localFile.exists() && journal.matchesDownload(remotePath, remoteSize, remoteModified)) {
+					offset = Math.min(journal.getOffset(), localFile.length());
+				} else {
+					journal.setRemotePath(remotePath);
+					journal.setRemoteSize(remoteSize);
+					journal.setRemoteModified(remoteModified);
+					journal.setOffset(0);
+					journal.save();
+				}
+				if (downloadTo(client, remotePath, localFile, offset, journal)) {
+					if (remoteSize < 0 || localFile.length() == remoteSize) {
+						journal.delete();
+						log.info("文件【{}】断点续传下载成功。", remotePath);
+						recordTransfer(TransferDirection.DOWNLOAD, remotePath, localFile.length(), start, true);
+						return true;
+					}
+					log.error("文件【{}】下载后大小不一致，本地{}，远程{}", remotePath, localFile.length(), remoteSize);
+				} else {
+					log.error("文件下载失败。 {}", client.getReplyString());
+				}
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				log.error("断点续传下载异常。原因：【{}】", ex.getMessage());
+				markBroken(client, ex);
+			} finally {
+				if (client != null) {
+					returnClient(client);
+				}
+			}
+			log.warn("文件【{}】下载失败，从断点继续下载...尝试{}次", remotePath, i);
+		}
+		recordTransfer(TransferDirection.DOWNLOAD, remotePath, 0, start, false);
+		return false;
+	}
+
+	/**
+	 * 从指定偏移上传本地文件，偏移大于0时使用APPE追加
+	 */
+	private boolean uploadFrom(FTPClient client, File localFile, String remoteFileName, long offset, TransferJournal journal) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(localFile, "r")) {
+			raf.seek(offset);
+			OutputStream os = offset > 0 ? client.appendFileStream(remoteFileName) : client.storeFileStream(remoteFileName);
+			if (os == null) {
+				if (offset > 0 && isResumeRejected(client.getReplyCode())) {
+					log.warn("服务器不支持APPE，文件【{}】从头上传。{}", remoteFileName, client.getReplyString());
+					journal.setOffset(0);
+					journal.save();
+					return uploadFrom(client, localFile, remoteFileName, 0, journal);
+				}
+				return false;
+			}
+			long position = offset;
+			long checkpoint = offset;
+			byte[] buffer = new byte[config.getBufferSize()];
+			try (BandwidthLimiter.Permit permit = bandwidthLimiter.open()) {
+				int len;
+				while ((len = raf.read(buffer)) != -1) {
+					permit.acquire(len);
+					os.write(buffer, 0, len);
+					position += len;
+					if (position - checkpoint >= config.getCheckpointInterval()) {
+						checkpoint = position;
+						journal.setOffset(position);
+						journal.save();
+					}
+				}
+			} finally {
+				os.close();
+			}
+			journal.setOffset(position);
+			journal.save();
+			return client.completePendingCommand();
+		}
+	}
+
+	/**
+	 * 从指定偏移下载到本地文件，偏移大于0时使用REST续传
+	 */
+	private boolean downloadTo(FTPClient client, String remotePath, File localFile, long offset, TransferJournal journal) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(localFile, "rw")) {
+			// 丢弃未确认的部分
+			raf.setLength(offset);
+			raf.seek(offset);
+			client.setRestartOffset(offset);
+			InputStream is = client.retrieveFileStream(remotePath);
+			if (is == null) {
+				if (offset > 0 && isResumeRejected(client.getReplyCode())) {
+					log.warn("服务器不支持REST，文件【{}】从头下载。{}", remotePath, client.getReplyString());
+					journal.setOffset(0);
+					journal.save();
+					return downloadTo(client, remotePath, localFile, 0, journal);
+				}
+				return false;
+			}
+			long position = offset;
+			long checkpoint = offset;
+			byte[] buffer = new byte[config.getBufferSize()];
+			try (BandwidthLimiter.Permit permit = bandwidthLimiter.open()) {
+				int len;
+				while ((len = is.read(buffer)) != -1) {
+					permit.acquire(len);
+					raf.write(buffer, 0, len);
+					position += len;
+					if (position - checkpoint >= config.getCheckpointInterval()) {
+						// 先落盘再记录偏移
+						raf.getFD().sync();
+						checkpoint = position;
+						journal.setOffset(position);
+						journal.save();
+					}
+				}
+			} finally {
+				is.close();
+			}
+			raf.getFD().sync();
+			journal.setOffset(position);
+			journal.save();
+			return client.completePendingCommand();
+		}
+	}
+
+	/**
+	 * 上传文件
+	 *
+	 * @param client ftp客户端
+	 * @param inputStream 文件流
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 上传成功返回true， 否则返回false
+	 */
+	protected boolean uploadHandle(FTPClient client, InputStream inputStream, String remotePath) {
+		long start = System.nanoTime();
+		CountingInputStream cis = new CountingInputStream(inputStream);
+		BandwidthLimiter.Permit permit = bandwidthLimiter.open();
+		boolean result = false;
+		// 上传
+		try {
+			// 获取远程文件路径
+			String remoteFilePath = getRemoteFilePath(remotePath);
+			// 获取远程文件名
+			String remoteFileName = getRemoteFileName(remotePath);
+			String directory = RemoteDirectoryCache.normalize(remoteFilePath);
+			String target = remoteFileName;
+			if (directoryCache.contains(directory)) {
+				// 目录已知存在，使用绝对路径上传，省去切换目录
+				target = directory + remoteFileName;
+			} else if (!changeDirectory(client, remoteFilePath)) {
+				// 切换工作路径
+				log.error("切换工作路径失败，{}", client.getReplyString());
+				recordFailure(client.getReplyString());
+				return false;
+			}
+			// 设置重试次数
+			final int retryTime = 3;
+			boolean retryResult = false;
+			// 只有内存流可以重置后重试，其他流已被部分读取
+			boolean rewindable = inputStream instanceof ByteArrayInputStream;
+			// 上传的同时计算校验值
+			RemoteChecksum checksum = isVerifyIntegrity() ? RemoteChecksum.negotiate(client) : null;
+			MessageDigest digest = checksum == null ? null : checksum.getAlgorithm().newDigest();
+			InputStream source = permit.wrap(digest == null ? cis : new DigestInputStream(cis, digest));
+
+			for (int i = 0; i <= retryTime; i++) {
+				// 原子上传时先上传为临时文件，成功后改名
+				String storeName = isAtomicUpload() ? tempName(target) : target;
+				boolean stored = client.storeFile(storeName, source);
+				int replyCode = client.getReplyCode();
+				stored = stored && (!isVerifyIntegrity() || verifyUpload(client, storeName, cis.getCount(), checksum, digest));
+				boolean success = stored && (!isAtomicUpload() || commitUpload(client, storeName, target));
+				if (success) {
+					log.info("文件【{}】上传成功。", remotePath);
+					retryResult = true;
+					break;
+				} else {
+					log.error("文件上传失败。{}", client.getReplyString());
+					recordFailure(client.getReplyString());
+				}
+				// 缓存的目录已不存在，STOR在读取数据前即被拒绝，重建目录后重试
+				if (replyCode == FTPReply.FILE_UNAVAILABLE && !target.equals(remoteFileName)) {
+					directoryCache.invalidate(directory);
+					if (!changeDirectory(client, remoteFilePath)) {
+						log.error("切换工作路径失败，{}", client.getReplyString());
+						recordFailure(client.getReplyString());
+						break;
+					}
+					target = remoteFileName;
+					continue;
+				}
+				if (!stored && isAtomicUpload()) {
+					// 删除未写完的临时文件
+					client.deleteFile(storeName);
+				}
+				if (!rewindable) {
+					log.warn("文件【{}】上传失败，文件流无法重置，放弃重试，可使用断点续传上传", remotePath);
+					break;
+				}
+				cis.reset();
+				if (digest != null) {
+					digest.reset();
+				}
+				log.warn("文件【{}】上传失败,重试上传...尝试{}次", remotePath, i);
+			}
+
+			result = retryResult;
+			return retryResult;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("上传文件异常。");
+			recordFailure(ex);
+			markBroken(client, ex);
+		} finally {
+			permit.close();
+			invalidateCache(remotePath);
+			recordTransfer(TransferDirection.UPLOAD, remotePath, cis.getCount(), start, result);
+		}
+
+		return false;
+	}
+
+	/**
+	 * 下载文件
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param outputStream 本地文件流
+	 * @return 下载成功返回true，否则返回false
+	 */
+	protected boolean downloadHandle(FTPClient client, String remotePath, OutputStream outputStream) {
+		if (fileCache.isEnabled()) {
+			return downloadCached(client, remotePath, outputStream);
+		}
+		return retrieveHandle(client, remotePath, outputStream);
+	}
+
+	/**
+	 * 经缓存下载文件
+	 * 以MDTM和SIZE确认远程文件版本，缓存中有该版本时直接写出，否则下载的同时写入缓存。
+	 * 服务器不支持MDTM或SIZE时无法确认版本，不使用缓存。
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param outputStream 本地文件流
+	 * @return 下载成功返回true，否则返回false
+	 */
+	private boolean downloadCached(FTPClient client, String remotePath, OutputStream outputStream) {
+		String path = cachePath(remotePath);
+		String key = cacheKey(path);
+		String version;
+		try {
+			version = client.getModificationTime(path);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("获取远程文件修改时间异常。");
+			recordFailure(ex);
+			markBroken(client, ex);
+			return false;
+		}
+		long size = version == null ? -1 : getRemoteFileSize(client, path);
+		if (size < 0) {
+			log.debug("无法确认文件【{}】的版本，不使用缓存。{}", remotePath, client.getReplyString());
+			return retrieveHandle(client, remotePath, outputStream);
+		}
+		version = version.trim();
+		try {
+			if (fileCache.serve(key, version, size, outputStream)) {
+				log.info("文件【{}】从缓存读取成功。", remotePath);
+				return true;
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("从缓存读取文件【{}】异常。原因：【{}】", remotePath, ex.getMessage());
+			recordFailure(ex);
+			return false;
+		}
+		RemoteFileCache.Sink sink = fileCache.open(key, version, size, outputStream);
+		if (sink == null) {
+			return retrieveHandle(client, remotePath, outputStream);
+		}
+		try {
+			boolean result = retrieveHandle(client, remotePath, sink);
+			if (result) {
+				sink.commit();
+			}
+			return result;
+		} finally {
+			sink.close();
+		}
+	}
+
+	/**
+	 * 下载文件缓存中的键
+	 * @param path 规范化后的远程文件路径
+	 * @return 键，默认为远程文件路径
+	 */
+	protected String cacheKey(String path) {
+		return path;
+	}
+
+	/**
+	 * 远程文件被上传、删除或改名后移除其下载缓存
+	 * @param remotePath 远程文件，必须包含文件名
+	 */
+	protected void invalidateCache(String remotePath) {
+		if (fileCache.isEnabled() && StringUtils.isNotBlank(remotePath)) {
+			fileCache.invalidate(cacheKey(cachePath(remotePath)));
+		}
+	}
+
+	private String cachePath(String remotePath) {
+		return RemoteDirectoryCache.normalize(getRemoteFilePath(remotePath)) + getRemoteFileName(remotePath);
+	}
+
+	/**
+	 * 下载文件，失败时从已接收的位置续传
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param outputStream 本地文件流
+	 * @return 下载成功返回true，否则返回false
+	 */
+	private boolean retrieveHandle(FTPClient client, String remotePath, OutputStream outputStream) {
+		long start = System.nanoTime();
+		// 记录已写入的字节数，重试时从该位置续传，避免重复写入
+		CountingOutputStream cos = new CountingOutputStream(outputStream);
+		BandwidthLimiter.Permit permit = bandwidthLimiter.open();
+		boolean result = false;
+		// 下载
+		try {
+			// 获取远程文件路径
+			String remoteFilePath = getRemoteFilePath(remotePath);
+			// 获取远程文件名
+			String remoteFileName = getRemoteFileName(remotePath);
+			// 切换工作路径
+			boolean bool = client.changeWorkingDirectory(remoteFilePath);
+			if (!bool) {
+				log.error("切换工作路径失败，{}", client.getReplyString());
+				recordFailure(client.getReplyString());
+				return false;
+			}
+			// 设置重试次数
+			final int retryTime = 3;
+			boolean retryResult = false;
+			// 下载的同时计算校验值，续传的数据依次追加，校验值连续计算
+			RemoteChecksum checksum = isVerifyIntegrity() ? RemoteChecksum.negotiate(client) : null;
+			MessageDigest digest = checksum == null ? null : checksum.getAlgorithm().newDigest();
+			OutputStream sink = permit.wrap(digest == null ? cos : new DigestOutputStream(cos, digest));
+
+			for (int i = 0; i <= retryTime; i++) {
+				if (cos.getCount() > 0 && !isResumable()) {
+					// 已写出的数据无法撤回，ASCII模式下又无法按字节偏移续传
+					log.warn("文件【{}】已接收{}字节，当前传输模式无法续传，放弃重试", remotePath, cos.getCount());
+					break;
+				}
+				client.setRestartOffset(cos.getCount());
+				boolean success = client.retrieveFile(remoteFileName, sink);
+				if (!success && cos.getCount() > 0 && isResumeRejected(client.getReplyCode())) {
+					log.warn("服务器不支持REST，文件【{}】已接收{}字节无法续传，放弃重试。{}", remotePath, cos.getCount(), client.getReplyString());
+					recordFailure(client.getReplyString());
+					break;
+				}
+				if (success && isVerifyIntegrity()) {
+					long remoteSize = getRemoteFileSize(client, remoteFileName);
+					if (remoteSize > cos.getCount()) {
+						// 数据连接提前结束但服务器返回成功，从已接收的位置续传剩余部分
+						log.warn("文件【{}】下载不完整，已接收{}字节，共{}字节，续传剩余部分", remotePath, cos.getCount(), remoteSize);
+						continue;
+					}
+					success = remoteSize < 0 || remoteSize == cos.getCount();
+					if (success && checksum != null) {
+						// 已写出的数据无法重写，校验不一致时只能报告失败，文件下载可使用分段下载重新获取不一致的分段
+						success = verifyChecksum(client, remoteFileName, checksum, HashAlgorithm.toHex(digest.digest()));
+						if (!success) {
+							break;
+						}
+					}
+				}
+				if (success) {
+					log.info("文件【{}】下载成功。", remotePath);
+					retryResult = true;
+					break;
+				} else {
+					log.error("文件下载失败。 {}", client.getReplyString());
+					recordFailure(client.getReplyString());
+				}
+				log.warn("文件【{}】下载失败，重试下载...尝试{}次", remotePath, i);
+			}
+			// 返回结果
+			result = retryResult;
+			return retryResult;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("下载文件异常。");
+			recordFailure(ex);
+			markBroken(client, ex);
+		} finally {
+			permit.close();
+			recordTransfer(TransferDirection.DOWNLOAD, remotePath, cos.getCount(), start, result);
+		}
+		return false;
+	}
+
+	/**
+	 * 是否校验传输完整性
+	 * @return 开启校验且为二进制传输时返回true
+	 */
+	protected boolean isVerifyIntegrity() {
+		return config.isVerifyIntegrity() && config.getTransferFileType() == FTP.BINARY_FILE_TYPE;
+	}
+
+	/**
+	 * 是否可以通过REST/APPE从字节偏移续传
+	 * ASCII模式下服务器会转换换行符，本地字节数与远程文件偏移不对应，只能从头传输。
+	 * @return 二进制传输时返回true
+	 */
+	protected boolean isResumable() {
+		return config.getTransferFileType() == FTP.BINARY_FILE_TYPE;
+	}
+
+	/**
+	 * 续传命令是否被服务器拒绝，拒绝时只能从头传输
+	 * @param replyCode REST或APPE的响应码
+	 * @return 命令无法识别或未实现时返回true
+	 */
+	private static boolean isResumeRejected(int replyCode) {
+		return replyCode == FTPReply.UNRECOGNIZED_COMMAND || replyCode == FTPReply.COMMAND_NOT_IMPLEMENTED
+				|| replyCode == FTPReply.COMMAND_NOT_IMPLEMENTED_FOR_PARAMETER;
+	}
+
+	/**
+	 * 校验上传结果，先比较大小，服务器支持校验命令时再比较校验值
+	 * @param client ftp客户端
+	 * @param remoteName 已上传的远程文件
+	 * @param length 发送的字节数
+	 * @param checksum 服务器校验方式，不支持时为null
+	 * @param digest 上传时计算的摘要
+	 * @return 一致返回true
+	 * @throws IOException 通信异常
+	 */
+	protected boolean verifyUpload(FTPClient client, String remoteName, long length, RemoteChecksum checksum,
+								   MessageDigest digest) throws IOException {
+		long remoteSize = getRemoteFileSize(client, remoteName);
+		if (remoteSize >= 0 && remoteSize != length) {
+			log.error("文件【{}】大小校验失败，远程{}字节，本地{}字节", remoteName, remoteSize, length);
+			return false;
+		}
+		return checksum == null || verifyChecksum(client, remoteName, checksum, HashAlgorithm.toHex(digest.digest()));
+	}
+
+	/**
+	 * 比较本地计算的校验值与服务器返回的校验值
+	 * @return 一致或服务器未返回校验值时返回true
+	 */
+	protected boolean verifyChecksum(FTPClient client, String remoteName, RemoteChecksum checksum, String local) throws IOException {
+		String remote = checksum.query(client, remoteName);
+		if (remote == null) {
+			log.warn("获取文件【{}】校验值失败，只校验大小。{}", remoteName, client.getReplyString());
+			return true;
+		}
+		if (!checksum.matches(local, remote)) {
+			log.error("文件【{}】{}校验失败，远程{}，本地{}", remoteName, checksum, remote, local);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 编码上传，编码流与数据连接在同一次写入中完成
+	 * 输入流只能读取一次，失败时不重试。
+	 * @param client ftp客户端
+	 * @param inputStream 本地文件流
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param codec 编解码
+	 * @return 上传成功返回true， 否则返回false
+	 */
+	protected boolean uploadEncoded(FTPClient client, InputStream inputStream, String remotePath, TransferCodec codec) {
+		long start = System.nanoTime();
+		CountingInputStream cis = new CountingInputStream(inputStream);
+		boolean result = false;
+		try {
+			if (!changeDirectory(client, getRemoteFilePath(remotePath))) {
+				log.error("切换工作路径失败，{}", client.getReplyString());
+				return false;
+			}
+			String target = getRemoteFileName(remotePath);
+			String storeName = isAtomicUpload() ? tempName(target) : target;
+			OutputStream os = client.storeFileStream(storeName);
+			if (os == null) {
+				log.error("文件上传失败。{}", client.getReplyString());
+				return false;
+			}
+			try (BandwidthLimiter.Permit permit = bandwidthLimiter.open();
+				 OutputStream encoded = codec.encode(permit.wrap(os))) {
+				copy(cis, encoded);
+			}
+			boolean stored = client.completePendingCommand();
+			result = stored && (!isAtomicUpload() || commitUpload(client, storeName, target));
+			if (result) {
+				log.info("文件【{}】以{}编码上传成功。", remotePath, codec.getName());
+			} else {
+				log.error("文件上传失败。{}", client.getReplyString());
+				if (!stored && isAtomicUpload()) {
+					client.deleteFile(storeName);
+				}
+			}
+			return result;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("上传文件异常。");
+			markBroken(client, ex);
+		} finally {
+			invalidateCache(remotePath);
+			recordTransfer(TransferDirection.UPLOAD, remotePath, cis.getCount(), start, result);
+		}
+		return false;
+	}
+
+	/**
+	 * 解码下载，数据连接与解码流在同一次读取中完成
+	 * 已写入的内容无法对应到远程文件的偏移，失败时不续传。
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param outputStream 本地文件流
+	 * @param codec 编解码
+	 * @return 下载成功返回true，否则返回false
+	 */
+	protected boolean downloadDecoded(FTPClient client, String remotePath, OutputStream outputStream, TransferCodec codec) {
+		long start = System.nanoTime();
+		CountingOutputStream cos = new CountingOutputStream(outputStream);
+		boolean result = false;
+		try {
+			InputStream is = client.retrieveFileStream(remotePath);
+			if (is == null) {
+				log.error("文件下载失败。 {}", client.getReplyString());
+				return false;
+			}
+			try (BandwidthLimiter.Permit permit = bandwidthLimiter.open();
+				 InputStream decoded = codec.decode(permit.wrap(is))) {
+				copy(decoded, cos);
+			}
+			result = client.completePendingCommand();
+			if (result) {
+				log.info("文件【{}】以{}解码下载成功。", remotePath, codec.getName());
+			} else {
+				log.error("文件下载失败。 {}", client.getReplyString());
+			}
+			return result;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("下载文件异常。");
+			markBroken(client, ex);
+		} finally {
+			recordTransfer(TransferDirection.DOWNLOAD, remotePath, cos.getCount(), start, result);
+		}
+		return false;
+	}
+
+	private void copy(InputStream is, OutputStream os) throws IOException {
+		byte[] buffer = new byte[Math.max(config.getBufferSize(), 8192)];
+		int len;
+		while ((len = is.read(buffer)) != -1) {
+			os.write(buffer, 0, len);
+		}
+	}
+
+	/**
+	 * 删除文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 删除成功返回true，否则返回false
+	 */
+	protected boolean deleteHandle(FTPClient client, String remotePath) {
+		try {
+			// 删除文件
+			boolean bool = client.deleteFile(remotePath);
+			if (!bool) {
+				log.error("删除文件失败，{}", client.getReplyString());
+				recordFailure(client.getReplyString());
+			}
+			return bool;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("删除文件异常。");
+			recordFailure(ex);
+			markBroken(client, ex);
+		} finally {
+			invalidateCache(remotePath);
+		}
+		return false;
+	}
+
+	/**
+	 * 是否使用零拷贝传输本地文件
+	 * @return 开启零拷贝且为二进制传输时返回true，限速时数据需经过缓冲区，返回false
+	 */
+	protected boolean isZeroCopy() {
+		return config.isZeroCopy() && config.getTransferFileType() == FTP.BINARY_FILE_TYPE && !bandwidthLimiter.isEnabled();
+	}
+
+	/**
+	 * 零拷贝上传本地文件
+	 * @param localFile 本地文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 上传成功返回true， 否则返回false
+	 */
+	private boolean uploadFileChannel(File localFile, String remotePath) {
+		FTPClient client = null;
+		try (FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+			client = borrowClient();
+			if (!(client instanceof FtpChannelClient)) {
+				return uploadHandle(client, Channels.newInputStream(channel), remotePath);
+			}
+			if (!changeDirectory(client, getRemoteFilePath(remotePath))) {
+				log.error("切换工作路径失败，{}", client.getReplyString());
+				recordFailure(client.getReplyString());
+				return false;
+			}
+			String remoteFileName = getRemoteFileName(remotePath);
+			long fileSize = channel.size();
+			long start = System.nanoTime();
+			// 设置重试次数，文件通道可以从头重新读取
+			final int retryTime = 3;
+
+			for (int i = 0; i <= retryTime; i++) {
+				String storeName = isAtomicUpload() ? tempName(remoteFileName) : remoteFileName;
+				long sent = ((FtpChannelClient) client).storeFrom(storeName, channel, 0, fileSize);
+				if (sent == fileSize && (!isAtomicUpload() || commitUpload(client, storeName, remoteFileName))) {
+					log.info("文件【{}】上传成功。", remotePath);
+					recordTransfer(TransferDirection.UPLOAD, remotePath, sent, start, true);
+					return true;
+				}
+				log.error("文件上传失败。{}", client.getReplyString());
+				recordFailure(client.getReplyString());
+				log.warn("文件【{}】上传失败,重试上传...尝试{}次", remotePath, i);
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("上传文件异常。原因：【{}】", ex.getMessage());
+			recordFailure(ex);
+			markBroken(client, ex);
+		} finally {
+			invalidateCache(remotePath);
+			if (client != null) {
+				returnClient(client);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 零拷贝下载到本地文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param localFile 本地文件
+	 * @return 下载成功返回true，否则返回false
+	 */
+	private boolean downloadFileChannel(String remotePath, File localFile) {
+		FTPClient client = null;
+		try (FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			client = borrowClient();
+			if (!(client instanceof FtpChannelClient)) {
+				return downloadHandle(client, remotePath, Channels.newOutputStream(channel));
+			}
+			long start = System.nanoTime();
+			// 设置重试次数，失败时从已写入的位置续传
+			final int retryTime = 3;
+
+			for (int i = 0; i <= retryTime; i++) {
+				long position = channel.size();
+				long received = ((FtpChannelClient) client).retrieveTo(remotePath, channel, position, Long.MAX_VALUE);
+				if (received >= 0) {
+					log.info("文件【{}】下载成功。", remotePath);
+					recordTransfer(TransferDirection.DOWNLOAD, remotePath, channel.size(), start, true);
+					return true;
+				}
+				log.error("文件下载失败。 {}", client.getReplyString());
+				recordFailure(client.getReplyString());
+				log.warn("文件【{}】下载失败，重试下载...尝试{}次", remotePath, i);
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("下载文件异常。原因：【{}】", ex.getMessage());
+			recordFailure(ex);
+			markBroken(client, ex);
+		} finally {
+			if (client != null) {
+				returnClient(client);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 批量传输
+	 * @param items 传输条目
+	 * @param upload true上传，false下载
+	 * @return 与条目顺序一致的传输结果
+	 */
+	private List<TransferResult> transferAll(Collection<TransferItem> items, boolean upload) {
+		TransferItem[] itemArray = items.toArray(new TransferItem[0]);
+		TransferResult[] results = new TransferResult[itemArray.length];
+		// 原子上传时记录各文件的临时文件名，全部上传后统一改名
+		String[] tempNames = upload && isAtomicUpload() ? new String[itemArray.length] : null;
+		// 按远程目录分组
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < itemArray.length; i++) {
+			String remoteFilePath = getRemoteFilePath(itemArray[i].getRemotePath());
+			groups.computeIfAbsent(remoteFilePath, key -> new ArrayList<>()).add(i);
+		}
+		// 大的分组拆分到多个连接
+		int chunkSize = Math.max(config.getBatchChunkSize(), 1);
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+			List<Integer> indexes = group.getValue();
+			for (int from = 0; from < indexes.size(); from += chunkSize) {
+				List<Integer> chunk = indexes.subList(from, Math.min(from + chunkSize, indexes.size()));
+				futures.add(CompletableFuture.runAsync(TransferPriority.propagate(
+						() -> transferGroup(group.getKey(), chunk, itemArray, results, tempNames, upload)), getBatchExecutor()));
+			}
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		if (tempNames != null) {
+			commitAll(itemArray, results, tempNames);
+		}
+		if (upload) {
+			for (TransferItem item : itemArray) {
+				invalidateCache(item.getRemotePath());
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * 在同一个连接、同一个工作目录下依次传输一组文件，连接断开时换一个连接继续
+	 */
+	private void transferGroup(String remoteFilePath, List<Integer> indexes, TransferItem[] items, TransferResult[] results,
+							   String[] tempNames, boolean upload) {
+		FTPClient client = null;
+		try {
+			for (int index : indexes) {
+				TransferItem item = items[index];
+				long start = System.currentTimeMillis();
+				long startNanos = System.nanoTime();
+				try {
+					if (client == null) {
+						client = borrowClient();
+						boolean bool = upload ? changeDirectory(client, remoteFilePath) : client.changeWorkingDirectory(remoteFilePath);
+						if (!bool) {
+							results[index] = TransferResult.failure(item.getRemotePath(), 0, "切换工作路径失败，" + client.getReplyString());
+							returnClient(client);
+							client = null;
+							continue;
+						}
+					}
+					if (upload) {
+						String storeName = getRemoteFileName(item.getRemotePath());
+						if (tempNames != null) {
+							storeName = tempName(storeName);
+						}
+						results[index] = storeItem(client, item, storeName, start);
+						if (tempNames != null && results[index].isSuccess()) {
+							tempNames[index] = storeName;
+						}
+					} else {
+						results[index] = retrieveItem(client, item, start);
+					}
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					log.error("批量传输文件【{}】异常。原因：【{}】", item.getRemotePath(), ex.getMessage());
+					results[index] = TransferResult.failure(item.getRemotePath(), System.currentTimeMillis() - start, ex.getMessage());
+					if (client != null && ex instanceof IOException && !(ex instanceof FileNotFoundException)) {
+						markBroken(client);
+						returnClient(client);
+						client = null;
+					}
+				}
+				TransferResult result = results[index];
+				recordTransfer(upload ? TransferDirection.UPLOAD : TransferDirection.DOWNLOAD,
+						result.getRemotePath(), result.getBytes(), startNanos, result.isSuccess());
+			}
+		} finally {
+			if (client != null) {
+				returnClient(client);
+			}
+		}
+	}
+
+	private TransferResult storeItem(FTPClient client, TransferItem item, String storeName, long start) throws IOException {
+		File localFile = item.getLocalFile();
+		if (!localFile.isFile()) {
+			return TransferResult.failure(item.getRemotePath(), 0, "本地文件不存在");
+		}
+		try (BandwidthLimiter.Permit permit = bandwidthLimiter.open();
+			 InputStream is = permit.wrap(new BufferedInputStream(new FileInputStream(localFile)))) {
+			if (client.storeFile(storeName, is)) {
+				return TransferResult.success(item.getRemotePath(), localFile.length(), System.currentTimeMillis() - start);
+			}
+		}
+		TransferResult failure = TransferResult.failure(item.getRemotePath(), System.currentTimeMillis() - start, client.getReplyString());
+		if (!storeName.equals(getRemoteFileName(item.getRemotePath()))) {
+			// 删除未写完的临时文件
+			client.deleteFile(storeName);
+		}
+		return failure;
+	}
+
+	/**
+	 * 批量原子上传的最后一步，按目录将临时文件统一改名为目标文件
+	 * 每个目录使用一个连接，改名命令连续发送，各目录并行处理
+	 */
+	private void commitAll(TransferItem[] items, TransferResult[] results, String[] tempNames) {
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < items.length; i++) {
+			if (tempNames[i] != null) {
+				groups.computeIfAbsent(getRemoteFilePath(items[i].getRemotePath()), key -> new ArrayList<>()).add(i);
+			}
+		}
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+			futures.add(CompletableFuture.runAsync(
+					() -> commitGroup(group.getKey(), group.getValue(), items, results, tempNames), getBatchExecutor()));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+	}
+
+	private void commitGroup(String remoteFilePath, List<Integer> indexes, TransferItem[] items, TransferResult[] results, String[] tempNames) {
+		FTPClient client = null;
+		try {
+			client = borrowClient();
+			if (!client.changeWorkingDirectory(RemoteDirectoryCache.normalize(remoteFilePath))) {
+				for (int index : indexes) {
+					results[index] = TransferResult.failure(items[index].getRemotePath(), results[index].getElapsedMillis(),
+							"切换工作路径失败，" + client.getReplyString());
+				}
+				return;
+			}
+			String[] from = new String[indexes.size()];
+			String[] to = new String[indexes.size()];
+			for (int i = 0; i < from.length; i++) {
+				from[i] = tempNames[indexes.get(i)];
+				to[i] = getRemoteFileName(items[indexes.get(i)].getRemotePath());
+			}
+			boolean[] renamed = renameAll(client, from, to);
+			for (int i = 0; i < from.length; i++) {
+				if (renamed[i]) {
+					continue;
+				}
+				// 连续改名失败的逐个重试，目标文件已存在且服务器不允许覆盖时替换
+				String failure = commit(client, from[i], to[i]);
+				if (failure != null) {
+					int index = indexes.get(i);
+					results[index] = TransferResult.failure(items[index].getRemotePath(), results[index].getElapsedMillis(),
+							"改名失败，" + failure);
+				}
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("批量改名异常。原因：【{}】", ex.getMessage());
+			markBroken(client, ex);
+			for (int index : indexes) {
+				results[index] = TransferResult.failure(items[index].getRemotePath(), results[index].getElapsedMillis(), ex.getMessage());
+			}
+		} finally {
+			if (client != null) {
+				returnClient(client);
+			}
+		}
+	}
+
+	/**
+	 * 是否使用原子上传
+	 * @return 开启原子上传返回true
+	 */
+	protected boolean isAtomicUpload() {
+		return config.isAtomicUpload();
+	}
+
+	/**
+	 * 生成临时文件名，同一文件并发上传时互不影响
+	 * @param remoteFileName 目标文件名
+	 * @return 临时文件名
+	 */
+	protected String tempName(String remoteFileName) {
+		return remoteFileName + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + config.getAtomicUploadSuffix();
+	}
+
+	/**
+	 * 将临时文件改名为目标文件
+	 * @param client ftp客户端
+	 * @param tempName 临时文件
+	 * @param target 目标文件
+	 * @return 改名成功返回true，目标文件未被改动时删除临时文件并返回false
+	 * @throws IOException 通信异常
+	 */
+	protected boolean commitUpload(FTPClient client, String tempName, String target) throws IOException {
+		return commit(client, tempName, target) == null;
+	}
+
+	/**
+	 * 将临时文件改名为目标文件
+	 * 只有RNFR成功、RNTO因目标文件已存在被拒绝时才替换目标文件，其他失败不改动目标文件。
+	 * @return 成功返回null，失败返回失败时服务器的应答
+	 */
+	private String commit(FTPClient client, String tempName, String target) throws IOException {
+		if (!FTPReply.isPositiveIntermediate(client.rnfr(tempName))) {
+			String reply = StringUtils.defaultString(client.getReplyString());
+			log.error("临时文件【{}】改名为【{}】失败，{}", tempName, target, reply);
+			client.deleteFile(tempName);
+			return reply;
+		}
+		if (FTPReply.isPositiveCompletion(client.rnto(target))) {
+			return null;
+		}
+		String reply = StringUtils.defaultString(client.getReplyString());
+		if (!remoteFileExists(client, target)) {
+			log.error("临时文件【{}】改名为【{}】失败，{}", tempName, target, reply);
+			client.deleteFile(tempName);
+			return reply;
+		}
+		return replaceTarget(client, tempName, target);
+	}
+
+	/**
+	 * 部分服务器不允许改名覆盖已有文件，先将目标文件改名为备份，临时文件改名为目标文件后删除备份
+	 * 临时文件改名失败时恢复备份；恢复也失败时保留备份和临时文件，不删除任何一方。
+	 * @return 成功返回null，失败返回失败时服务器的应答
+	 */
+	private String replaceTarget(FTPClient client, String tempName, String target) throws IOException {
+		String backupName = target + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + BACKUP_SUFFIX;
+		if (!client.rename(target, backupName)) {
+			String reply = StringUtils.defaultString(client.getReplyString());
+			log.error("目标文件【{}】备份失败，{}", target, reply);
+			client.deleteFile(tempName);
+			return reply;
+		}
+		if (client.rename(tempName, target)) {
+			if (!client.deleteFile(backupName)) {
+				log.warn("删除备份文件【{}】失败，{}", backupName, client.getReplyString());
+			}
+			return null;
+		}
+		String reply = StringUtils.defaultString(client.getReplyString());
+		if (client.rename(backupName, target)) {
+			log.error("临时文件【{}】改名为【{}】失败，已恢复原文件，{}", tempName, target, reply);
+			client.deleteFile(tempName);
+		} else {
+			log.error("临时文件【{}】改名为【{}】失败且原文件恢复失败，原文件保留为【{}】，上传内容保留为【{}】，{}",
+					tempName, target, backupName, tempName, reply);
+		}
+		return reply;
+	}
+
+	/**
+	 * 远程文件是否存在，依次尝试MDTM和SIZE
+	 */
+	private boolean remoteFileExists(FTPClient client, String remotePath) throws IOException {
+		return FTPReply.isPositiveCompletion(client.mdtm(remotePath))
+				|| FTPReply.isPositiveCompletion(client.sendCommand("SIZE", remotePath));
+	}
+
+	/**
+	 * 批量改名，客户端支持时连续发送改名命令
+	 */
+	private boolean[] renameAll(FTPClient client, String[] from, String[] to) throws IOException {
+		if (client instanceof FtpChannelClient) {
+			return ((FtpChannelClient) client).renameAll(from, to);
+		}
+		boolean[] renamed = new boolean[from.length];
+		for (int i = 0; i < from.length; i++) {
+			renamed[i] = client.rename(from[i], to[i]);
+		}
+		return renamed;
+	}
+
+	/**
+	 * 清理目录下遗留的原子上传临时文件
+	 * 上传过程中进程退出时临时文件不会被删除，超过配置的时间未修改的临时文件视为遗留文件。
+	 * 只匹配{@link #tempName(String)}生成的文件名，断点续传上传的临时文件暂停再久也需要保留以便续传。
+	 *
+	 * @param remotePath 远程目录
+	 * @return 删除的文件数
+	 */
+	public int cleanOrphanedTempFiles(String remotePath) {
+		String directory = RemoteDirectoryCache.normalize(remotePath);
+		// 目标文件名.随机数的十六进制.后缀
+		Pattern tempPattern = Pattern.compile(".+\\.[0-9a-f]{1,16}" + Pattern.quote(config.getAtomicUploadSuffix()));
+		long expireTime = System.currentTimeMillis() - config.getOrphanTempTimeoutMillis();
+		List<String> orphans;
+		try (Stream<FTPFile> files = listFiles(directory)) {
+			orphans = files.filter(file -> file.isFile() && tempPattern.matcher(file.getName()).matches()
+					&& file.getTimestamp() != null && file.getTimestamp().getTimeInMillis() < expireTime)
+					.map(file -> directory + file.getName())
+					.collect(Collectors.toList());
+		}
+		int deleted = 0;
+		for (String orphan : orphans) {
+			if (deleteFile(orphan)) {
+				deleted++;
+			}
+		}
+		if (deleted > 0) {
+			log.info("清理目录【{}】下遗留的临时文件{}个。", directory, deleted);
+		}
+		return deleted;
+	}
+
+	private TransferResult retrieveItem(FTPClient client, TransferItem item, long start) throws IOException {
+		File localFile = item.getLocalFile();
+		File parentFile = localFile.getAbsoluteFile().getParentFile();
+		if (!parentFile.exists() && !parentFile.mkdirs()) {
+			return TransferResult.failure(item.getRemotePath(), 0, "创建本地路径失败");
+		}
+		try (BandwidthLimiter.Permit permit = bandwidthLimiter.open();
+			 OutputStream os = new BufferedOutputStream(new FileOutputStream(localFile))) {
+			if (client.retrieveFile(getRemoteFileName(item.getRemotePath()), permit.wrap(os))) {
+				os.flush();
+				return TransferResult.success(item.getRemotePath(), localFile.length(), System.currentTimeMillis() - start);
+			}
+		}
+		return TransferResult.failure(item.getRemotePath(), System.currentTimeMillis() - start, client.getReplyString());
+	}
+
+	/**
+	 * 获取远程文件大小
+	 * @param client ftp客户端
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 返回文件字节数，服务器不支持SIZE命令或文件不存在时返回-1
+	 */
+	protected long getRemoteFileSize(FTPClient client, String remotePath) {
+		try {
+			int replyCode = client.sendCommand("SIZE", remotePath);
+			if (!FTPReply.isPositiveCompletion(replyCode)) {
+				log.warn("获取远程文件大小失败，{}", client.getReplyString());
+				return -1;
+			}
+			String[] reply = StringUtils.split(client.getReplyString().trim(), " ");
+			return Long.parseLong(reply[reply.length - 1]);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("获取远程文件大小异常。");
+			markBroken(client, ex);
+		}
+		return -1;
+	}
+
+	/**
+	 * 获取远程工作目录
+	 * @param remotePath 远程路径
+	 * @return 返回工作路径
+	 */
+	protected String getRemoteFilePath(String remotePath) {
+		if (StringUtils.isNotBlank(remotePath)) {
+			return remotePath.substring(0, remotePath.lastIndexOf("/") + 1);
+		}
+		return "/";
+	}
+
+	/**
+	 * 获取远程文件名
+	 * @param remotePath 远程路径
+	 * @return 返回文件名
+	 */
+	protected String getRemoteFileName(String remotePath) {
+		if (StringUtils.isNotBlank(remotePath)) {
+			return remotePath.substring(remotePath.lastIndexOf("/") + 1);
+		}
+		return "";
+	}
+
+	/**
+	 * 切换工作目录
+	 * @param client ftp客户端
+	 * @param dir 工作目录
+	 * @return 切换成功返回true，否则返回false
+	 */
+	protected boolean changeDirectory(FTPClient client, String dir) {
+		try {
+			if (client == null || StringUtils.isBlank(dir)) {
+				return false;
+			}
+
+			String fileSeparator = "/";
+			String target = RemoteDirectoryCache.normalize(dir);
+
+			// 目录已存在时一次切换到位
+			boolean cached = directoryCache.contains(target);
+			if (client.changeWorkingDirectory(target)) {
+				directoryCache.put(target);
+				return true;
+			}
+			if (cached) {
+				directoryCache.invalidate(target);
+			}
 
-			String[] dirArray = StringUtils.split(dir, fileSeparator);
+			String[] dirArray = StringUtils.split(target, fileSeparator);
 
+			// 从已知存在的最深上级目录开始逐级创建
 			String tmp = "";
-			for (String aDirArray : dirArray) {
-				tmp += fileSeparator + aDirArray;
+			int start = 0;
+			for (int i = dirArray.length - 1; i > 0; i--) {
+				String parent = fileSeparator + StringUtils.join(dirArray, fileSeparator, 0, i) + fileSeparator;
+				if (directoryCache.contains(parent)) {
+					tmp = parent.substring(0, parent.length() - 1);
+					start = i;
+					break;
+				}
+			}
+			for (int i = start; i < dirArray.length; i++) {
+				tmp += fileSeparator + dirArray[i];
 				if (!client.changeWorkingDirectory(tmp)) {
 					// 创建工作目录
 					client.makeDirectory(tmp);
@@ -366,10 +2002,14 @@ public abstract class FtpBaseTemplate {
 					client.changeWorkingDirectory(tmp);
 				}
 			}
+			if (FTPReply.isPositiveCompletion(client.getReplyCode())) {
+				directoryCache.put(target);
+			}
 			return true;
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			log.error("切换工作目录失败。");
+			markBroken(client, ex);
 		}
 		return false;
 	}
@@ -0,0 +1,22 @@
+package com.scenetec.ftp.template;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+/**
+ * 远程目录遍历回调
+ * 并行遍历时会在多个线程中同时调用，实现需要线程安全。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@FunctionalInterface
+public interface FtpFileVisitor {
+
+	/**
+	 * 访问一个条目
+	 * @param remotePath 条目的完整远程路径
+	 * @param file 条目信息
+	 * @return 条目为目录时，返回true继续遍历该目录，返回false跳过
+	 */
+	boolean visit(String remotePath, FTPFile file);
+}
@@ -0,0 +1,174 @@
+package com.scenetec.ftp.template;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.BandwidthLimiter;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.FtpKeyedPool;
+import com.scenetec.ftp.core.FtpServerKey;
+import com.scenetec.ftp.core.RemoteFileCache;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多服务器模板
+ * 同一个应用访问多个FTP服务器或多组账号时使用，各服务器的连接由{@link FtpKeyedPool}统一管理。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+@Component
+public class FtpKeyedTemplate {
+
+	private final FtpClientFactory factory;
+	private final FtpClientProperties config;
+	private final FtpKeyedPool pool;
+	/**
+	 * 各服务器的模板，服务器的连接池被淘汰时一并移除
+	 */
+	private final ConcurrentHashMap<FtpServerKey, ServerTemplate> templates = new ConcurrentHashMap<>();
+	/**
+	 * 带宽限制，各服务器的传输共享本机链路
+	 */
+	private final BandwidthLimiter bandwidthLimiter;
+	/**
+	 * 下载文件缓存，各服务器共享缓存容量
+	 */
+	private final RemoteFileCache fileCache;
+
+	public FtpKeyedTemplate(FtpClientFactory factory, FtpClientProperties config) {
+		this.factory = factory;
+		this.config = config;
+		this.bandwidthLimiter = new BandwidthLimiter(config);
+		this.fileCache = FtpBaseTemplate.newFileCache(config);
+		this.pool = new FtpKeyedPool(factory, config);
+		this.pool.setEvictionListener(templates::remove);
+	}
+
+	/**
+	 * 获取指定服务器的模板，用法与单服务器模板一致
+	 * @param key 服务器地址、登录用户和连接选项
+	 * @return 模板
+	 */
+	public FtpBaseTemplate forServer(FtpServerKey key) {
+		return templates.computeIfAbsent(key, ServerTemplate::new);
+	}
+
+	/**
+	 * 多服务器连接池
+	 * @return 连接池
+	 */
+	public FtpKeyedPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * 关闭连接池，清空下载文件缓存
+	 */
+	@PreDestroy
+	public void destroy() {
+		pool.close();
+		fileCache.clear();
+	}
+
+	/**
+	 * 绑定到一个服务器的模板
+	 */
+	private class ServerTemplate extends FtpBaseTemplate {
+
+		private final FtpServerKey key;
+
+		ServerTemplate(FtpServerKey key) {
+			super(FtpKeyedTemplate.this.config, FtpKeyedTemplate.this.bandwidthLimiter, FtpKeyedTemplate.this.fileCache);
+			this.key = key;
+		}
+
+		@Override
+		protected String cacheKey(String path) {
+			return key.getUsername() + "@" + key.getHost() + ":" + key.getPort() + path;
+		}
+
+		@Override
+		protected boolean uploadFile(InputStream inputStream, String remotePath) {
+			FTPClient client = null;
+			try {
+				client = borrowClient();
+				return uploadHandle(client, inputStream, remotePath);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				log.error("上传文件到【{}】异常。原因：【{}】", key.getHost(), ex.getMessage());
+			} finally {
+				if (client != null) {
+					returnClient(client);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean downloadFile(String remotePath, OutputStream outputStream) {
+			FTPClient client = null;
+			try {
+				client = borrowClient();
+				return downloadHandle(client, remotePath, outputStream);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				log.error("从【{}】下载文件异常。原因：【{}】", key.getHost(), ex.getMessage());
+			} finally {
+				if (client != null) {
+					returnClient(client);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean deleFile(String remotePath) {
+			FTPClient client = null;
+			try {
+				client = borrowClient();
+				return deleteHandle(client, remotePath);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				log.error("删除【{}】上的文件异常。原因：【{}】", key.getHost(), ex.getMessage());
+			} finally {
+				if (client != null) {
+					returnClient(client);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		protected FTPClient borrowClient() throws Exception {
+			return pool.borrowObject(key);
+		}
+
+		@Override
+		protected FTPClient tryBorrowClient() throws Exception {
+			return pool.borrowObject(key, 0);
+		}
+
+		@Override
+		protected void returnClient(FTPClient client) {
+			pool.returnObject(key, client);
+		}
+
+		@Override
+		protected void markBroken(FTPClient client) {
+			pool.markBroken(key, client);
+		}
+
+		@Override
+		protected FtpMetricsListener metricsListener() {
+			return factory.getMetricsListener();
+		}
+	}
+}
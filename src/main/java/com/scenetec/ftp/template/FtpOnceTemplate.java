@@ -1,10 +1,13 @@
 package com.scenetec.ftp.template;
 
+import com.scenetec.ftp.config.FtpClientProperties;
 import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -20,6 +23,10 @@ public class FtpOnceTemplate extends FtpBaseTemplate {
 	@Resource
 	private FtpClientFactory factory;
 
+	public FtpOnceTemplate(FtpClientProperties config) {
+		super(config);
+	}
+
 	/**
 	 * 上传文件
 	 *
@@ -95,4 +102,27 @@ public class FtpOnceTemplate extends FtpBaseTemplate {
 		return false;
 	}
 
+	@Override
+	protected FTPClient borrowClient() throws Exception {
+		return factory.create();
+	}
+
+	@Override
+	protected void returnClient(FTPClient client) {
+		factory.close(client);
+	}
+
+	@Override
+	protected FtpMetricsListener metricsListener() {
+		return factory.getMetricsListener();
+	}
+
+	/**
+	 * 清空下载文件缓存
+	 */
+	@PreDestroy
+	public void destroy() {
+		fileCache.clear();
+	}
+
 }
@@ -1,14 +1,48 @@
 package com.scenetec.ftp.template;
 
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.BandwidthLimiter;
+import com.scenetec.ftp.core.FtpChannelClient;
 import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.FtpConcurrentPool;
+import com.scenetec.ftp.core.FtpLoadBalancedPool;
+import com.scenetec.ftp.core.FtpObjectPool;
+import com.scenetec.ftp.core.RemoteChecksum;
+import com.scenetec.ftp.core.TransferPriority;
+import com.scenetec.ftp.core.VirtualThreads;
+import com.scenetec.ftp.io.HashAlgorithm;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import com.scenetec.ftp.metrics.TransferDirection;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.ftp.FTPClient;
-import org.apache.commons.net.ftp.FTPReply;
-import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author shendunyuan@scenetec.com
@@ -18,10 +52,96 @@ import java.io.OutputStream;
 @Component
 public class FtpPoolTemplate extends FtpBaseTemplate {
 
-	private GenericObjectPool<FTPClient> ftpClientPool;
+	private FtpClientFactory ftpClientFactory;
+	private FtpObjectPool ftpClientPool;
+	/**
+	 * 分段下载线程池
+	 */
+	private ExecutorService segmentExecutor;
+	/**
+	 * 批量传输线程池
+	 */
+	private ExecutorService batchExecutor;
+	/**
+	 * 预热结果
+	 */
+	private final CompletableFuture<Boolean> warmUpResult = new CompletableFuture<>();
+	private final AtomicBoolean warmUpStarted = new AtomicBoolean();
 
-	public FtpPoolTemplate(FtpClientFactory ftpClientFactory) {
-		this.ftpClientPool = new GenericObjectPool<>(ftpClientFactory);
+	public FtpPoolTemplate(FtpClientFactory ftpClientFactory, FtpClientProperties config) {
+		super(config);
+		this.ftpClientFactory = ftpClientFactory;
+		// 配置了多个服务器时按服务器分别建池并负载均衡
+		if (config.getHosts() == null || config.getHosts().isEmpty()) {
+			this.ftpClientPool = new FtpConcurrentPool(ftpClientFactory, config);
+		} else {
+			this.ftpClientPool = new FtpLoadBalancedPool(ftpClientFactory, config);
+		}
+		this.segmentExecutor = newExecutor(config.getDownloadParallelism(), "ftp-segment-");
+		this.batchExecutor = newExecutor(config.getBatchParallelism(), "ftp-batch-");
+		if (config.isTemplateVirtualThreads()) {
+			if (VirtualThreads.isSupported()) {
+				log.info("FTP pool template uses virtual threads.");
+			} else {
+				log.warn("Virtual threads are not supported by this JDK, fall back to platform threads.");
+			}
+		}
+		// 同步预热：创建连接池时并行建立最小空闲连接并等待完成
+		if (!config.isAsyncWarmUp()) {
+			warmUp().join();
+		}
+	}
+
+	/**
+	 * Spring容器就绪后在后台预热连接池
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (config.isAsyncWarmUp()) {
+			warmUp();
+		}
+	}
+
+	/**
+	 * 预热连接池，并行建立最小空闲连接，重复调用只预热一次
+	 * @return 预热结果，就绪时为true
+	 */
+	public CompletableFuture<Boolean> warmUp() {
+		if (warmUpStarted.compareAndSet(false, true)) {
+			long start = System.currentTimeMillis();
+			ftpClientPool.warmUp(config.getWarmUpParallelism()).whenComplete((ready, ex) -> {
+				if (ex != null) {
+					log.error("连接池预热异常。原因：【{}】", ex.getMessage());
+				}
+				log.info("连接池预热完成，耗时{}ms，就绪：{}", System.currentTimeMillis() - start, ftpClientPool.isReady());
+				warmUpResult.complete(ftpClientPool.isReady());
+			});
+		}
+		return warmUpResult;
+	}
+
+	/**
+	 * 连接池是否已就绪，未就绪时不宜承接请求
+	 * @return 就绪返回true
+	 */
+	public boolean isReady() {
+		return ftpClientPool.isReady();
+	}
+
+	/**
+	 * 等待连接池预热完成
+	 * @param timeout 最长等待时间
+	 * @param unit 时间单位
+	 * @return 已就绪返回true，超时或未就绪返回false
+	 * @throws InterruptedException 等待被中断
+	 */
+	public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+		try {
+			warmUpResult.get(timeout, unit);
+		} catch (ExecutionException | TimeoutException ex) {
+			return isReady();
+		}
+		return isReady();
 	}
 
 	/**
@@ -43,6 +163,7 @@ public class FtpPoolTemplate extends FtpBaseTemplate {
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			log.error("上传文件异常。");
+			recordFailure(ex);
 		} finally {
 			// 将对象放回池中
 			if (client != null) {
@@ -70,6 +191,7 @@ public class FtpPoolTemplate extends FtpBaseTemplate {
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			log.error("下载文件异常。");
+			recordFailure(ex);
 		} finally {
 			if (client != null) {
 				ftpClientPool.returnObject(client);
@@ -94,6 +216,7 @@ public class FtpPoolTemplate extends FtpBaseTemplate {
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			log.error("删除文件异常。");
+			recordFailure(ex);
 		} finally {
 			if (client != null) {
 				ftpClientPool.returnObject(client);
@@ -102,32 +225,356 @@ public class FtpPoolTemplate extends FtpBaseTemplate {
 		return false;
 	}
 
+	@Override
+	protected FTPClient borrowClient() throws Exception {
+		return ftpClientPool.borrowObject();
+	}
+
+	@Override
+	protected FTPClient tryBorrowClient() throws Exception {
+		return ftpClientPool.borrowObject(TransferPriority.current(), 0);
+	}
+
+	@Override
+	protected void returnClient(FTPClient client) {
+		ftpClientPool.returnObject(client);
+	}
+
+	@Override
+	protected void markBroken(FTPClient client) {
+		ftpClientPool.markBroken(client);
+	}
+
+	@Override
+	protected Executor getBatchExecutor() {
+		return batchExecutor;
+	}
+
+	@Override
+	protected FtpMetricsListener metricsListener() {
+		return ftpClientFactory.getMetricsListener();
+	}
 
 	/**
-	 * 验证连接是否成功
-	 * @return 连接登录成功返回true，否则返回false
+	 * 连接池状态快照
+	 * @return 借出、空闲、等待、创建、销毁及验证次数
 	 */
-	private FTPClient getFtpClient () {
+	public FtpPoolStats getPoolStats() {
+		return ftpClientPool.getStats();
+	}
+
+	/**
+	 * 分段并行下载文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param localPath 本地路径，必须包含文件名（全路径）
+	 * @return 下载成功返回true，否则返回false
+	 */
+	public boolean downloadFileParallel(String remotePath, String localPath) {
+		if (StringUtils.isBlank(localPath)) {
+			log.error("本地文件路径为空");
+			return false;
+		}
+		return downloadFileParallel(remotePath, new File(localPath));
+	}
+
+	/**
+	 * 分段并行下载文件
+	 * 按segmentSize将远程文件切分为若干字节区间，每个区间使用一个池化连接通过REST偏移下载，
+	 * 并写入预分配本地文件的对应位置。文件小于一个分段或服务器不支持SIZE时退化为普通下载。
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param localFile 本地文件
+	 * @return 下载成功返回true，否则返回false
+	 */
+	public boolean downloadFileParallel(String remotePath, File localFile) {
+		if (StringUtils.isBlank(remotePath)) {
+			log.error("远程路径为空");
+			return false;
+		}
+		// 获取远程文件大小
+		long fileSize = -1;
+		RemoteChecksum checksum = null;
 		FTPClient client = null;
 		try {
-			while (true) {
-				// 获取客户端
-				client = ftpClientPool.borrowObject();
-				// 验证客户端
-				if (client == null) {
+			client = getFtpClient();
+			if (client != null) {
+				fileSize = getRemoteFileSize(client, remotePath);
+				// 服务器支持区间校验时各分段下载的同时计算校验值，只重新下载不一致的分段
+				if (isVerifyIntegrity() && fileSize > config.getSegmentSize()) {
+					checksum = RemoteChecksum.negotiate(client);
+				}
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			log.error("获取校验方式异常。原因：【{}】", ex.getMessage());
+			markBroken(client, ex);
+		} finally {
+			if (client != null) {
+				ftpClientPool.returnObject(client);
+			}
+		}
+		long segmentSize = config.getSegmentSize();
+		if (fileSize <= segmentSize) {
+			return downloadFile(localFile, remotePath);
+		}
+		// 创建本地文件路径
+		File parentFile = localFile.getAbsoluteFile().getParentFile();
+		if (!parentFile.exists() && !parentFile.mkdirs()) {
+			log.error("创建本地路径失败");
+			return false;
+		}
+		long startNanos = System.nanoTime();
+		boolean success = false;
+		try (RandomAccessFile raf = new RandomAccessFile(localFile, "rw")) {
+			// 预分配本地文件
+			raf.setLength(fileSize);
+			FileChannel channel = raf.getChannel();
+			// 切分字节区间
+			RemoteChecksum segmentChecksum = checksum != null && checksum.supportsRanges() ? checksum : null;
+			List<Future<Boolean>> futures = new ArrayList<>();
+			List<MessageDigest> digests = new ArrayList<>();
+			for (long start = 0; start < fileSize; start += segmentSize) {
+				final long offset = start;
+				final long length = Math.min(segmentSize, fileSize - start);
+				final MessageDigest digest = segmentChecksum == null ? null : segmentChecksum.getAlgorithm().newDigest();
+				Callable<Boolean> task = TransferPriority.propagate(() -> downloadSegment(remotePath, channel, offset, length, digest))::get;
+				futures.add(segmentExecutor.submit(task));
+				digests.add(digest);
+			}
+			// 等待全部分段完成
+			success = true;
+			for (Future<Boolean> future : futures) {
+				success &= future.get();
+			}
+			if (success && segmentChecksum != null) {
+				success = verifySegments(remotePath, channel, fileSize, segmentChecksum, digests);
+			} else if (success && checksum != null) {
+				// 服务器不支持区间校验时校验整个文件
+				success = verifyFile(remotePath, channel, fileSize, checksum);
+			}
+			if (success) {
+				channel.force(false);
+				log.info("文件【{}】分段下载成功，共{}段。", remotePath, futures.size());
+			} else {
+				log.error("文件【{}】分段下载失败。", remotePath);
+			}
+			return success;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("分段下载文件异常。原因：【{}】", ex.getMessage());
+			success = false;
+		} finally {
+			recordTransfer(TransferDirection.DOWNLOAD, remotePath, success ? fileSize : 0, startNanos, success);
+		}
+		return false;
+	}
+
+	/**
+	 * 下载一个字节区间
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @param channel 本地文件通道
+	 * @param offset 区间起始偏移
+	 * @param length 区间长度
+	 * @param digest 下载的同时计算区间的校验值，不校验时为null
+	 * @return 下载成功返回true，否则返回false
+	 */
+	private boolean downloadSegment(String remotePath, FileChannel channel, long offset, long length, MessageDigest digest) {
+		// 设置重试次数
+		final int retryTime = 3;
+		long position = offset;
+		long remaining = length;
+
+		for (int i = 0; i <= retryTime && remaining > 0; i++) {
+			FTPClient client = null;
+			try {
+				client = getFtpClient();
+				if (isZeroCopy() && digest == null && client instanceof FtpChannelClient) {
+					// 数据连接直接写入文件通道
+					long received = ((FtpChannelClient) client).retrieveTo(remotePath, channel, position, remaining);
+					if (received > 0) {
+						position += received;
+						remaining -= received;
+					}
 					continue;
-				} else {
-					if (!client.isConnected() || !FTPReply.isPositiveCompletion(client.getReplyCode())) {
-						ftpClientPool.invalidateObject(client);
-					} else {
+				}
+				// 从断点位置开始读取
+				client.setRestartOffset(position);
+				InputStream is = client.retrieveFileStream(remotePath);
+				if (is == null) {
+					log.error("分段下载失败。{}", client.getReplyString());
+					continue;
+				}
+				byte[] buffer = new byte[config.getBufferSize()];
+				try (BandwidthLimiter.Permit permit = bandwidthLimiter.open()) {
+					while (remaining > 0) {
+						int len = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+						if (len < 0) {
+							break;
+						}
+						permit.acquire(len);
+						if (digest != null) {
+							digest.update(buffer, 0, len);
+						}
+						ByteBuffer src = ByteBuffer.wrap(buffer, 0, len);
+						while (src.hasRemaining()) {
+							position += channel.write(src, position);
+						}
+						remaining -= len;
+					}
+				} finally {
+					is.close();
+				}
+				// 提前关闭数据连接时服务器返回426，属于正常情况
+				client.completePendingCommand();
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				log.error("分段下载异常。原因：【{}】", ex.getMessage());
+				markBroken(client, ex);
+			} finally {
+				if (client != null) {
+					ftpClientPool.returnObject(client);
+				}
+			}
+			if (remaining > 0) {
+				log.warn("文件【{}】分段[{}]下载失败，重试下载...尝试{}次", remotePath, offset, i);
+			}
+		}
+		return remaining == 0;
+	}
+
+	/**
+	 * 逐段比较下载时计算的校验值与服务器的区间校验值，不一致的分段重新下载
+	 * @param remotePath 远程文件
+	 * @param channel 本地文件通道
+	 * @param fileSize 文件大小
+	 * @param checksum 支持区间校验的校验方式
+	 * @param digests 各分段下载时计算的摘要
+	 * @return 所有分段一致返回true
+	 */
+	private boolean verifySegments(String remotePath, FileChannel channel, long fileSize, RemoteChecksum checksum,
+								   List<MessageDigest> digests) {
+		long segmentSize = config.getSegmentSize();
+		final int retryTime = 3;
+		FTPClient client = getFtpClient();
+		if (client == null) {
+			return false;
+		}
+		try {
+			for (int index = 0; index < digests.size(); index++) {
+				long offset = index * segmentSize;
+				long length = Math.min(segmentSize, fileSize - offset);
+				String local = HashAlgorithm.toHex(digests.get(index).digest());
+				for (int i = 0; ; i++) {
+					String remote = checksum.query(client, remotePath, offset, offset + length);
+					if (remote == null) {
+						log.warn("获取文件【{}】分段[{}]校验值失败，只校验大小。{}", remotePath, offset, client.getReplyString());
 						break;
 					}
+					if (checksum.matches(local, remote)) {
+						break;
+					}
+					if (i >= retryTime) {
+						log.error("文件【{}】分段[{}]{}校验失败。", remotePath, offset, checksum);
+						return false;
+					}
+					log.warn("文件【{}】分段[{}]{}校验不一致，重新下载该分段...尝试{}次", remotePath, offset, checksum, i);
+					// 重新下载时另借连接，先归还当前连接，最大连接数为1时不会互相等待
+					ftpClientPool.returnObject(client);
+					client = null;
+					MessageDigest digest = checksum.getAlgorithm().newDigest();
+					if (!downloadSegment(remotePath, channel, offset, length, digest)) {
+						return false;
+					}
+					local = HashAlgorithm.toHex(digest.digest());
+					client = getFtpClient();
+					if (client == null) {
+						return false;
+					}
+				}
+			}
+			return true;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("分段校验异常。原因：【{}】", ex.getMessage());
+			markBroken(client, ex);
+		} finally {
+			if (client != null) {
+				ftpClientPool.returnObject(client);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 计算合并后本地文件的校验值，与服务器整个文件的校验值比较
+	 * 无法确定不一致的分段，校验失败时整个下载失败。
+	 * @param remotePath 远程文件
+	 * @param channel 本地文件通道
+	 * @param fileSize 文件大小
+	 * @param checksum 校验方式
+	 * @return 一致或服务器未返回校验值时返回true
+	 */
+	private boolean verifyFile(String remotePath, FileChannel channel, long fileSize, RemoteChecksum checksum) {
+		FTPClient client = getFtpClient();
+		if (client == null) {
+			return false;
+		}
+		try {
+			MessageDigest digest = checksum.getAlgorithm().newDigest();
+			ByteBuffer buffer = ByteBuffer.allocate(config.getBufferSize());
+			for (long position = 0; position < fileSize; ) {
+				buffer.clear();
+				int len = channel.read(buffer, position);
+				if (len < 0) {
+					break;
 				}
+				digest.update(buffer.array(), 0, len);
+				position += len;
 			}
+			return verifyChecksum(client, remotePath, checksum, HashAlgorithm.toHex(digest.digest()));
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			log.error("文件校验异常。原因：【{}】", ex.getMessage());
+			markBroken(client, ex);
+		} finally {
+			ftpClientPool.returnObject(client);
+		}
+		return false;
+	}
+
+	/**
+	 * 创建传输线程池，虚拟线程模式下并行数只限制同时运行的任务数
+	 * @param parallelism 并行数
+	 * @param threadNamePrefix 平台线程名前缀
+	 * @return 线程池
+	 */
+	private ExecutorService newExecutor(int parallelism, String threadNamePrefix) {
+		ExecutorService executor = config.isTemplateVirtualThreads() ? VirtualThreads.newExecutor(parallelism) : null;
+		return executor != null ? executor : Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory(threadNamePrefix));
+	}
+
+	/**
+	 * 关闭线程池和连接池，清空下载文件缓存
+	 */
+	@PreDestroy
+	public void destroy() {
+		segmentExecutor.shutdownNow();
+		batchExecutor.shutdownNow();
+		ftpClientPool.close();
+		fileCache.clear();
+	}
+
+	/**
+	 * 从池中获取连接，连接验证由连接池按验证策略完成
+	 * @return ftp客户端，获取失败返回null
+	 */
+	private FTPClient getFtpClient () {
+		try {
+			return ftpClientPool.borrowObject();
 		} catch (Exception ex) {
 			ex.printStackTrace();
+			log.error("获取FTP连接失败。原因：【{}】", ex.getMessage());
 		}
-		return client;
+		return null;
 	}
 
 }
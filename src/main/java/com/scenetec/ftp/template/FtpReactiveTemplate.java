@@ -0,0 +1,244 @@
+package com.scenetec.ftp.template;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.metrics.TransferDirection;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 响应式传输模板
+ * 下载时按订阅者的请求量从数据连接读取，上传时按写出速度向上游请求数据，
+ * 内存占用只与缓冲区大小有关，与文件大小无关。阻塞的socket读写在elastic调度器上执行。
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+@Slf4j
+@Component
+public class FtpReactiveTemplate {
+
+	/**
+	 * 上传时预取的数据块数
+	 */
+	private static final int UPLOAD_PREFETCH = 4;
+
+	private final FtpPoolTemplate ftpPoolTemplate;
+	private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+	private final int bufferSize;
+
+	public FtpReactiveTemplate(FtpPoolTemplate ftpPoolTemplate, FtpClientProperties config) {
+		this.ftpPoolTemplate = ftpPoolTemplate;
+		this.bufferSize = config.getStreamBufferSize();
+	}
+
+	/**
+	 * 以数据流形式下载文件
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 文件内容，订阅时开始下载，取消订阅时关闭数据连接并归还连接
+	 */
+	public Flux<DataBuffer> downloadFile(String remotePath) {
+		return Flux.using(() -> openDownload(remotePath),
+				session -> Flux.<DataBuffer>generate(sink -> {
+					try {
+						byte[] bytes = new byte[bufferSize];
+						int len = session.inputStream.read(bytes);
+						if (len < 0) {
+							session.completed = true;
+							sink.complete();
+						} else {
+							session.bytes += len;
+							sink.next(bufferFactory.wrap(ByteBuffer.wrap(bytes, 0, len)));
+						}
+					} catch (IOException ex) {
+						session.broken = true;
+						sink.error(ex);
+					}
+				}),
+				this::closeDownload)
+				.subscribeOn(Schedulers.elastic());
+	}
+
+	/**
+	 * 从数据流上传文件
+	 * 开启原子上传时先写入临时文件，全部写入后改名为目标文件，出错或取消时删除临时文件。
+	 * @param content 文件内容
+	 * @param remotePath 远程文件，必须包含文件名
+	 * @return 上传成功返回true，否则返回false
+	 */
+	public Mono<Boolean> uploadFile(Publisher<DataBuffer> content, String remotePath) {
+		return Mono.using(() -> openUpload(remotePath),
+				session -> Flux.from(content)
+						.publishOn(Schedulers.elastic(), UPLOAD_PREFETCH)
+						.doOnNext(buffer -> write(session, buffer))
+						.then(Mono.fromCallable(() -> completeUpload(session))),
+				this::closeUpload)
+				.onErrorResume(ex -> {
+					log.error("上传文件【{}】异常。原因：【{}】", remotePath, ex.getMessage());
+					return Mono.just(false);
+				})
+				.subscribeOn(Schedulers.elastic());
+	}
+
+	private Session openDownload(String remotePath) throws Exception {
+		FTPClient client = ftpPoolTemplate.borrowClient();
+		Session session = new Session(client, TransferDirection.DOWNLOAD, remotePath);
+		try {
+			session.inputStream = client.retrieveFileStream(remotePath);
+		} catch (IOException ex) {
+			session.broken = true;
+			closeDownload(session);
+			throw ex;
+		}
+		if (session.inputStream == null) {
+			String reply = client.getReplyString();
+			closeDownload(session);
+			throw new IOException("下载文件失败，" + reply);
+		}
+		return session;
+	}
+
+	private void closeDownload(Session session) {
+		try {
+			if (session.inputStream != null) {
+				session.inputStream.close();
+				// 提前取消时服务器返回426，属于正常情况
+				if (!session.client.completePendingCommand() && session.completed) {
+					log.error("文件下载失败。 {}", session.client.getReplyString());
+				}
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			session.broken = true;
+		} finally {
+			release(session);
+		}
+	}
+
+	private Session openUpload(String remotePath) throws Exception {
+		FTPClient client = ftpPoolTemplate.borrowClient();
+		Session session = new Session(client, TransferDirection.UPLOAD, remotePath);
+		try {
+			if (!ftpPoolTemplate.changeDirectory(client, ftpPoolTemplate.getRemoteFilePath(remotePath))) {
+				throw new IOException("切换工作路径失败，" + client.getReplyString());
+			}
+			String target = ftpPoolTemplate.getRemoteFileName(remotePath);
+			String storeName = ftpPoolTemplate.isAtomicUpload() ? ftpPoolTemplate.tempName(target) : target;
+			session.outputStream = client.storeFileStream(storeName);
+			if (session.outputStream == null) {
+				throw new IOException("上传文件失败，" + client.getReplyString());
+			}
+			session.channel = Channels.newChannel(session.outputStream);
+			if (!storeName.equals(target)) {
+				session.tempName = storeName;
+			}
+		} catch (IOException ex) {
+			release(session);
+			throw ex;
+		}
+		return session;
+	}
+
+	private void write(Session session, DataBuffer buffer) {
+		try {
+			ByteBuffer byteBuffer = buffer.asByteBuffer();
+			while (byteBuffer.hasRemaining()) {
+				session.bytes += session.channel.write(byteBuffer);
+			}
+		} catch (IOException ex) {
+			session.broken = true;
+			throw new IllegalStateException(ex);
+		} finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+	private boolean completeUpload(Session session) throws IOException {
+		session.outputStream.close();
+		session.outputStream = null;
+		boolean stored = session.client.completePendingCommand();
+		if (!stored) {
+			log.error("文件上传失败。{}", session.client.getReplyString());
+		} else if (session.tempName != null) {
+			// 改名失败时临时文件已被删除
+			String tempName = session.tempName;
+			session.tempName = null;
+			stored = ftpPoolTemplate.commitUpload(session.client, tempName,
+					ftpPoolTemplate.getRemoteFileName(session.remotePath));
+		}
+		session.completed = stored;
+		return stored;
+	}
+
+	private void closeUpload(Session session) {
+		try {
+			if (session.outputStream != null) {
+				// 上游出错或取消，关闭数据连接放弃本次上传
+				session.outputStream.close();
+				session.client.completePendingCommand();
+			}
+			if (session.tempName != null) {
+				// 删除未写完的临时文件
+				session.client.deleteFile(session.tempName);
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			session.broken = true;
+		} finally {
+			release(session);
+		}
+	}
+
+	private void release(Session session) {
+		if (session.direction == TransferDirection.UPLOAD) {
+			ftpPoolTemplate.invalidateCache(session.remotePath);
+		}
+		ftpPoolTemplate.recordTransfer(session.direction, session.remotePath, session.bytes,
+				session.startNanos, session.completed);
+		if (session.broken) {
+			ftpPoolTemplate.markBroken(session.client);
+		}
+		ftpPoolTemplate.returnClient(session.client);
+	}
+
+	/**
+	 * 一次传输占用的连接和数据流
+	 */
+	private static class Session {
+		private final FTPClient client;
+		private final TransferDirection direction;
+		private final String remotePath;
+		private final long startNanos = System.nanoTime();
+		private volatile long bytes;
+		private InputStream inputStream;
+		private OutputStream outputStream;
+		private WritableByteChannel channel;
+		/**
+		 * 原子上传的临时文件，改名后为null
+		 */
+		private String tempName;
+		private volatile boolean completed;
+		private volatile boolean broken;
+
+		Session(FTPClient client, TransferDirection direction, String remotePath) {
+			this.client = client;
+			this.direction = direction;
+			this.remotePath = remotePath;
+		}
+	}
+}
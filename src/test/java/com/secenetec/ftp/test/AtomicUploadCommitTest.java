@@ -0,0 +1,78 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.template.FtpOnceTemplate;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class AtomicUploadCommitTest {
+
+	private final CommitTemplate template = new CommitTemplate(new FtpClientProperties());
+
+	@Test
+	public void refusedRnfrLeavesTargetUntouched() throws Exception {
+		FTPClient client = mock(FTPClient.class);
+		when(client.rnfr("a.csv.1.part")).thenReturn(550);
+
+		assertFalse(template.commit(client, "a.csv.1.part", "a.csv"));
+		verify(client, never()).rnto(anyString());
+		verify(client, never()).deleteFile("a.csv");
+		verify(client, never()).rename(eq("a.csv"), anyString());
+	}
+
+	@Test
+	public void existingTargetIsReplacedThroughBackup() throws Exception {
+		FTPClient client = mock(FTPClient.class);
+		when(client.rnfr("a.csv.1.part")).thenReturn(350);
+		when(client.rnto("a.csv")).thenReturn(553);
+		when(client.mdtm("a.csv")).thenReturn(213);
+		when(client.rename(eq("a.csv"), startsWith("a.csv."))).thenReturn(true);
+		when(client.rename("a.csv.1.part", "a.csv")).thenReturn(true);
+		when(client.deleteFile(startsWith("a.csv."))).thenReturn(true);
+
+		assertTrue(template.commit(client, "a.csv.1.part", "a.csv"));
+		verify(client).deleteFile(startsWith("a.csv."));
+		verify(client, never()).deleteFile("a.csv");
+		verify(client, never()).deleteFile("a.csv.1.part");
+	}
+
+	@Test
+	public void failedReplaceRestoresBackup() throws Exception {
+		FTPClient client = mock(FTPClient.class);
+		when(client.rnfr("a.csv.1.part")).thenReturn(350);
+		when(client.rnto("a.csv")).thenReturn(553);
+		when(client.mdtm("a.csv")).thenReturn(213);
+		when(client.rename(eq("a.csv"), startsWith("a.csv."))).thenReturn(true);
+		when(client.rename("a.csv.1.part", "a.csv")).thenReturn(false);
+		when(client.rename(startsWith("a.csv."), eq("a.csv"))).thenReturn(false);
+
+		assertFalse(template.commit(client, "a.csv.1.part", "a.csv"));
+		// 原文件未能恢复时临时文件和备份都保留
+		verify(client, never()).deleteFile(anyString());
+	}
+
+	private static class CommitTemplate extends FtpOnceTemplate {
+
+		CommitTemplate(FtpClientProperties config) {
+			super(config);
+		}
+
+		boolean commit(FTPClient client, String tempName, String target) throws Exception {
+			return commitUpload(client, tempName, target);
+		}
+	}
+}
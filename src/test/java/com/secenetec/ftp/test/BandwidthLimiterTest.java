@@ -0,0 +1,58 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.BandwidthLimiter;
+import com.scenetec.ftp.core.TransferPriority;
+import com.scenetec.ftp.io.TokenBucket;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class BandwidthLimiterTest {
+
+	private static final int KB = 1024;
+
+	@Test
+	public void tokenBucketLimitsRate() throws Exception {
+		TokenBucket bucket = new TokenBucket(1024 * KB);
+		long start = System.nanoTime();
+		for (int i = 0; i < 8; i++) {
+			bucket.acquire(128 * KB);
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// 1MB按1MB/s，扣除100ms突发
+		assertTrue("elapsed " + elapsed, elapsed >= 800 && elapsed < 2000);
+	}
+
+	@Test
+	public void bulkIsThrottledOnlyWhileInteractiveActive() throws Exception {
+		BandwidthLimiter limiter = new BandwidthLimiter(0, 1024 * KB, 0);
+		long elapsed = TransferPriority.BULK.call(() -> timeAcquire(limiter, 512 * KB));
+		assertTrue("elapsed " + elapsed, elapsed < 200);
+
+		try (BandwidthLimiter.Permit interactive = limiter.open()) {
+			assertEquals(1, limiter.getActiveInteractive());
+			elapsed = TransferPriority.BULK.call(() -> timeAcquire(limiter, 512 * KB));
+			assertTrue("elapsed " + elapsed, elapsed >= 350);
+		}
+		assertEquals(0, limiter.getActiveInteractive());
+	}
+
+	private static long timeAcquire(BandwidthLimiter limiter, int bytes) {
+		long start = System.nanoTime();
+		try (BandwidthLimiter.Permit permit = limiter.open()) {
+			for (int i = 0; i < bytes; i += 64 * KB) {
+				permit.acquire(64 * KB);
+			}
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,109 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.io.TransferCodecs;
+import com.scenetec.ftp.template.FtpPoolTemplate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 压缩传输：gzip编解码上传下载，以及MODE Z压缩数据连接
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CompressedTransferTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private EmbeddedFtpServer server;
+	private File root;
+	private byte[] content;
+	private File localFile;
+
+	@Before
+	public void setUp() throws Exception {
+		root = folder.newFolder("root");
+		server = EmbeddedFtpServer.start(root);
+		content = new byte[700 * 1024 + 3];
+		for (int i = 0; i < content.length / 2; i++) {
+			content[i] = (byte) ('0' + i % 10);
+		}
+		byte[] random = new byte[content.length - content.length / 2];
+		new Random(11).nextBytes(random);
+		System.arraycopy(random, 0, content, content.length / 2, random.length);
+		localFile = folder.newFile("local.bin");
+		Files.write(localFile.toPath(), content);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void gzipRoundTrip() throws Exception {
+		FtpClientProperties config = server.newConfig();
+		config.setAtomicUpload(true);
+		FtpPoolTemplate template = new FtpPoolTemplate(new FtpClientFactory(config), config);
+		File downloaded = new File(folder.getRoot(), "out/local.bin");
+		try {
+			assertTrue(template.uploadFile(localFile, "/gz/local.bin.gz", TransferCodecs.GZIP));
+			assertTrue(template.downloadFile(downloaded, "/gz/local.bin.gz", TransferCodecs.GZIP));
+		} finally {
+			template.destroy();
+		}
+		// 远程文件为标准gzip格式
+		File remote = new File(root, "gz/local.bin.gz");
+		assertTrue(remote.length() < content.length);
+		try (InputStream is = new GZIPInputStream(new FileInputStream(remote))) {
+			assertArrayEquals(content, readAll(is));
+		}
+		assertArrayEquals(content, Files.readAllBytes(downloaded.toPath()));
+	}
+
+	@Test
+	public void modeZRoundTrip() throws Exception {
+		FtpClientProperties config = server.newConfig();
+		config.setModeZ(true);
+		config.setZeroCopy(true);
+		FtpPoolTemplate template = new FtpPoolTemplate(new FtpClientFactory(config), config);
+		File downloaded = new File(folder.getRoot(), "local.copy");
+		try {
+			assertTrue(template.uploadFile(localFile, "/z/local.bin"));
+			assertTrue(template.downloadFile(downloaded, "/z/local.bin"));
+		} finally {
+			template.destroy();
+		}
+		// 服务器解压后保存原始内容
+		assertArrayEquals(content, Files.readAllBytes(new File(root, "z/local.bin").toPath()));
+		assertArrayEquals(content, Files.readAllBytes(downloaded.toPath()));
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int len;
+		while ((len = is.read(buffer)) != -1) {
+			bos.write(buffer, 0, len);
+		}
+		return bos.toByteArray();
+	}
+}
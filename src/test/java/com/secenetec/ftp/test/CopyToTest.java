@@ -0,0 +1,120 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.template.FtpPoolTemplate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 服务器间复制：经本机中转和FXP，目标开启原子上传
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class CopyToTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private EmbeddedFtpServer sourceServer;
+	private EmbeddedFtpServer targetServer;
+	private File sourceRoot;
+	private File targetRoot;
+	private byte[] content;
+
+	@Before
+	public void setUp() throws Exception {
+		sourceRoot = folder.newFolder("source");
+		targetRoot = folder.newFolder("target");
+		sourceServer = EmbeddedFtpServer.start(sourceRoot);
+		targetServer = EmbeddedFtpServer.start(targetRoot);
+		content = new byte[300 * 1024 + 17];
+		new Random(7).nextBytes(content);
+		new File(sourceRoot, "in").mkdirs();
+		Files.write(new File(sourceRoot, "in/data.bin").toPath(), content);
+	}
+
+	@After
+	public void tearDown() {
+		sourceServer.stop();
+		targetServer.stop();
+	}
+
+	@Test
+	public void relayCopyWithAtomicUpload() throws Exception {
+		assertCopied(false);
+	}
+
+	@Test
+	public void fxpCopyWithAtomicUpload() throws Exception {
+		assertCopied(true);
+	}
+
+	@Test
+	public void concurrentCopiesWithinOneServerDoNotDeadlock() throws Exception {
+		FtpClientProperties config = sourceServer.newConfig();
+		config.setMaxTotal(2);
+		config.setMaxWaitMillis(10000L);
+		config.setFxpEnabled(false);
+		config.setAtomicUpload(true);
+		FtpPoolTemplate template = new FtpPoolTemplate(new FtpClientFactory(config), config);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				String targetPath = "/out/copy" + i + ".bin";
+				futures.add(executor.submit(() -> template.copyTo("/in/data.bin", template, targetPath)));
+			}
+			for (Future<Boolean> future : futures) {
+				assertTrue(future.get());
+			}
+		} finally {
+			executor.shutdown();
+			template.destroy();
+		}
+		for (int i = 0; i < 8; i++) {
+			assertArrayEquals(content, Files.readAllBytes(new File(sourceRoot, "out/copy" + i + ".bin").toPath()));
+		}
+		assertEquals(8, new File(sourceRoot, "out").list().length);
+	}
+
+	private void assertCopied(boolean fxp) throws Exception {
+		FtpClientProperties sourceConfig = sourceServer.newConfig();
+		sourceConfig.setFxpEnabled(fxp);
+		FtpClientProperties targetConfig = targetServer.newConfig();
+		targetConfig.setFxpEnabled(fxp);
+		targetConfig.setAtomicUpload(true);
+		FtpPoolTemplate source = new FtpPoolTemplate(new FtpClientFactory(sourceConfig), sourceConfig);
+		FtpPoolTemplate target = new FtpPoolTemplate(new FtpClientFactory(targetConfig), targetConfig);
+		try {
+			// 目标文件已存在时被替换
+			new File(targetRoot, "out").mkdirs();
+			Files.write(new File(targetRoot, "out/data.bin").toPath(), new byte[]{1, 2, 3});
+
+			assertTrue(source.copyTo("/in/data.bin", target, "/out/data.bin"));
+		} finally {
+			source.destroy();
+			target.destroy();
+		}
+		assertArrayEquals(content, Files.readAllBytes(new File(targetRoot, "out/data.bin").toPath()));
+		// 临时文件已改名，没有遗留
+		assertEquals(1, new File(targetRoot, "out").list().length);
+	}
+}
@@ -0,0 +1,142 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.DeflateSocket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MODE Z数据连接：本机socket对上压缩写出的数据按zlib格式解压后逐字节一致
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class DeflateSocketTest {
+
+	private ServerSocket serverSocket;
+	private Socket client;
+	private Socket server;
+
+	@Before
+	public void setUp() throws Exception {
+		serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+		server = serverSocket.accept();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+		serverSocket.close();
+	}
+
+	@Test
+	public void deflatedOutputInflatesBack() throws Exception {
+		byte[] content = content();
+		CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> {
+			// 对端按标准zlib格式解压
+			try (InputStream is = new InflaterInputStream(server.getInputStream())) {
+				return readAll(is);
+			} catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		DeflateSocket socket = new DeflateSocket(client);
+		try (OutputStream os = socket.getOutputStream()) {
+			os.write(content, 0, 1000);
+			os.write(content, 1000, content.length - 1000);
+		}
+		assertArrayEquals(content, received.get(10, TimeUnit.SECONDS));
+		assertTrue(client.isClosed());
+	}
+
+	@Test
+	public void inflatesStandardZlibInput() throws Exception {
+		byte[] content = content();
+		CompletableFuture<Void> sent = CompletableFuture.runAsync(() -> {
+			try (OutputStream os = new DeflaterOutputStream(server.getOutputStream())) {
+				os.write(content);
+			} catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		DeflateSocket socket = new DeflateSocket(client);
+		try (InputStream is = socket.getInputStream()) {
+			assertArrayEquals(content, readAll(is));
+		}
+		sent.get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void closesPartiallyReadStream() throws Exception {
+		byte[] content = content();
+		CompletableFuture<Void> sent = CompletableFuture.runAsync(() -> {
+			try (OutputStream os = new DeflateSocket(server).getOutputStream()) {
+				os.write(content);
+			} catch (IOException ex) {
+				// 读取方提前关闭，写入失败属于正常情况
+			}
+		});
+		DeflateSocket socket = new DeflateSocket(client);
+		InputStream is = socket.getInputStream();
+		byte[] head = new byte[4096];
+		int read = 0;
+		while (read < head.length) {
+			read += is.read(head, read, head.length - read);
+		}
+		assertArrayEquals(Arrays.copyOf(content, head.length), head);
+		// 只读取了一部分，关闭时释放解压器并关闭数据连接
+		is.close();
+		assertTrue(socket.isClosed());
+		sent.get(10, TimeUnit.SECONDS);
+		try {
+			is.read();
+			throw new AssertionError("read after close");
+		} catch (IOException ex) {
+			assertEquals("Stream closed", ex.getMessage());
+		}
+	}
+
+	/**
+	 * 可压缩的文本和不可压缩的随机数据各一半
+	 */
+	private static byte[] content() {
+		byte[] content = new byte[512 * 1024];
+		for (int i = 0; i < content.length / 2; i++) {
+			content[i] = (byte) ('a' + i % 26);
+		}
+		byte[] random = new byte[content.length / 2];
+		new Random(42).nextBytes(random);
+		System.arraycopy(random, 0, content, content.length / 2, random.length);
+		return content;
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int len;
+		while ((len = is.read(buffer)) != -1) {
+			bos.write(buffer, 0, len);
+		}
+		return bos.toByteArray();
+	}
+}
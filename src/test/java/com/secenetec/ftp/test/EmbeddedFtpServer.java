@@ -0,0 +1,82 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+/**
+ * 测试使用的进程内FTP服务器，用户test/test，主目录为指定目录
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class EmbeddedFtpServer {
+
+	private final FtpServer server;
+	private final int port;
+
+	private EmbeddedFtpServer(FtpServer server, int port) {
+		this.server = server;
+		this.port = port;
+	}
+
+	/**
+	 * 启动服务器
+	 * @param root 用户主目录
+	 * @return 服务器
+	 */
+	public static EmbeddedFtpServer start(File root) throws IOException, FtpException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		ListenerFactory listenerFactory = new ListenerFactory();
+		listenerFactory.setServerAddress("127.0.0.1");
+		listenerFactory.setPort(port);
+		ConnectionConfigFactory connectionConfig = new ConnectionConfigFactory();
+		connectionConfig.setAnonymousLoginEnabled(false);
+		connectionConfig.setMaxLogins(64);
+
+		FtpServerFactory serverFactory = new FtpServerFactory();
+		serverFactory.addListener("default", listenerFactory.createListener());
+		serverFactory.setConnectionConfig(connectionConfig.createConnectionConfig());
+		BaseUser user = new BaseUser();
+		user.setName("test");
+		user.setPassword("test");
+		user.setHomeDirectory(root.getAbsolutePath());
+		user.setAuthorities(Arrays.asList(new WritePermission(), new ConcurrentLoginPermission(64, 64)));
+		serverFactory.getUserManager().save(user);
+		FtpServer server = serverFactory.createServer();
+		server.start();
+		return new EmbeddedFtpServer(server, port);
+	}
+
+	/**
+	 * 连接该服务器的客户端配置
+	 * @return 配置
+	 */
+	public FtpClientProperties newConfig() {
+		FtpClientProperties config = new FtpClientProperties();
+		config.setHost("127.0.0.1");
+		config.setPort(port);
+		config.setUsername("test");
+		config.setPassword("test");
+		config.setPassiveMode(true);
+		return config;
+	}
+
+	public void stop() {
+		server.stop();
+	}
+}
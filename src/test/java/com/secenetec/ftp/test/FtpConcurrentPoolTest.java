@@ -0,0 +1,275 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.FtpConcurrentPool;
+import com.scenetec.ftp.core.TransferPriority;
+import com.scenetec.ftp.core.ValidationPolicy;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class FtpConcurrentPoolTest {
+
+	private FtpClientFactory factory;
+	private FtpClientProperties config;
+
+	@Before
+	public void setUp() throws Exception {
+		config = new FtpClientProperties();
+		config.setMaxTotal(2);
+		config.setMaxIdle(2);
+		config.setMaxWaitMillis(200L);
+		factory = mock(FtpClientFactory.class);
+		when(factory.create()).thenAnswer(invocation -> {
+			FTPClient client = mock(FTPClient.class);
+			when(client.isConnected()).thenReturn(true);
+			return client;
+		});
+		when(factory.wrap(any())).thenCallRealMethod();
+		when(factory.validateObject(any())).thenReturn(true);
+		when(factory.getMetricsListener()).thenReturn(FtpMetricsListener.NOOP);
+	}
+
+	@Test
+	public void warmUpFillsMinIdleInParallel() throws Exception {
+		config.setMinIdle(2);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		assertFalse(pool.isReady());
+		assertTrue(pool.warmUp(2).get(1, TimeUnit.SECONDS));
+		assertTrue(pool.isReady());
+		assertEquals(2, pool.getNumIdle());
+	}
+
+	@Test
+	public void warmUpNotReadyWhenServerDown() throws Exception {
+		config.setMinIdle(2);
+		doThrow(new IOException("Connection refused")).when(factory).create();
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		assertFalse(pool.warmUp(2).get(1, TimeUnit.SECONDS));
+		assertFalse(pool.isReady());
+	}
+
+	@Test
+	public void statsReflectCreatedAndDestroyed() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		FTPClient second = pool.borrowObject();
+		pool.returnObject(first);
+		pool.invalidateObject(second);
+		FtpPoolStats stats = pool.getStats();
+		assertEquals(2, stats.getCreated());
+		assertEquals(1, stats.getDestroyed());
+		assertEquals(0, stats.getActive());
+		assertEquals(1, stats.getIdle());
+	}
+
+	@Test
+	public void sameThreadReusesReturnedClient() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		pool.returnObject(first);
+		assertSame(first, pool.borrowObject());
+		assertEquals(1, pool.getNumActive());
+		assertEquals(0, pool.getNumIdle());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void borrowTimesOutWhenExhausted() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		pool.borrowObject();
+		pool.borrowObject();
+		pool.borrowObject();
+	}
+
+	@Test
+	public void waiterReceivesReturnedClient() throws Exception {
+		config.setMaxWaitMillis(5000L);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		pool.borrowObject();
+
+		CompletableFuture<FTPClient> waiter = CompletableFuture.supplyAsync(() -> {
+			try {
+				return pool.borrowObject();
+			} catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		while (pool.getNumWaiters() == 0) {
+			Thread.sleep(5);
+		}
+		pool.returnObject(first);
+		assertSame(first, waiter.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void interactiveWaiterIsServedBeforeBulkWaiter() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		FTPClient second = pool.borrowObject();
+
+		CompletableFuture<FTPClient> bulk = borrowAsync(pool, TransferPriority.BULK);
+		while (pool.getNumWaiters() < 1) {
+			Thread.sleep(5);
+		}
+		CompletableFuture<FTPClient> interactive = borrowAsync(pool, TransferPriority.INTERACTIVE);
+		while (pool.getNumWaiters() < 2) {
+			Thread.sleep(5);
+		}
+		Thread.sleep(50);
+		pool.returnObject(first);
+		assertSame(first, interactive.get(5, TimeUnit.SECONDS));
+		assertFalse(bulk.isDone());
+		pool.returnObject(second);
+		assertSame(second, bulk.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void bulkBorrowersLeaveReservedConnections() throws Exception {
+		config.setReservedConnections(1);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient bulk = pool.borrowObject(TransferPriority.BULK, 100);
+		try {
+			pool.borrowObject(TransferPriority.BULK, 100);
+			fail("bulk borrower took the reserved connection");
+		} catch (NoSuchElementException expected) {
+			assertEquals(1, pool.getNumBulkActive());
+		}
+		FTPClient interactive = pool.borrowObject(TransferPriority.INTERACTIVE, 100);
+		assertEquals(2, pool.getNumActive());
+		pool.returnObject(bulk);
+		assertEquals(0, pool.getNumBulkActive());
+		pool.returnObject(interactive);
+		assertSame(interactive, pool.borrowObject(TransferPriority.BULK, 100));
+	}
+
+	private static CompletableFuture<FTPClient> borrowAsync(FtpConcurrentPool pool, TransferPriority priority) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return pool.borrowObject(priority, 5000);
+			} catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+	}
+
+	@Test
+	public void invalidatedClientFreesCapacity() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		pool.borrowObject();
+		pool.invalidateObject(first);
+		pool.borrowObject();
+		assertEquals(2, pool.getNumActive());
+	}
+
+	@Test
+	public void recentlyUsedClientSkipsValidation() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		pool.returnObject(pool.borrowObject());
+		pool.borrowObject();
+		verify(factory, never()).validateObject(any());
+		assertEquals(1, pool.getValidationsSkipped());
+	}
+
+	@Test
+	public void alwaysPolicyValidatesEveryBorrow() throws Exception {
+		config.setValidationPolicy(ValidationPolicy.ALWAYS);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		pool.returnObject(pool.borrowObject());
+		pool.returnObject(pool.borrowObject());
+		pool.borrowObject();
+		verify(factory, times(2)).validateObject(any());
+		assertEquals(2, pool.getValidationsPerformed());
+	}
+
+	@Test
+	public void brokenClientIsDestroyedOnReturn() throws Exception {
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		pool.markBroken(first);
+		pool.returnObject(first);
+		assertNotSame(first, pool.borrowObject());
+		assertEquals(1, pool.getNumActive());
+	}
+
+	@Test
+	public void expiredIdleClientIsReplacedInBackground() throws Exception {
+		config.setMaintenanceIntervalMillis(20L);
+		config.setMaxLifetimeMillis(100L);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		pool.returnObject(first);
+		long deadline = System.currentTimeMillis() + 2000;
+		while ((pool.getStats().getDestroyed() == 0 || pool.getNumIdle() == 0) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, pool.getStats().getDestroyed());
+		assertEquals(1, pool.getNumIdle());
+		assertNotSame(first, pool.borrowObject());
+		pool.close();
+	}
+
+	@Test
+	public void idleClientReceivesKeepAlive() throws Exception {
+		config.setMaintenanceIntervalMillis(20L);
+		config.setKeepAliveIntervalMillis(50L);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		pool.returnObject(first);
+		verify(factory, timeout(2000).atLeastOnce()).validateObject(any());
+		assertSame(first, pool.borrowObject());
+		pool.close();
+	}
+
+	@Test
+	public void keepAliveKeepsIdleOrder() throws Exception {
+		config.setMaintenanceIntervalMillis(20L);
+		config.setKeepAliveIntervalMillis(50L);
+		FtpConcurrentPool pool = new FtpConcurrentPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		FTPClient second = pool.borrowObject();
+		pool.returnObject(first);
+		pool.returnObject(second);
+		verify(factory, timeout(2000).atLeast(2)).validateObject(any());
+		// 保活后仍是最近归还的连接在栈顶
+		FTPClient borrowed = CompletableFuture.supplyAsync(() -> {
+			try {
+				return pool.borrowObject();
+			} catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		}).get(1, TimeUnit.SECONDS);
+		assertSame(second, borrowed);
+		pool.close();
+	}
+}
@@ -0,0 +1,110 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.FtpKeyedPool;
+import com.scenetec.ftp.core.FtpServerKey;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class FtpKeyedPoolTest {
+
+	private static final FtpServerKey A = FtpServerKey.builder().host("a").username("u").build();
+	private static final FtpServerKey B = FtpServerKey.builder().host("b").username("u").build();
+	private static final FtpServerKey C = FtpServerKey.builder().host("c").username("u").build();
+
+	private FtpKeyedPool pool;
+	private final List<FtpServerKey> evicted = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		FtpClientProperties config = new FtpClientProperties();
+		config.setKeyedMaxTotal(3);
+		config.setMaxTotalPerKey(2);
+		config.setMaxKeys(2);
+		config.setMaxWaitMillis(100L);
+		FtpClientFactory factory = mock(FtpClientFactory.class);
+		when(factory.forServer(any())).thenAnswer(invocation -> serverFactory());
+		pool = new FtpKeyedPool(factory, config);
+		pool.setEvictionListener(evicted::add);
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void perKeyAndGlobalCaps() throws Exception {
+		pool.borrowObject(A);
+		pool.borrowObject(A);
+		assertTimeout(A);
+		pool.borrowObject(B);
+		// 全局上限为3
+		assertTimeout(B);
+		assertEquals(3, pool.getNumActive());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedIdleKey() throws Exception {
+		pool.returnObject(A, pool.borrowObject(A));
+		Thread.sleep(5);
+		pool.returnObject(B, pool.borrowObject(B));
+		pool.returnObject(C, pool.borrowObject(C));
+		assertEquals(2, pool.getNumKeys());
+		assertNull(pool.getStats(A));
+		assertEquals(A, evicted.get(0));
+	}
+
+	@Test
+	public void keyInUseIsNotEvicted() throws Exception {
+		FTPClient client = pool.borrowObject(A);
+		pool.returnObject(B, pool.borrowObject(B));
+		pool.returnObject(C, pool.borrowObject(C));
+		assertNotNull(pool.getStats(A));
+		assertNull(pool.getStats(B));
+		pool.returnObject(A, client);
+		assertEquals(1, pool.getNumIdle(A));
+	}
+
+	private void assertTimeout(FtpServerKey key) throws Exception {
+		try {
+			pool.borrowObject(key);
+			fail("expected timeout");
+		} catch (NoSuchElementException expected) {
+			// 超过上限
+		}
+	}
+
+	private static FtpClientFactory serverFactory() throws Exception {
+		FtpClientFactory factory = mock(FtpClientFactory.class);
+		when(factory.create()).thenAnswer(invocation -> {
+			FTPClient client = mock(FTPClient.class);
+			when(client.isConnected()).thenReturn(true);
+			return client;
+		});
+		when(factory.wrap(any())).thenCallRealMethod();
+		when(factory.validateObject(any())).thenReturn(true);
+		when(factory.getMetricsListener()).thenReturn(FtpMetricsListener.NOOP);
+		return factory;
+	}
+}
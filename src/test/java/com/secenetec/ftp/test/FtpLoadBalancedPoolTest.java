@@ -0,0 +1,124 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.FtpEndpoint;
+import com.scenetec.ftp.core.FtpLoadBalancedPool;
+import com.scenetec.ftp.metrics.FtpMetricsListener;
+import com.scenetec.ftp.metrics.FtpPoolStats;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class FtpLoadBalancedPoolTest {
+
+	private static final FtpEndpoint GOOD = new FtpEndpoint("good", 21);
+	private static final FtpEndpoint BAD = new FtpEndpoint("bad", 21);
+
+	private FtpClientFactory factory;
+	private FtpClientProperties config;
+
+	@Before
+	public void setUp() throws Exception {
+		config = new FtpClientProperties();
+		config.setHosts(Arrays.asList("good", "bad:21"));
+		config.setMaxTotal(2);
+		config.setMaxIdle(2);
+		config.setMaxWaitMillis(200L);
+		config.setCircuitFailureThreshold(2);
+		config.setProbeIntervalMillis(60000L);
+		factory = mock(FtpClientFactory.class);
+		when(factory.create(any(FtpEndpoint.class))).thenAnswer(invocation -> {
+			if (BAD.equals(invocation.getArgument(0))) {
+				throw new ConnectException("Connection refused");
+			}
+			FTPClient client = mock(FTPClient.class);
+			when(client.isConnected()).thenReturn(true);
+			return client;
+		});
+		when(factory.wrap(any())).thenCallRealMethod();
+		when(factory.validateObject(any())).thenReturn(true);
+		when(factory.getMetricsListener()).thenReturn(FtpMetricsListener.NOOP);
+	}
+
+	@Test
+	public void failsOverAndEjectsDeadEndpoint() throws Exception {
+		FtpLoadBalancedPool pool = new FtpLoadBalancedPool(factory, config);
+		for (int i = 0; i < 4; i++) {
+			pool.returnObject(pool.borrowObject());
+		}
+		assertTrue(pool.isEjected(BAD));
+		assertFalse(pool.isEjected(GOOD));
+		Map<FtpEndpoint, FtpPoolStats> stats = pool.getEndpointStats();
+		assertEquals(0, stats.get(BAD).getCreated());
+		assertEquals(1, stats.get(GOOD).getIdle());
+		pool.close();
+	}
+
+	@Test
+	public void leastActiveSpreadsAcrossEndpoints() throws Exception {
+		config.setHosts(Arrays.asList("good", "good:2121"));
+		FtpLoadBalancedPool pool = new FtpLoadBalancedPool(factory, config);
+		FTPClient first = pool.borrowObject();
+		FTPClient second = pool.borrowObject();
+		for (FtpPoolStats stats : pool.getEndpointStats().values()) {
+			assertEquals(1, stats.getActive());
+		}
+		pool.returnObject(first);
+		pool.returnObject(second);
+		assertEquals(2, pool.getNumIdle());
+		pool.close();
+	}
+
+	@Test
+	public void exhaustedEndpointsShareOneDeadline() throws Exception {
+		config.setHosts(Arrays.asList("good", "good:2121", "good:2122"));
+		config.setMaxTotal(1);
+		config.setMaxWaitMillis(300L);
+		FtpLoadBalancedPool pool = new FtpLoadBalancedPool(factory, config);
+		for (int i = 0; i < 3; i++) {
+			pool.borrowObject();
+		}
+		long start = System.nanoTime();
+		try {
+			pool.borrowObject();
+			fail();
+		} catch (NoSuchElementException ex) {
+			// 每个服务器各等待一次时为900毫秒
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue("waited " + elapsed + "ms", elapsed >= 250 && elapsed < 600);
+		} finally {
+			pool.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void allEndpointsDownFailsFast() throws Exception {
+		config.setHosts(Arrays.asList("bad"));
+		FtpLoadBalancedPool pool = new FtpLoadBalancedPool(factory, config);
+		try {
+			pool.borrowObject();
+		} finally {
+			pool.close();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.RemoteChecksum;
+import com.scenetec.ftp.io.HashAlgorithm;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class RemoteChecksumTest {
+
+	@Test
+	public void hashSelectsPreferredAlgorithm() throws Exception {
+		FTPClient client = mock(FTPClient.class);
+		when(client.hasFeature(anyString())).thenReturn(false);
+		when(client.hasFeature("HASH")).thenReturn(true);
+		when(client.hasFeature("RANG")).thenReturn(true);
+		when(client.featureValues("HASH")).thenReturn(new String[]{"SHA-1;SHA-256;MD5*"});
+		when(client.sendCommand("HASH", "a.bin")).thenReturn(213);
+		when(client.sendCommand("OPTS", "HASH SHA-256")).thenReturn(200);
+		when(client.getReplyString()).thenReturn("213 MD5 0-2 900150983cd24fb0d6963f7d28e17f72 a.bin\r\n",
+				"213 SHA-256 0-2 BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD a.bin\r\n");
+
+		RemoteChecksum checksum = RemoteChecksum.negotiate(client);
+		assertEquals(HashAlgorithm.SHA_256, checksum.getAlgorithm());
+		assertTrue(checksum.supportsRanges());
+
+		String remote = checksum.query(client, "a.bin");
+		verify(client).sendCommand("OPTS", "HASH SHA-256");
+		MessageDigest digest = checksum.getAlgorithm().newDigest();
+		String local = HashAlgorithm.toHex(digest.digest("abc".getBytes(StandardCharsets.US_ASCII)));
+		assertTrue(checksum.matches(local, remote));
+	}
+
+	@Test
+	public void xcrcIgnoresMissingLeadingZeros() throws Exception {
+		FTPClient client = mock(FTPClient.class);
+		when(client.hasFeature(anyString())).thenReturn(false);
+		when(client.hasFeature("XCRC")).thenReturn(true);
+		when(client.sendCommand("XCRC", "b.bin")).thenReturn(250);
+		when(client.getReplyString()).thenReturn("250 D202EF8D\r\n");
+
+		RemoteChecksum checksum = RemoteChecksum.negotiate(client);
+		assertEquals(HashAlgorithm.CRC32, checksum.getAlgorithm());
+		assertFalse(checksum.supportsRanges());
+		String remote = checksum.query(client, "b.bin");
+		// CRC32("\0") = d202ef8d
+		String local = HashAlgorithm.toHex(checksum.getAlgorithm().newDigest().digest(new byte[1]));
+		assertTrue(checksum.matches(local, remote));
+		assertTrue(checksum.matches("00abcdef", "ABCDEF"));
+		assertFalse(checksum.matches("00abcdef", "abcdee"));
+	}
+}
@@ -0,0 +1,66 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.RemoteDirectoryCache;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class RemoteDirectoryCacheTest {
+
+	@Test
+	public void normalize() {
+		assertEquals("/", RemoteDirectoryCache.normalize(""));
+		assertEquals("/2019/01/", RemoteDirectoryCache.normalize("2019\\01"));
+		assertEquals("/2019/01/22/", RemoteDirectoryCache.normalize("//2019/01/22/"));
+	}
+
+	@Test
+	public void putRecordsAncestors() {
+		RemoteDirectoryCache cache = new RemoteDirectoryCache(16, 1, TimeUnit.MINUTES);
+		cache.put("/2019/01/22/");
+		assertTrue(cache.contains("/2019/"));
+		assertTrue(cache.contains("/2019/01/"));
+		assertTrue(cache.contains("/2019/01/22/"));
+		assertFalse(cache.contains("/2019/02/"));
+	}
+
+	@Test
+	public void invalidateRemovesDescendants() {
+		RemoteDirectoryCache cache = new RemoteDirectoryCache(16, 1, TimeUnit.MINUTES);
+		cache.put("/2019/01/22/");
+		cache.invalidate("/2019/01/");
+		assertTrue(cache.contains("/2019/"));
+		assertFalse(cache.contains("/2019/01/"));
+		assertFalse(cache.contains("/2019/01/22/"));
+	}
+
+	@Test
+	public void expiredAndEvictedEntriesAreMissing() throws Exception {
+		RemoteDirectoryCache expiring = new RemoteDirectoryCache(16, 10, TimeUnit.MILLISECONDS);
+		expiring.put("/a/");
+		Thread.sleep(20);
+		assertFalse(expiring.contains("/a/"));
+
+		RemoteDirectoryCache bounded = new RemoteDirectoryCache(2, 1, TimeUnit.MINUTES);
+		bounded.put("/a/");
+		bounded.put("/b/");
+		bounded.put("/c/");
+		assertFalse(bounded.contains("/a/"));
+		assertTrue(bounded.contains("/c/"));
+	}
+
+	@Test
+	public void disabledCacheKeepsNothing() {
+		RemoteDirectoryCache cache = new RemoteDirectoryCache(0, 1, TimeUnit.MINUTES);
+		cache.put("/a/");
+		assertFalse(cache.contains("/a/"));
+	}
+}
@@ -0,0 +1,80 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.RemoteFileCache;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class RemoteFileCacheTest {
+
+	@Test
+	public void servesOnlyMatchingVersion() throws Exception {
+		RemoteFileCache cache = new RemoteFileCache(1024, 1024, null, 0);
+		byte[] content = "price list".getBytes("UTF-8");
+		load(cache, "/a.txt", "20261018101010", content);
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertTrue(cache.serve("/a.txt", "20261018101010", content.length, os));
+		assertArrayEquals(content, os.toByteArray());
+		assertFalse(cache.serve("/a.txt", "20261018101011", content.length, new ByteArrayOutputStream()));
+		// 版本不一致的缓存已移除
+		assertEquals(0, cache.getMemoryBytes());
+	}
+
+	@Test
+	public void evictedEntriesSpillToDisk() throws Exception {
+		File dir = Files.createTempDirectory("ftp-cache-test").toFile();
+		RemoteFileCache cache = new RemoteFileCache(16, 16, dir, 1024);
+		byte[] first = new byte[10];
+		byte[] second = new byte[10];
+		second[0] = 1;
+		load(cache, "/a", "1", first);
+		load(cache, "/b", "1", second);
+		assertEquals(10, cache.getMemoryBytes());
+		assertEquals(10, cache.getDiskBytes());
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertTrue(cache.serve("/a", "1", first.length, os));
+		assertArrayEquals(first, os.toByteArray());
+		cache.clear();
+		assertEquals(0, cache.getDiskBytes());
+	}
+
+	@Test
+	public void invalidationDropsDownloadInFlight() throws Exception {
+		RemoteFileCache cache = new RemoteFileCache(1024, 1024, null, 0);
+		byte[] content = "old".getBytes("UTF-8");
+		RemoteFileCache.Sink sink = cache.open("/a.txt", "1", content.length, new ByteArrayOutputStream());
+		sink.write(content, 0, content.length);
+		// 下载过程中文件被覆盖
+		cache.invalidate("/a.txt");
+		sink.commit();
+		sink.close();
+
+		assertEquals(0, cache.getMemoryBytes());
+		assertFalse(cache.serve("/a.txt", "1", content.length, new ByteArrayOutputStream()));
+	}
+
+	private static void load(RemoteFileCache cache, String path, String version, byte[] content) {
+		RemoteFileCache.Sink sink = cache.open(path, version, content.length, new ByteArrayOutputStream());
+		try {
+			sink.write(content, 0, content.length);
+			sink.commit();
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		} finally {
+			sink.close();
+		}
+	}
+}
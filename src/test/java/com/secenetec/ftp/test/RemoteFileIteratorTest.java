@@ -0,0 +1,81 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.FtpChannelClient;
+import com.scenetec.ftp.core.RemoteFileIterator;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class RemoteFileIteratorTest {
+
+	@Test
+	public void mlsdSkipsCurrentAndParentEntries() throws Exception {
+		String listing = "type=cdir;modify=20260101000000; /data\r\n"
+				+ "type=pdir;modify=20260101000000; /\r\n"
+				+ "type=file;size=12;modify=20260101000000; a.txt\r\n"
+				+ "type=dir;modify=20260101000000; sub\r\n";
+		FtpChannelClient client = mockClient(listing, FTPCmd.MLSD);
+		when(client.hasFeature("MLST")).thenReturn(true);
+
+		List<FTPFile> files = readAll(client);
+		assertEquals(2, files.size());
+		assertEquals("a.txt", files.get(0).getName());
+		assertEquals(12, files.get(0).getSize());
+		assertTrue(files.get(1).isDirectory());
+		verify(client).completePendingCommand();
+	}
+
+	@Test
+	public void listIsParsedWhenMlsdUnsupported() throws Exception {
+		String listing = "total 2\r\n"
+				+ "-rw-r--r--   1 ftp ftp          5 Jan 01 00:00 b.txt\r\n"
+				+ "drwxr-xr-x   1 ftp ftp          0 Jan 01 00:00 logs\r\n";
+		FtpChannelClient client = mockClient(listing, FTPCmd.LIST);
+		when(client.hasFeature("MLST")).thenReturn(false);
+		when(client.getSystemType()).thenReturn("UNIX Type: L8");
+
+		List<FTPFile> files = readAll(client);
+		assertEquals(2, files.size());
+		assertEquals("b.txt", files.get(0).getName());
+		assertEquals("logs", files.get(1).getName());
+		assertTrue(files.get(1).isDirectory());
+	}
+
+	private FtpChannelClient mockClient(String listing, FTPCmd command) throws Exception {
+		FtpChannelClient client = mock(FtpChannelClient.class);
+		Socket socket = mock(Socket.class);
+		when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)));
+		when(client.getControlEncoding()).thenReturn("UTF-8");
+		when(client.openChannelDataConnection(eq(command), any())).thenReturn(socket);
+		when(client.completePendingCommand()).thenReturn(true);
+		return client;
+	}
+
+	private List<FTPFile> readAll(FtpChannelClient client) throws Exception {
+		List<FTPFile> files = new ArrayList<>();
+		try (RemoteFileIterator iterator = RemoteFileIterator.open(client, "/data")) {
+			iterator.forEachRemaining(files::add);
+			assertFalse(iterator.isFailed());
+		}
+		return files;
+	}
+}
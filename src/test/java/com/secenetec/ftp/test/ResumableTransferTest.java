@@ -0,0 +1,304 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.core.TransferJournal;
+import com.scenetec.ftp.template.FtpPoolTemplate;
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.ftplet.DataConnection;
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.Ftplet;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 断点续传：进程内FTP服务器在第一次传输中途断开数据连接，客户端按日志和服务器上的大小续传
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class ResumableTransferTest {
+
+	private static final int FILE_SIZE = 1024 * 1024;
+	private static final int DROP_AFTER = 256 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AtomicBoolean dropRetr = new AtomicBoolean();
+	private final AtomicBoolean dropStor = new AtomicBoolean();
+	private final List<String> commands = new CopyOnWriteArrayList<>();
+	private volatile File journalTarget;
+	private volatile TransferJournal journalOnResume;
+
+	private FtpServer server;
+	private File root;
+	private FtpClientProperties config;
+	private FtpPoolTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		root = folder.newFolder("root");
+		int port = freePort();
+
+		CommandFactoryFactory commandFactory = new CommandFactoryFactory();
+		commandFactory.addCommand("RETR", (session, context, request) -> {
+			if (dropRetr.compareAndSet(true, false)) {
+				sendPartially(session, request);
+			} else {
+				new org.apache.ftpserver.command.impl.RETR().execute(session, context, request);
+			}
+		});
+		commandFactory.addCommand("STOR", (session, context, request) -> {
+			if (dropStor.compareAndSet(true, false)) {
+				receivePartially(session, request);
+			} else {
+				new org.apache.ftpserver.command.impl.STOR().execute(session, context, request);
+			}
+		});
+
+		ListenerFactory listenerFactory = new ListenerFactory();
+		listenerFactory.setServerAddress("127.0.0.1");
+		listenerFactory.setPort(port);
+		ConnectionConfigFactory connectionConfig = new ConnectionConfigFactory();
+		connectionConfig.setAnonymousLoginEnabled(false);
+
+		FtpServerFactory serverFactory = new FtpServerFactory();
+		serverFactory.addListener("default", listenerFactory.createListener());
+		serverFactory.setConnectionConfig(connectionConfig.createConnectionConfig());
+		serverFactory.setCommandFactory(commandFactory.createCommandFactory());
+		// 停止服务器时会清空该映射
+		Map<String, Ftplet> ftplets = new HashMap<>();
+		ftplets.put("recorder", new DefaultFtplet() {
+			@Override
+			public FtpletResult beforeCommand(FtpSession session, FtpRequest request) {
+				commands.add(request.getRequestLine());
+				if (("REST".equals(request.getCommand()) || "APPE".equals(request.getCommand())) && journalTarget != null) {
+					// 续传命令到达时记录客户端日志的内容
+					journalOnResume = TransferJournal.of(journalTarget);
+				}
+				return FtpletResult.DEFAULT;
+			}
+		});
+		serverFactory.setFtplets(ftplets);
+
+		BaseUser user = new BaseUser();
+		user.setName("test");
+		user.setPassword("test");
+		user.setHomeDirectory(root.getAbsolutePath());
+		user.setAuthorities(Arrays.asList(new WritePermission(), new ConcurrentLoginPermission(16, 16)));
+		serverFactory.getUserManager().save(user);
+		server = serverFactory.createServer();
+		server.start();
+
+		config = new FtpClientProperties();
+		config.setHost("127.0.0.1");
+		config.setPort(port);
+		config.setUsername("test");
+		config.setPassword("test");
+		config.setPassiveMode(true);
+		config.setBufferSize(8192);
+		config.setCheckpointInterval(16L * 1024);
+		template = new FtpPoolTemplate(new FtpClientFactory(config), config);
+	}
+
+	@After
+	public void tearDown() {
+		template.destroy();
+		server.stop();
+	}
+
+	@Test
+	public void downloadResumesWithRestFromJournalOffset() throws Exception {
+		byte[] content = randomContent();
+		Files.write(new File(root, "data.bin").toPath(), content);
+		File localFile = new File(folder.getRoot(), "data.bin");
+		journalTarget = localFile;
+		dropRetr.set(true);
+
+		assertTrue(template.downloadFileResumable("/data.bin", localFile));
+
+		assertArrayEquals(content, Files.readAllBytes(localFile.toPath()));
+		assertTrue(commands.contains("REST " + DROP_AFTER));
+		assertEquals("/data.bin", journalOnResume.getRemotePath());
+		assertEquals(FILE_SIZE, journalOnResume.getRemoteSize());
+		assertEquals(DROP_AFTER, journalOnResume.getOffset());
+		assertFalse(new File(localFile.getPath() + TransferJournal.JOURNAL_SUFFIX).exists());
+	}
+
+	@Test
+	public void uploadResumesWithAppeFromServerSize() throws Exception {
+		byte[] content = randomContent();
+		File localFile = folder.newFile("upload.bin");
+		Files.write(localFile.toPath(), content);
+		journalTarget = localFile;
+		dropStor.set(true);
+
+		assertTrue(template.uploadFileResumable(localFile, "/upload.bin"));
+
+		assertArrayEquals(content, Files.readAllBytes(new File(root, "upload.bin").toPath()));
+		assertTrue(commands.contains("APPE upload.bin"));
+		assertTrue(journalOnResume.matchesUpload("/upload.bin", localFile));
+		// 日志记录的是客户端已发送的偏移，续传以服务器上的大小为准
+		assertTrue(journalOnResume.getOffset() >= DROP_AFTER);
+		assertFalse(new File(localFile.getPath() + TransferJournal.JOURNAL_SUFFIX).exists());
+	}
+
+	@Test
+	public void plainFileUploadRetriesAfterDrop() throws Exception {
+		byte[] content = randomContent();
+		File localFile = folder.newFile("plain.bin");
+		Files.write(localFile.toPath(), content);
+		dropStor.set(true);
+
+		assertTrue(template.uploadFile(localFile, "/plain.bin"));
+
+		assertArrayEquals(content, Files.readAllBytes(new File(root, "plain.bin").toPath()));
+	}
+
+	@Test
+	public void pausedAtomicUploadSurvivesOrphanCleanup() throws Exception {
+		byte[] content = randomContent();
+		File localFile = folder.newFile("paused.bin");
+		Files.write(localFile.toPath(), content);
+		// 上一次断点续传上传在前一部分后暂停
+		File partial = new File(root, "paused.bin.resume.part");
+		Files.write(partial.toPath(), Arrays.copyOf(content, DROP_AFTER));
+		TransferJournal journal = TransferJournal.of(localFile);
+		journal.setRemotePath("/paused.bin");
+		journal.setLocalLength(localFile.length());
+		journal.setLocalModified(localFile.lastModified());
+		journal.setOffset(DROP_AFTER);
+		journal.save();
+		File orphan = new File(root, "other.bin.1f3a5c7e9b.part");
+		Files.write(orphan.toPath(), new byte[16]);
+		long twoHoursAgo = System.currentTimeMillis() - 2 * 3600 * 1000L;
+		assertTrue(partial.setLastModified(twoHoursAgo));
+		assertTrue(orphan.setLastModified(twoHoursAgo));
+
+		config.setAtomicUpload(true);
+		config.setOrphanTempTimeoutMillis(60000L);
+		FtpPoolTemplate atomicTemplate = new FtpPoolTemplate(new FtpClientFactory(config), config);
+		try {
+			assertEquals(1, atomicTemplate.cleanOrphanedTempFiles("/"));
+			assertFalse(orphan.exists());
+			assertTrue(partial.exists());
+
+			assertTrue(atomicTemplate.uploadFileResumable(localFile, "/paused.bin"));
+		} finally {
+			atomicTemplate.destroy();
+		}
+		assertTrue(commands.contains("APPE paused.bin.resume.part"));
+		assertArrayEquals(content, Files.readAllBytes(new File(root, "paused.bin").toPath()));
+		assertFalse(partial.exists());
+	}
+
+	/**
+	 * 发送文件的前一部分后断开数据连接
+	 */
+	private static void sendPartially(FtpIoSession session, FtpRequest request) throws IOException, FtpException {
+		FtpFile file = session.getFileSystemView().getFile(request.getArgument());
+		byte[] head = new byte[DROP_AFTER];
+		try (InputStream is = file.createInputStream(session.getFileOffset())) {
+			int read = 0;
+			while (read < head.length) {
+				read += is.read(head, read, head.length - read);
+			}
+		}
+		session.resetState();
+		session.write(new DefaultFtpReply(150, "Opening data connection."));
+		try {
+			DataConnection connection = session.getDataConnection().openConnection();
+			connection.transferToClient(session.getFtpletSession(), new ByteArrayInputStream(head));
+		} catch (Exception ex) {
+			// 客户端已收到部分数据
+		} finally {
+			session.getDataConnection().closeDataConnection();
+		}
+		session.write(new DefaultFtpReply(426, "Data connection closed, transfer aborted."));
+	}
+
+	/**
+	 * 接收文件的前一部分后断开数据连接
+	 */
+	private static void receivePartially(FtpIoSession session, FtpRequest request) throws IOException, FtpException {
+		FtpFile file = session.getFileSystemView().getFile(request.getArgument());
+		session.resetState();
+		session.write(new DefaultFtpReply(150, "Opening data connection."));
+		try (OutputStream os = file.createOutputStream(0)) {
+			DataConnection connection = session.getDataConnection().openConnection();
+			connection.transferFromClient(session.getFtpletSession(), new OutputStream() {
+				private long count;
+
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[]{(byte) b}, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					int accepted = (int) Math.min(len, DROP_AFTER - count);
+					os.write(b, off, accepted);
+					count += accepted;
+					if (count >= DROP_AFTER) {
+						throw new IOException("drop");
+					}
+				}
+			});
+		} catch (Exception ex) {
+			// 只保留已接收的部分
+		} finally {
+			session.getDataConnection().closeDataConnection();
+		}
+		session.write(new DefaultFtpReply(426, "Data connection closed, transfer aborted."));
+	}
+
+	private static byte[] randomContent() {
+		byte[] content = new byte[FILE_SIZE];
+		new Random(FILE_SIZE).nextBytes(content);
+		return content;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.config.FtpClientProperties;
+import com.scenetec.ftp.core.FtpClientFactory;
+import com.scenetec.ftp.template.FtpPoolTemplate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分段并行下载：文件大小不是分段大小的整数倍，各分段写入预分配文件的对应位置
+ *
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class SegmentedDownloadTest {
+
+	private static final long SEGMENT_SIZE = 100 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private EmbeddedFtpServer server;
+	private File root;
+	private byte[] content;
+
+	@Before
+	public void setUp() throws Exception {
+		root = folder.newFolder("root");
+		server = EmbeddedFtpServer.start(root);
+		// 10个完整分段加一个不足一段的尾部
+		content = new byte[(int) (SEGMENT_SIZE * 10 + 12345)];
+		new Random(3).nextBytes(content);
+		Files.write(new File(root, "big.bin").toPath(), content);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void streamSegments() throws Exception {
+		assertSegmentedDownload(newConfig());
+	}
+
+	@Test
+	public void zeroCopySegments() throws Exception {
+		FtpClientProperties config = newConfig();
+		config.setZeroCopy(true);
+		assertSegmentedDownload(config);
+	}
+
+	@Test
+	public void smallFileFallsBackToPlainDownload() throws Exception {
+		byte[] small = new byte[(int) SEGMENT_SIZE - 1];
+		new Random(5).nextBytes(small);
+		Files.write(new File(root, "small.bin").toPath(), small);
+		FtpClientProperties config = newConfig();
+		FtpPoolTemplate template = new FtpPoolTemplate(new FtpClientFactory(config), config);
+		File localFile = new File(folder.getRoot(), "small.bin");
+		try {
+			assertTrue(template.downloadFileParallel("/small.bin", localFile));
+		} finally {
+			template.destroy();
+		}
+		assertArrayEquals(small, Files.readAllBytes(localFile.toPath()));
+	}
+
+	private FtpClientProperties newConfig() {
+		FtpClientProperties config = server.newConfig();
+		config.setSegmentSize(SEGMENT_SIZE);
+		config.setDownloadParallelism(3);
+		config.setMaxTotal(4);
+		return config;
+	}
+
+	private void assertSegmentedDownload(FtpClientProperties config) throws Exception {
+		FtpPoolTemplate template = new FtpPoolTemplate(new FtpClientFactory(config), config);
+		File localFile = new File(folder.getRoot(), "big.bin");
+		// 已有更长的本地文件，预分配后长度与远程文件一致
+		Files.write(localFile.toPath(), new byte[content.length + 4096]);
+		try {
+			assertTrue(template.downloadFileParallel("/big.bin", localFile));
+		} finally {
+			template.destroy();
+		}
+		assertArrayEquals(content, Files.readAllBytes(localFile.toPath()));
+	}
+}
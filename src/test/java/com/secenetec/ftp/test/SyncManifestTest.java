@@ -0,0 +1,55 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.sync.SyncManifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class SyncManifestTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void saveAndReload() throws Exception {
+		File localFile = folder.newFile("a.csv");
+		Files.write(localFile.toPath(), new byte[64]);
+		File manifestFile = new File(folder.getRoot(), SyncManifest.MANIFEST_NAME);
+
+		SyncManifest manifest = SyncManifest.load(manifestFile, "/mirror/");
+		manifest.put("a.csv", new SyncManifest.Entry(localFile.length(), localFile.lastModified(), 64, 1000L));
+		manifest.put("gone.csv", new SyncManifest.Entry(1, 1, 1, 1));
+		manifest.retainAll(Collections.singleton("a.csv"));
+		manifest.save();
+
+		SyncManifest reloaded = SyncManifest.load(manifestFile, "/mirror/");
+		assertEquals(1, reloaded.size());
+		assertTrue(reloaded.get("a.csv").matchesLocal(localFile));
+		assertTrue(reloaded.get("a.csv").matchesRemote(64, 1000L));
+		assertFalse(reloaded.get("a.csv").matchesRemote(64, 2000L));
+		assertNull(reloaded.get("gone.csv"));
+	}
+
+	@Test
+	public void manifestOfOtherRemoteDirectoryIsIgnored() throws Exception {
+		File manifestFile = new File(folder.getRoot(), SyncManifest.MANIFEST_NAME);
+		SyncManifest manifest = SyncManifest.load(manifestFile, "/mirror/");
+		manifest.put("a.csv", new SyncManifest.Entry(1, 1, 1, 1));
+		manifest.save();
+
+		assertEquals(0, SyncManifest.load(manifestFile, "/backup/").size());
+	}
+}
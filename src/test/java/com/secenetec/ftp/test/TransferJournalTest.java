@@ -0,0 +1,75 @@
+package com.secenetec.ftp.test;
+
+import com.scenetec.ftp.core.TransferJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author shendunyuan@scenetec.com
+ * @date 2026/10/18
+ */
+public class TransferJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void saveAndReload() throws Exception {
+		File localFile = folder.newFile("data.csv");
+		Files.write(localFile.toPath(), new byte[1024]);
+
+		TransferJournal journal = TransferJournal.of(localFile);
+		journal.setRemotePath("/2019/data.csv");
+		journal.setLocalLength(localFile.length());
+		journal.setLocalModified(localFile.lastModified());
+		journal.setOffset(512);
+		journal.save();
+
+		TransferJournal reloaded = TransferJournal.of(localFile);
+		assertTrue(reloaded.matchesUpload("/2019/data.csv", localFile));
+		assertFalse(reloaded.matchesUpload("/2019/other.csv", localFile));
+		assertEquals(512, reloaded.getOffset());
+	}
+
+	@Test
+	public void changedLocalFileDoesNotMatch() throws Exception {
+		File localFile = folder.newFile("data.csv");
+		Files.write(localFile.toPath(), new byte[1024]);
+
+		TransferJournal journal = TransferJournal.of(localFile);
+		journal.setRemotePath("/2019/data.csv");
+		journal.setLocalLength(localFile.length());
+		journal.setLocalModified(localFile.lastModified());
+		journal.save();
+
+		Files.write(localFile.toPath(), new byte[2048]);
+		assertFalse(TransferJournal.of(localFile).matchesUpload("/2019/data.csv", localFile));
+	}
+
+	@Test
+	public void downloadMatchesRemoteIdentity() throws Exception {
+		File localFile = new File(folder.getRoot(), "down.csv");
+
+		TransferJournal journal = TransferJournal.of(localFile);
+		journal.setRemotePath("/2019/down.csv");
+		journal.setRemoteSize(4096);
+		journal.setRemoteModified("20190122101010");
+		journal.setOffset(2048);
+		journal.save();
+
+		TransferJournal reloaded = TransferJournal.of(localFile);
+		assertTrue(reloaded.matchesDownload("/2019/down.csv", 4096, "20190122101010"));
+		assertFalse(reloaded.matchesDownload("/2019/down.csv", 4096, "20190123101010"));
+
+		reloaded.delete();
+		assertFalse(new File(localFile.getPath() + TransferJournal.JOURNAL_SUFFIX).exists());
+	}
+}